@@ -0,0 +1,423 @@
+package tech.stackable.t2.ansible;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * Timing of the plays, tasks and hosts of the Ansible runs of a cluster, read from the events written by the T2
+ * callback plugin (<code>t2_profile</code>).
+ *
+ * The events are read as they have been written so far, so the profile of a running playbook is complete up to its
+ * current task.
+ */
+@Schema(description = "Timing of the Ansible playbook runs of a cluster")
+public class AnsibleProfile {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AnsibleProfile.class);
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Schema(description = "Plays of all playbook runs in the order they were run", required = true)
+    private final List<Play> plays;
+
+    @Schema(description = "Total duration of the tasks per role, longest first", required = true)
+    private final List<Timing> roles;
+
+    @Schema(description = "Total duration of the task results per host, longest first", required = true)
+    private final List<Timing> hosts;
+
+    private AnsibleProfile(List<Play> plays) {
+        this.plays = plays;
+
+        Map<String, Timing> roles = new LinkedHashMap<>();
+        Map<String, Timing> hosts = new LinkedHashMap<>();
+        for (Play play : plays) {
+            for (Task task : play.tasks) {
+                if (task.role != null) {
+                    roles.computeIfAbsent(task.role, Timing::new).add(task.duration);
+                }
+                for (HostResult result : task.hosts) {
+                    hosts.computeIfAbsent(result.host, Timing::new).add(result.duration);
+                }
+            }
+        }
+        this.roles = sorted(roles.values());
+        this.hosts = sorted(hosts.values());
+    }
+
+    private static List<Timing> sorted(Iterable<Timing> timings) {
+        List<Timing> result = new ArrayList<>();
+        timings.forEach(result::add);
+        result.sort(Comparator.comparing(Timing::getDuration).reversed());
+        return result;
+    }
+
+    /**
+     * Reads the profile from the events written by the callback plugin.
+     *
+     * Lines which cannot be parsed (e.g. a line which is being written) are ignored. Plays and tasks which have not ended
+     * yet end with the last event.
+     *
+     * @param file file with the events (JSON lines)
+     * @return profile
+     * @throws IOException if the file cannot be read
+     */
+    public static AnsibleProfile read(Path file) throws IOException {
+        Reader reader = new Reader();
+        try (BufferedReader lines = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = lines.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    reader.accept(MAPPER.readTree(line));
+                } catch (JsonProcessingException e) {
+                    LOGGER.debug("Line of Ansible profile {} ignored: {}", file, e.getOriginalMessage());
+                }
+            }
+        }
+        return new AnsibleProfile(reader.finish());
+    }
+
+    /**
+     * The profile of the last run of the given phase (the last try of a playbook stage).
+     *
+     * @param phase phase, e.g. <code>ansible-launch</code>
+     * @return profile with the plays of the last run of the phase, empty if the phase has not been run
+     */
+    public AnsibleProfile lastRun(String phase) {
+        int lastRun = this.plays.stream().filter(play -> phase.equals(play.phase)).mapToInt(play -> play.run).max().orElse(-1);
+        return new AnsibleProfile(this.plays.stream().filter(play -> play.run == lastRun).collect(Collectors.toList()));
+    }
+
+    public List<Play> getPlays() {
+        return plays;
+    }
+
+    public List<Timing> getRoles() {
+        return roles;
+    }
+
+    public List<Timing> getHosts() {
+        return hosts;
+    }
+
+    /**
+     * Builds the plays from the events.
+     *
+     * The events of a playbook run are tagged with the ID of the run, so the events of runs which overlap are kept
+     * apart. Events without ID (written by an older plugin) belong to the run of the last <code>playbook</code> event.
+     */
+    private static class Reader {
+
+        private final List<Play> plays = new ArrayList<>();
+        private final Map<String, Run> runs = new LinkedHashMap<>();
+        private int untaggedRuns = 0;
+
+        private void accept(JsonNode event) {
+            String eventType = event.path("event").asText();
+            String runId = event.path("run").asText(null);
+            if (runId == null) {
+                if ("playbook".equals(eventType)) {
+                    this.untaggedRuns++;
+                }
+                runId = "#" + this.untaggedRuns;
+            }
+            Run run = this.runs.get(runId);
+            if (run == null) {
+                run = new Run(this.runs.size() + 1);
+                this.runs.put(runId, run);
+            }
+            run.time = event.path("time").asDouble(run.time);
+            switch (eventType) {
+            case "playbook":
+                run.endPlay();
+                run.phase = event.path("phase").asText(null);
+                run.playbook = event.path("playbook").asText(null);
+                break;
+            case "play":
+                run.endPlay();
+                run.play = new Play(run.number, run.phase, run.playbook, event.path("name").asText(), toDateTime(run.time));
+                run.play.startTime = run.time;
+                this.plays.add(run.play);
+                break;
+            case "task":
+                run.endTask();
+                if (run.play == null) {
+                    break;
+                }
+                run.task = new Task(event.path("name").asText(), event.path("role").asText(null), event.path("handler").asBoolean(), toDateTime(run.time));
+                run.task.startTime = run.time;
+                run.tasks.put(event.path("id").asText(), run.task);
+                run.play.tasks.add(run.task);
+                break;
+            case "result":
+                Task resultTask = run.tasks.getOrDefault(event.path("id").asText(), run.task);
+                if (resultTask != null) {
+                    resultTask.hosts.add(new HostResult(event.path("host").asText(), event.path("status").asText(), seconds(run.time - resultTask.startTime)));
+                }
+                break;
+            case "end":
+                run.endPlay();
+                break;
+            default:
+                break;
+            }
+        }
+
+        private List<Play> finish() {
+            this.runs.values().forEach(Run::endPlay);
+            return this.plays;
+        }
+
+        private static Duration seconds(double seconds) {
+            // the timestamps of Ansible are not more precise than milliseconds
+            return Duration.ofMillis(Math.max(0L, Math.round(seconds * 1000)));
+        }
+
+        private static LocalDateTime toDateTime(double epochSeconds) {
+            return LocalDateTime.ofInstant(Instant.ofEpochMilli(Math.round(epochSeconds * 1000)), ZoneId.systemDefault());
+        }
+    }
+
+    /**
+     * State of a playbook run while its events are read
+     */
+    private static class Run {
+
+        private final int number;
+        private final Map<String, Task> tasks = new HashMap<>();
+        private String phase;
+        private String playbook;
+        private Play play;
+        private Task task;
+        private double time;
+
+        private Run(int number) {
+            this.number = number;
+        }
+
+        private void endTask() {
+            if (this.task != null) {
+                this.task.duration = Reader.seconds(this.time - this.task.startTime);
+                this.task = null;
+            }
+        }
+
+        private void endPlay() {
+            endTask();
+            if (this.play != null) {
+                this.play.duration = Reader.seconds(this.time - this.play.startTime);
+                this.play = null;
+            }
+            this.tasks.clear();
+        }
+    }
+
+    @Schema(description = "Timing of a play")
+    public static class Play {
+
+        @Schema(description = "Number of the playbook run the play belongs to (starting with 1)", required = true)
+        private final int run;
+
+        @Schema(description = "Phase of the launch or teardown, e.g. ansible-launch")
+        private final String phase;
+
+        @Schema(description = "File name of the playbook")
+        private final String playbook;
+
+        @Schema(description = "Name of the play", required = true)
+        private final String name;
+
+        @Schema(description = "Timestamp of the start of the play", required = true)
+        private final LocalDateTime startedAt;
+
+        @Schema(description = "Duration of the play", required = true)
+        private Duration duration = Duration.ZERO;
+
+        @Schema(description = "Tasks of the play in the order they were run", required = true)
+        private final List<Task> tasks = new ArrayList<>();
+
+        private double startTime;
+
+        private Play(int run, String phase, String playbook, String name, LocalDateTime startedAt) {
+            this.run = run;
+            this.phase = phase;
+            this.playbook = playbook;
+            this.name = name;
+            this.startedAt = startedAt;
+        }
+
+        public int getRun() {
+            return run;
+        }
+
+        public String getPhase() {
+            return phase;
+        }
+
+        public String getPlaybook() {
+            return playbook;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public LocalDateTime getStartedAt() {
+            return startedAt;
+        }
+
+        public Duration getDuration() {
+            return duration;
+        }
+
+        public List<Task> getTasks() {
+            return tasks;
+        }
+    }
+
+    @Schema(description = "Timing of a task")
+    public static class Task {
+
+        @Schema(description = "Name of the task", required = true)
+        private final String name;
+
+        @Schema(description = "Role the task belongs to, null for tasks of the play itself")
+        private final String role;
+
+        @Schema(description = "Is the task a handler?", required = true)
+        private final boolean handler;
+
+        @Schema(description = "Timestamp of the start of the task", required = true)
+        private final LocalDateTime startedAt;
+
+        @Schema(description = "Duration of the task on all hosts", required = true)
+        private Duration duration = Duration.ZERO;
+
+        @Schema(description = "Results per host in the order they were reported", required = true)
+        private final List<HostResult> hosts = new ArrayList<>();
+
+        private double startTime;
+
+        private Task(String name, String role, boolean handler, LocalDateTime startedAt) {
+            this.name = name;
+            this.role = role;
+            this.handler = handler;
+            this.startedAt = startedAt;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getRole() {
+            return role;
+        }
+
+        public boolean isHandler() {
+            return handler;
+        }
+
+        public LocalDateTime getStartedAt() {
+            return startedAt;
+        }
+
+        public Duration getDuration() {
+            return duration;
+        }
+
+        public List<HostResult> getHosts() {
+            return hosts;
+        }
+    }
+
+    @Schema(description = "Result of a task on a host")
+    public static class HostResult {
+
+        @Schema(description = "Name of the host", required = true)
+        private final String host;
+
+        @Schema(description = "Status of the result: ok, changed, failed, ignored, skipped or unreachable", required = true)
+        private final String status;
+
+        @Schema(description = "Time from the start of the task until the result of the host", required = true)
+        private final Duration duration;
+
+        private HostResult(String host, String status, Duration duration) {
+            this.host = host;
+            this.status = status;
+            this.duration = duration;
+        }
+
+        public String getHost() {
+            return host;
+        }
+
+        public String getStatus() {
+            return status;
+        }
+
+        public Duration getDuration() {
+            return duration;
+        }
+    }
+
+    @Schema(description = "Total duration of the tasks of a role or the results of a host")
+    public static class Timing {
+
+        @Schema(description = "Name of the role or host", required = true)
+        private final String name;
+
+        @Schema(description = "Total duration", required = true)
+        private Duration duration = Duration.ZERO;
+
+        @Schema(description = "Number of tasks (results)", required = true)
+        private int tasks;
+
+        private Timing(String name) {
+            this.name = name;
+        }
+
+        private void add(Duration duration) {
+            this.duration = this.duration.plus(duration);
+            this.tasks++;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Duration getDuration() {
+            return duration;
+        }
+
+        public int getTasks() {
+            return tasks;
+        }
+    }
+}
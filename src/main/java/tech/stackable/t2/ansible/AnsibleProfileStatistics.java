@@ -0,0 +1,134 @@
+package tech.stackable.t2.ansible;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.stereotype.Component;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * Durations of the Ansible roles and tasks per template, since T2 was started.
+ */
+@Component
+public class AnsibleProfileStatistics {
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Records the roles and tasks of a playbook run.
+     *
+     * The duration of a role (task) is the sum of its tasks (runs) in the playbook run, tasks of the play itself are
+     * recorded without role.
+     *
+     * @param template template of the cluster
+     * @param profile  profile of the playbook run
+     */
+    public void record(String template, AnsibleProfile profile) {
+        Map<String, Entry> runEntries = new LinkedHashMap<>();
+        Map<String, Duration> durations = new LinkedHashMap<>();
+        for (AnsibleProfile.Play play : profile.getPlays()) {
+            for (AnsibleProfile.Task task : play.getTasks()) {
+                if (task.getRole() != null) {
+                    String roleKey = key(template, task.getRole(), null);
+                    runEntries.putIfAbsent(roleKey, new Entry(template, task.getRole(), null));
+                    durations.merge(roleKey, task.getDuration(), Duration::plus);
+                }
+                String taskKey = key(template, task.getRole(), task.getName());
+                runEntries.putIfAbsent(taskKey, new Entry(template, task.getRole(), task.getName()));
+                durations.merge(taskKey, task.getDuration(), Duration::plus);
+            }
+        }
+        runEntries.forEach((key, entry) -> this.entries.computeIfAbsent(key, k -> entry).add(durations.get(key)));
+    }
+
+    private static String key(String template, String role, String task) {
+        return template + "/" + role + "/" + task;
+    }
+
+    /**
+     * The statistics of all roles and tasks which have been run.
+     *
+     * @return statistics sorted by template and descending average duration, the total of a role before its tasks
+     */
+    public List<Entry> getEntries() {
+        List<Entry> result = new ArrayList<>(this.entries.values());
+        result.sort(Comparator.comparing(Entry::getTemplate)
+                .thenComparing(Comparator.comparing(Entry::getAverage).reversed())
+                .thenComparing(Entry::getTask, Comparator.nullsFirst(Comparator.naturalOrder())));
+        return result;
+    }
+
+    @Schema(description = "Durations of an Ansible role or task of a template")
+    public static class Entry {
+
+        @Schema(description = "Template", required = true)
+        private final String template;
+
+        @Schema(description = "Role, null for tasks of a play itself")
+        private final String role;
+
+        @Schema(description = "Task, null for the total of a role")
+        private final String task;
+
+        private long runs;
+
+        private Duration total = Duration.ZERO;
+
+        private Duration max = Duration.ZERO;
+
+        private Duration last = Duration.ZERO;
+
+        private Entry(String template, String role, String task) {
+            this.template = template;
+            this.role = role;
+            this.task = task;
+        }
+
+        private synchronized void add(Duration duration) {
+            this.runs++;
+            this.total = this.total.plus(duration);
+            if (duration.compareTo(this.max) > 0) {
+                this.max = duration;
+            }
+            this.last = duration;
+        }
+
+        public String getTemplate() {
+            return template;
+        }
+
+        public String getRole() {
+            return role;
+        }
+
+        public String getTask() {
+            return task;
+        }
+
+        @Schema(description = "Number of playbook runs with the role or task", required = true)
+        public synchronized long getRuns() {
+            return runs;
+        }
+
+        @Schema(description = "Average duration per playbook run", required = true)
+        public synchronized Duration getAverage() {
+            return this.runs > 0 ? this.total.dividedBy(this.runs) : Duration.ZERO;
+        }
+
+        @Schema(description = "Maximum duration", required = true)
+        public synchronized Duration getMax() {
+            return max;
+        }
+
+        @Schema(description = "Duration in the last playbook run", required = true)
+        public synchronized Duration getLast() {
+            return last;
+        }
+    }
+}
@@ -1,45 +1,99 @@
 package tech.stackable.t2.ansible;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.text.MessageFormat;
+import java.util.Optional;
 import java.util.UUID;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import tech.stackable.t2.files.FileService;
-import tech.stackable.t2.util.ProgressLogger;
+import tech.stackable.t2.log.LogService;
+import tech.stackable.t2.process.ProcessOutcome;
+import tech.stackable.t2.process.ProcessService;
+import tech.stackable.t2.retry.FailureClassifier;
+import tech.stackable.t2.retry.PatternClassifier;
 
 /**
  * This service wraps Ansible commands.
+ * 
+ * If profiling is enabled, the callback plugin <code>t2_profile</code> is put next to the playbook, which records the
+ * timing of the plays, tasks and hosts in {@value #PROFILE_FILE} (see {@link AnsibleProfile}). All playbook runs of a
+ * cluster write to this file, their events are tagged with the ID of the run.
  */
 @Service
 public class AnsibleService {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(AnsibleService.class);
 
+    /**
+     * Name of the file in the working directory to which the callback plugin writes the profile
+     */
+    public static final String PROFILE_FILE = "ansible-profile.jsonl";
+
+    private static final String PROFILE_CALLBACK = "t2_profile.py";
+
+    /**
+     * Classifies failed Ansible runs by the exit code (4: parser error, 5: bad options) and known error messages
+     */
+    public static final FailureClassifier FAILURE_CLASSIFIER = new PatternClassifier()
+            .permanentExitCodes(4, 5)
+            .permanent(
+                    "^ERROR! .*(could not be found|was not found|syntax|conflicting action statements|couldn't resolve module)",
+                    "Syntax Error while loading YAML",
+                    "undefined variable",
+                    "Missing sudo password")
+            .rateLimited("\\b429\\b", "too many requests", "rate ?limit");
+
     @Autowired
     private FileService fileService;
 
-    public AnsibleResult launch(UUID clusterId) {
+    @Autowired
+    private ProcessService processService;
+
+    private final boolean profiling;
+
+    public AnsibleService(@Value("${t2.ansible.profiling.enabled:true}") boolean profiling) {
+        this.profiling = profiling;
+    }
+
+    public ProcessOutcome launch(UUID clusterId) {
         return this.run(clusterId, "launch.yaml", "ansible-launch");
     }
 
-    public AnsibleResult cleanup(UUID clusterId) {
-        return this.run(clusterId, "cleanup.yaml", "ansible-cleanup");
+    /**
+     * Runs the cleanup playbook on the given cluster, which cannot be cancelled.
+     * 
+     * @param clusterId ID of the cluster on which the playbook should be run.
+     * @return outcome of the Ansible run
+     */
+    public ProcessOutcome cleanup(UUID clusterId) {
+        return this.run(clusterId, "cleanup.yaml", "ansible-cleanup", false);
     }
 
     /**
      * Runs the given playbook on the given cluster.
      * 
-     * @param clusterId ID of the cluster on which the playbook should be run.
-     * @param playbook  Ansible playbook
-     * @return result of the Ansible run
+     * The playbook is killed if it exceeds its timeout or the launch of the cluster is cancelled.
+     * 
+     * @param clusterId     ID of the cluster on which the playbook should be run.
+     * @param playbook      Ansible playbook, relative to the working directory
+     * @param loggingPrefix prefix of the lines in the cluster log, must start with <code>ansible</code>
+     * @return outcome of the Ansible run
      */
-    private AnsibleResult run(UUID clusterId, String playbook, String loggingPrefix) {
+    public ProcessOutcome run(UUID clusterId, String playbook, String loggingPrefix) {
+        return this.run(clusterId, playbook, loggingPrefix, true);
+    }
+
+    private ProcessOutcome run(UUID clusterId, String playbook, String loggingPrefix, boolean cancellable) {
         LOGGER.info("Running Ansible playbook {} for cluster {}", playbook, clusterId);
 
         Path workingDirectory = this.fileService.workingDirectory(clusterId);
@@ -51,25 +105,66 @@ public class AnsibleService {
                     .command("sh", "-c", MessageFormat.format("ansible-playbook {0}", playbook))
                     .directory(workingDirectory.toFile());
 
-            // Start Ansible process (stderr redirected to stdout)
-            Process process = processBuilder.redirectErrorStream(true).start();
-
-            ProgressLogger logger = ProgressLogger.start(
-                    process.getInputStream(),
-                    workingDirectory.resolve("cluster.log"),
-                    loggingPrefix);
-
-            // Wait for termination of Ansible process
-            int exitCode = process.waitFor();
-
-            // Stop process logging
-            logger.stop();
-
-            return AnsibleResult.byExitCode(exitCode);
+            if (this.profiling) {
+                installProfileCallback(workingDirectory.resolve(playbook).getParent());
+                processBuilder.environment().put("T2_ANSIBLE_PROFILE", workingDirectory.resolve(PROFILE_FILE).toString());
+                processBuilder.environment().put("T2_ANSIBLE_PHASE", loggingPrefix);
+                processBuilder.environment().put("T2_ANSIBLE_RUN", UUID.randomUUID().toString());
+            }
+
+            return this.processService.run(
+                    clusterId,
+                    cancellable,
+                    processBuilder,
+                    workingDirectory.resolve(LogService.LOG_FILE),
+                    loggingPrefix,
+                    exitCode -> AnsibleResult.byExitCode(exitCode) == AnsibleResult.SUCCESS);
         } catch (IOException | InterruptedException e) {
             LOGGER.error("Error while calling Ansible", e);
             throw new RuntimeException("Error while calling Ansible", e);
         }
     }
 
+    /**
+     * Puts the profiling callback plugin into the <code>callback_plugins</code> directory next to the playbook, where
+     * Ansible loads it without further configuration.
+     * 
+     * @param playbookDirectory directory of the playbook
+     * @throws IOException if the plugin cannot be written
+     */
+    private void installProfileCallback(Path playbookDirectory) throws IOException {
+        Path callback = playbookDirectory.resolve("callback_plugins").resolve(PROFILE_CALLBACK);
+        if (Files.exists(callback)) {
+            return;
+        }
+        Files.createDirectories(callback.getParent());
+        try (InputStream plugin = AnsibleService.class.getResourceAsStream("/ansible/" + PROFILE_CALLBACK)) {
+            Files.copy(plugin, callback, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Reads the profile of the Ansible runs of the given cluster, from the archive if the working directory has been
+     * archived.
+     * 
+     * @param clusterId ID of the cluster
+     * @return profile, empty if no playbook has been run with profiling
+     */
+    public Optional<AnsibleProfile> readProfile(UUID clusterId) {
+        Path workingDirectory = this.fileService.workingDirectory(clusterId);
+        Path profileFile = workingDirectory.resolve(PROFILE_FILE);
+        if (!Files.exists(workingDirectory)) {
+            profileFile = this.fileService.unpackArchivedFiles(clusterId, PROFILE_FILE).map(directory -> directory.resolve(PROFILE_FILE)).orElse(profileFile);
+        }
+        if (!Files.exists(profileFile)) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(AnsibleProfile.read(profileFile));
+        } catch (IOException e) {
+            LOGGER.warn("Ansible profile of cluster {} could not be read.", clusterId, e);
+            return Optional.empty();
+        }
+    }
+
 }
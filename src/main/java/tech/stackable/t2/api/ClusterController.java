@@ -1,15 +1,27 @@
 package tech.stackable.t2.api;
 
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.text.MessageFormat;
-import java.util.Collection;
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.format.annotation.DateTimeFormat.ISO;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -21,6 +33,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -28,9 +41,25 @@ import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import tech.stackable.t2.ansible.AnsibleProfile;
+import tech.stackable.t2.ansible.AnsibleProfileStatistics;
+import tech.stackable.t2.cluster.BulkDeletionService;
+import tech.stackable.t2.cluster.ClusterGroupService;
+import tech.stackable.t2.cluster.ClusterPage;
 import tech.stackable.t2.cluster.ClusterService;
+import tech.stackable.t2.cluster.ClusterStreamService;
+import tech.stackable.t2.domain.BulkDeletion;
+import tech.stackable.t2.domain.BulkDeletionRequest;
 import tech.stackable.t2.domain.Cluster;
+import tech.stackable.t2.domain.ClusterEvent;
+import tech.stackable.t2.domain.ClusterGroup;
+import tech.stackable.t2.domain.ClusterSort;
+import tech.stackable.t2.domain.ClusterSummary;
 import tech.stackable.t2.domain.Status;
+import tech.stackable.t2.log.LogIndex;
+import tech.stackable.t2.log.LogRegionResource;
+import tech.stackable.t2.log.LogService;
+import tech.stackable.t2.pipeline.StageStatistics;
 import tech.stackable.t2.security.SecurityToken;
 import tech.stackable.t2.security.TokenIncorrectException;
 import tech.stackable.t2.security.TokenRequiredException;
@@ -44,20 +73,172 @@ public class ClusterController {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ClusterController.class);
 
+    private static final MediaType LOG_MEDIA_TYPE = new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8);
+
+    /**
+     * Response header containing the offset from which a client can continue reading the log
+     */
+    private static final String NEXT_OFFSET_HEADER = "X-Next-Offset";
+
+    private static final String GZIP_ENCODING = "gzip";
+
+    /**
+     * Response header containing the cursor of the next page of clusters
+     */
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     @Autowired
     private ClusterService clusterService;
 
+    @Autowired
+    private LogService logService;
+
+    @Autowired
+    private ClusterStreamService clusterStreamService;
+
+    @Autowired
+    private BulkDeletionService bulkDeletionService;
+
+    @Autowired
+    private ClusterGroupService clusterGroupService;
+
+    @Autowired
+    private StageStatistics stageStatistics;
+
+    @Autowired
+    private AnsibleProfileStatistics ansibleProfileStatistics;
+
     @Autowired
     private SecurityToken token;
 
     @GetMapping()
+    @Operation(summary = "Get clusters", description = "Get list of clusters, sorted and optionally paginated. "
+            + "The header X-Next-Cursor contains the cursor of the next page (if there is one). "
+            + "If none of the clusters has changed since the ETag given in If-None-Match, the response is 304 (Not Modified).")
+    public ResponseEntity<List<?>> getClusters(
+            @RequestHeader(name = "t2-token", required = false) String token,
+            @Parameter(name = "status", description = "status values for filtering") @RequestParam(name = "status", required = false) Set<Status> statusFilter,
+            @Parameter(name = "changedSince", description = "only clusters changed after this timestamp (ISO 8601, e.g. 2022-05-01T12:00:00)") @RequestParam(name = "changedSince", required = false) @DateTimeFormat(iso = ISO.DATE_TIME) LocalDateTime changedSince,
+            @Parameter(name = "sort", description = "sort order (default: CREATED)") @RequestParam(name = "sort", required = false, defaultValue = "CREATED") ClusterSort sort,
+            @Parameter(name = "descending", description = "sort in descending order (newest first)") @RequestParam(name = "descending", required = false, defaultValue = "false") boolean descending,
+            @Parameter(name = "limit", description = "maximum number of clusters (page size), default: all clusters") @RequestParam(name = "limit", required = false) Integer limit,
+            @Parameter(name = "cursor", description = "cursor of the page to be read (from X-Next-Cursor). With sort LAST_CHANGED, a cluster which changes while paging moves to another position, so it may be skipped or returned twice.") @RequestParam(name = "cursor", required = false) String cursor,
+            @Parameter(name = "view", description = "FULL (default) or SUMMARY (clusters without events)") @RequestParam(name = "view", required = false, defaultValue = "FULL") ClusterView view,
+            @Parameter(name = "archived", description = "list the archived (long terminated) clusters instead of the current ones") @RequestParam(name = "archived", required = false, defaultValue = "false") boolean archived,
+            @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        checkToken(token);
+
+        // the version is read first, the clusters are at least as recent as the ETag
+        String eTag = "\"" + Long.toHexString(this.clusterService.getVersion()) + "\"";
+        if (matchesETag(ifNoneMatch, eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+        }
+
+        ClusterPage page = this.clusterService.getClusters(archived, statusFilter, changedSince, sort, descending, cursor, limit != null ? Math.max(1, limit) : Integer.MAX_VALUE);
+        List<?> clusters = view == ClusterView.SUMMARY
+                ? page.getClusters().stream().map(ClusterSummary::of).collect(Collectors.toList())
+                : page.getClusters();
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().eTag(eTag);
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(clusters);
+    }
+
+    @GetMapping("stream")
+    @Operation(summary = "Stream clusters", description = "Streams the status changes and events of all clusters as Server-Sent Events")
+    public SseEmitter streamClusters(
+            @RequestHeader(name = "Last-Event-ID", required = false) Long lastEventId,
+            @RequestHeader(name = "t2-token", required = false) String token) {
+        checkToken(token);
+        return this.clusterStreamService.subscribeAll(lastEventId);
+    }
+
+    @PostMapping("deletions")
+    @Operation(summary = "Deletes a set of clusters", description = "Terminates the clusters selected by ID or by status and creation time, a limited number at a time. The progress can be queried with the returned ID.")
+    public ResponseEntity<BulkDeletion> startBulkDeletion(
+            @RequestHeader(name = "t2-token", required = false) String token,
+            @RequestBody(required = true) BulkDeletionRequest request) {
+        checkToken(token);
+        return ResponseEntity.accepted().body(this.bulkDeletionService.start(request));
+    }
+
+    @GetMapping("deletions")
     @ResponseBody
-    @Operation(summary = "Get clusters", description = "Get list of clusters")
-    public Collection<Cluster> getClusters(
+    @Operation(summary = "Get bulk deletions", description = "Gets the running and recently finished bulk deletions")
+    public List<BulkDeletion> getBulkDeletions(
+            @RequestHeader(name = "t2-token", required = false) String token) {
+        checkToken(token);
+        return this.bulkDeletionService.getAll();
+    }
+
+    @GetMapping("deletions/{deletionId}")
+    @ResponseBody
+    @Operation(summary = "Get bulk deletion", description = "Gets the progress of the specified bulk deletion")
+    public BulkDeletion getBulkDeletion(
+            @Parameter(name = "deletionId", description = "ID (UUID) of the bulk deletion") @PathVariable(name = "deletionId", required = true) UUID deletionId,
+            @RequestHeader(name = "t2-token", required = false) String token) {
+        checkToken(token);
+        return this.bulkDeletionService.get(deletionId).orElseThrow(() -> new BulkDeletionNotFoundException(String.format("No bulk deletion found with id '%s'.", deletionId)));
+    }
+
+    @PostMapping(value = "groups", consumes = { "application/json", "application/yaml" })
+    @Operation(summary = "Creates a group of clusters", description = "Creates the given number of identical clusters from one definition and starts them, a limited number at a time. "
+            + "The template is prepared and initialized once for the whole group. The progress can be queried with the returned ID.")
+    public ResponseEntity<ClusterGroup> createClusterGroup(
+            @Parameter(name = "count", description = "number of clusters") @RequestParam(name = "count", required = true) int count,
+            @Parameter(name = "maxParallel", description = "maximum number of clusters launched at the same time (default: t2.groups.max-parallel)") @RequestParam(name = "maxParallel", required = false) Integer maxParallel,
             @RequestHeader(name = "t2-token", required = false) String token,
-            @Parameter(name = "status", description = "status values for filtering") @RequestParam(name = "status", required = false) Set<Status> statusFilter) {
+            @RequestBody(required = true) String clusterDefinition) {
         checkToken(token);
-        return clusterService.getClusters(statusFilter);
+        return ResponseEntity.accepted().body(this.clusterGroupService.create(clusterDefinition(clusterDefinition), count, maxParallel));
+    }
+
+    @GetMapping("groups")
+    @ResponseBody
+    @Operation(summary = "Get cluster groups", description = "Gets the groups which still have clusters which are not archived")
+    public List<ClusterGroup> getClusterGroups(
+            @RequestHeader(name = "t2-token", required = false) String token) {
+        checkToken(token);
+        return this.clusterGroupService.getAll();
+    }
+
+    @GetMapping("groups/{groupId}")
+    @ResponseBody
+    @Operation(summary = "Get cluster group", description = "Gets the specified group with the current state of its clusters")
+    public ClusterGroup getClusterGroup(
+            @Parameter(name = "groupId", description = "ID (UUID) of the group") @PathVariable(name = "groupId", required = true) UUID groupId,
+            @RequestHeader(name = "t2-token", required = false) String token) {
+        checkToken(token);
+        return this.clusterGroupService.get(groupId).orElseThrow(() -> new ClusterGroupNotFoundException(String.format("No cluster group found with id '%s'.", groupId)));
+    }
+
+    @DeleteMapping("groups/{groupId}")
+    @Operation(summary = "Deletes a group of clusters", description = "Terminates the running clusters of the specified group as a bulk deletion, whose progress can be queried under deletions/{deletionId}")
+    public ResponseEntity<BulkDeletion> deleteClusterGroup(
+            @Parameter(name = "groupId", description = "ID (UUID) of the group") @PathVariable(name = "groupId", required = true) UUID groupId,
+            @RequestHeader(name = "t2-token", required = false) String token) {
+        checkToken(token);
+        ClusterGroup group = this.clusterGroupService.get(groupId).orElseThrow(() -> new ClusterGroupNotFoundException(String.format("No cluster group found with id '%s'.", groupId)));
+        return ResponseEntity.accepted().body(this.clusterGroupService.delete(group));
+    }
+
+    @GetMapping("stage-statistics")
+    @ResponseBody
+    @Operation(summary = "Get launch stage statistics", description = "Gets the durations of the launch stages per template and stage since T2 was started")
+    public List<StageStatistics.Entry> getStageStatistics(
+            @RequestHeader(name = "t2-token", required = false) String token) {
+        checkToken(token);
+        return this.stageStatistics.getEntries();
+    }
+
+    @GetMapping("ansible-statistics")
+    @ResponseBody
+    @Operation(summary = "Get Ansible role statistics", description = "Gets the durations of the Ansible roles and tasks of the launches per template since T2 was started")
+    public List<AnsibleProfileStatistics.Entry> getAnsibleStatistics(
+            @RequestHeader(name = "t2-token", required = false) String token) {
+        checkToken(token);
+        return this.ansibleProfileStatistics.getEntries();
     }
 
     @GetMapping("{id}")
@@ -70,6 +251,18 @@ public class ClusterController {
         return clusterService.getCluster(id).orElseThrow(() -> new ClusterNotFoundException(String.format("No cluster found with id '%s'.", id)));
     }
 
+    @GetMapping("{id}/events")
+    @ResponseBody
+    @Operation(summary = "Get cluster events", description = "Gets the events of the specified cluster, optionally only the ones after a given sequence number")
+    public List<ClusterEvent> getClusterEvents(
+            @Parameter(name = "id", description = "ID (UUID) of the cluster") @PathVariable(name = "id", required = true) UUID id,
+            @Parameter(name = "since", description = "sequence number of the last event known to the client, only later events are returned") @RequestParam(name = "since", required = false) Integer since,
+            @RequestHeader(name = "t2-token", required = false) String token) {
+        checkToken(token);
+        Cluster cluster = clusterService.getCluster(id).orElseThrow(() -> new ClusterNotFoundException(String.format("No cluster found with id '%s'.", id)));
+        return cluster.getEvents(since != null ? since + 1 : 0);
+    }
+
     @PostMapping(consumes = { "application/json", "application/yaml" })
     @ResponseBody
     @Operation(summary = "Creates a new cluster", description = "Creates a new cluster and starts it")
@@ -102,6 +295,26 @@ public class ClusterController {
         return clusterService.setClusterStatus(id, status);
     }
 
+    @PostMapping("{id}/skip-wait")
+    @ResponseBody
+    @Operation(summary = "Skip wait", description = "Ends the current wait of the launch of the specified cluster (e.g. waitAfterTerraform) early, the launch continues immediately")
+    public Cluster skipWait(
+            @Parameter(name = "id", description = "ID (UUID) of the cluster") @PathVariable(name = "id", required = true) UUID id,
+            @RequestHeader(name = "t2-token", required = false) String token) {
+        checkToken(token);
+        return clusterService.skipWait(id);
+    }
+
+    @PostMapping("{id}/cancel")
+    @ResponseBody
+    @Operation(summary = "Cancel launch", description = "Cancels the launch of the specified cluster: running Terraform and Ansible commands are killed and the cluster is cleaned up")
+    public Cluster cancelLaunch(
+            @Parameter(name = "id", description = "ID (UUID) of the cluster") @PathVariable(name = "id", required = true) UUID id,
+            @RequestHeader(name = "t2-token", required = false) String token) {
+        checkToken(token);
+        return clusterService.cancelLaunch(id);
+    }
+
     @GetMapping("{id}/cluster-info")
     @ResponseBody
     @Operation(summary = "read Stackable cluster information document", description = "Reads a text document which contains information about the cluster")
@@ -130,17 +343,172 @@ public class ClusterController {
                 .orElseThrow(() -> new ClusterNotFoundException(String.format("No client access file found for cluster with id '%s'.", id)));
     }
 
-    @GetMapping("{id}/log")
+    @GetMapping("{id}/plan")
+    @ResponseBody
+    @Operation(summary = "read Terraform plan", description = "Reads the Terraform plan which was applied to launch the cluster")
+    public String getPlan(
+            @Parameter(name = "id", description = "ID (UUID) of the cluster") @PathVariable(name = "id", required = true) UUID id,
+            @RequestHeader(name = "t2-token", required = false) String token) {
+        checkToken(token);
+        if (clusterService.getCluster(id).isEmpty()) {
+            throw new ClusterNotFoundException(String.format("No cluster found with id '%s'.", id));
+        }
+        return this.clusterService.getPlan(id)
+                .orElseThrow(() -> new ClusterNotFoundException(String.format("No Terraform plan found for cluster with id '%s'.", id)));
+    }
+
+    @GetMapping("{id}/profile")
+    @ResponseBody
+    @Operation(summary = "Get Ansible profile", description = "Gets the durations of the plays, roles, tasks and hosts of the Ansible runs of the specified cluster")
+    public AnsibleProfile getAnsibleProfile(
+            @Parameter(name = "id", description = "ID (UUID) of the cluster") @PathVariable(name = "id", required = true) UUID id,
+            @RequestHeader(name = "t2-token", required = false) String token) {
+        checkToken(token);
+        if (clusterService.getCluster(id).isEmpty()) {
+            throw new ClusterNotFoundException(String.format("No cluster found with id '%s'.", id));
+        }
+        return this.clusterService.getAnsibleProfile(id)
+                .orElseThrow(() -> new ClusterNotFoundException(String.format("No Ansible profile found for cluster with id '%s'.", id)));
+    }
+
+    @GetMapping(value = "{id}/log", params = "!follow")
+    @Operation(summary = "read logs", description = "Reads the logs for the given cluster, supports HTTP range requests")
+    public ResponseEntity<?> getLog(
+            @Parameter(name = "id", description = "ID (UUID) of the cluster") @PathVariable(name = "id", required = true) UUID id,
+            @Parameter(name = "offset", description = "offset (bytes) to start reading from") @RequestParam(name = "offset", required = false) Long offset,
+            @Parameter(name = "tail", description = "number of lines to read from the end of the log") @RequestParam(name = "tail", required = false) Integer tail,
+            @Parameter(name = "phase", description = "phase (e.g. terraform-apply, ansible-launch) to be read") @RequestParam(name = "phase", required = false) String phase,
+            @Parameter(name = "try", description = "run of the phase to be read (starting with 1), default is the latest run") @RequestParam(name = "try", required = false) Integer tryNumber,
+            @RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            @RequestHeader(name = HttpHeaders.RANGE, required = false) String range,
+            @RequestHeader(name = "t2-token", required = false) String token) {
+        checkToken(token);
+        if (clusterService.getCluster(id).isEmpty()) {
+            throw new ClusterNotFoundException(String.format("No cluster found with id '%s'.", id));
+        }
+
+        boolean gzip = range == null && acceptsGzip(acceptEncoding);
+
+        if (phase != null) {
+            LogRegionResource region = this.logService.phaseRegion(id, phase, tryNumber)
+                    .orElseThrow(() -> new ClusterNotFoundException(String.format("No log of phase '%s' found for cluster with id '%s'.", phase, id)));
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                    .contentType(LOG_MEDIA_TYPE)
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                    .header(NEXT_OFFSET_HEADER, Long.toString(region.getPosition() + region.getCount()));
+            Optional<Path> compressedSegment = gzip ? this.logService.compressedSegment(id, region) : Optional.empty();
+            if (compressedSegment.isPresent()) {
+                // completed phases are stored compressed, they are sent as they are
+                return response.header(HttpHeaders.CONTENT_ENCODING, GZIP_ENCODING).body(new FileSystemResource(compressedSegment.get()));
+            }
+            return response.body(region);
+        }
+
+        long size = this.logService.size(id);
+        if (offset == null && tail == null) {
+            // whole log (or the requested ranges)
+            if (size == 0) {
+                return ResponseEntity.ok().contentType(LOG_MEDIA_TYPE).body("");
+            }
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                    .contentType(LOG_MEDIA_TYPE)
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                    .header(NEXT_OFFSET_HEADER, Long.toString(size));
+            if (gzip) {
+                return response.header(HttpHeaders.CONTENT_ENCODING, GZIP_ENCODING).body(this.logService.compressed(id));
+            }
+            return response.body(this.logService.region(id, 0L));
+        }
+
+        long start = tail != null ? this.logService.tailOffset(id, tail) : offset;
+        LogRegionResource region = this.logService.region(id, start);
+        if (region.getCount() == 0) {
+            return ResponseEntity.ok().contentType(LOG_MEDIA_TYPE).header(NEXT_OFFSET_HEADER, Long.toString(region.getPosition())).body("");
+        }
+        return ResponseEntity.ok()
+                .contentType(LOG_MEDIA_TYPE)
+                .header(NEXT_OFFSET_HEADER, Long.toString(region.getPosition() + region.getCount()))
+                .body(region);
+    }
+
+    @GetMapping("{id}/log/index")
     @ResponseBody
-    @Operation(summary = "read logs", description = "Reads the logs for the given cluster")
-    public String getLog(
+    @Operation(summary = "read log index", description = "Lists the sections of the logs for the given cluster (phases, Ansible plays and roles) with their offsets")
+    public List<LogIndex.Section> getLogIndex(
             @Parameter(name = "id", description = "ID (UUID) of the cluster") @PathVariable(name = "id", required = true) UUID id,
             @RequestHeader(name = "t2-token", required = false) String token) {
         checkToken(token);
         if (clusterService.getCluster(id).isEmpty()) {
             throw new ClusterNotFoundException(String.format("No cluster found with id '%s'.", id));
         }
-        return this.clusterService.getLogs(id).orElse("");
+        return this.logService.sections(id);
+    }
+
+    @GetMapping(value = "{id}/log", params = "follow=true")
+    @Operation(summary = "follow logs", description = "Streams the logs for the given cluster as Server-Sent Events while T2 is working on the cluster")
+    public SseEmitter followLog(
+            @Parameter(name = "id", description = "ID (UUID) of the cluster") @PathVariable(name = "id", required = true) UUID id,
+            @Parameter(name = "offset", description = "offset (bytes) to start following from") @RequestParam(name = "offset", required = false) Long offset,
+            @Parameter(name = "tail", description = "number of lines to start following with") @RequestParam(name = "tail", required = false) Integer tail,
+            @RequestHeader(name = "Last-Event-ID", required = false) Long lastEventId,
+            @RequestHeader(name = "t2-token", required = false) String token) {
+        checkToken(token);
+        if (clusterService.getCluster(id).isEmpty()) {
+            throw new ClusterNotFoundException(String.format("No cluster found with id '%s'.", id));
+        }
+
+        long start = lastEventId != null ? lastEventId : tail != null ? this.logService.tailOffset(id, tail) : offset != null ? offset : 0L;
+        return this.logService.follow(id, start);
+    }
+
+    @GetMapping("{id}/stream")
+    @Operation(summary = "Stream cluster", description = "Streams the status changes and events of the given cluster as Server-Sent Events")
+    public SseEmitter streamCluster(
+            @Parameter(name = "id", description = "ID (UUID) of the cluster") @PathVariable(name = "id", required = true) UUID id,
+            @RequestHeader(name = "Last-Event-ID", required = false) Long lastEventId,
+            @RequestHeader(name = "t2-token", required = false) String token) {
+        checkToken(token);
+        Cluster cluster = clusterService.getCluster(id).orElseThrow(() -> new ClusterNotFoundException(String.format("No cluster found with id '%s'.", id)));
+        return this.clusterStreamService.subscribe(cluster, lastEventId);
+    }
+
+    /**
+     * Checks whether the given ETag is contained in an If-None-Match header.
+     * 
+     * @param ifNoneMatch value of the header (might be <code>null</code>)
+     * @param eTag        current ETag
+     * @return <code>true</code> if the client already has the current version
+     */
+    private static boolean matchesETag(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = StringUtils.removeStart(candidate.trim(), "W/");
+            if (value.equals("*") || value.equals(eTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks if the client accepts gzip encoded responses.
+     * 
+     * @param acceptEncoding value of the <code>Accept-Encoding</code> header
+     * @return <code>true</code> if gzip is accepted
+     */
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String encoding : acceptEncoding.split(",")) {
+            String[] parts = encoding.trim().split(";");
+            if (GZIP_ENCODING.equalsIgnoreCase(parts[0].trim())) {
+                return parts.length == 1 || !parts[1].trim().matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
     }
 
     /**
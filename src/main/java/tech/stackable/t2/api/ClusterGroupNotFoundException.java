@@ -0,0 +1,12 @@
+package tech.stackable.t2.api;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(code = HttpStatus.NOT_FOUND)
+public class ClusterGroupNotFoundException extends RuntimeException {
+
+    public ClusterGroupNotFoundException(String msg) {
+        super(msg);
+    }
+}
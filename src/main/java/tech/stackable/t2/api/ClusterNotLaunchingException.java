@@ -0,0 +1,12 @@
+package tech.stackable.t2.api;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(code = HttpStatus.CONFLICT)
+public class ClusterNotLaunchingException extends RuntimeException {
+
+    public ClusterNotLaunchingException(String msg) {
+        super(msg);
+    }
+}
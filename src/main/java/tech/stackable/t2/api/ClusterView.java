@@ -0,0 +1,17 @@
+package tech.stackable.t2.api;
+
+/**
+ * Views of clusters in lists.
+ */
+public enum ClusterView {
+
+    /**
+     * clusters including their events
+     */
+    FULL,
+
+    /**
+     * clusters without their events (see {@link tech.stackable.t2.domain.ClusterSummary})
+     */
+    SUMMARY
+}
@@ -0,0 +1,16 @@
+package tech.stackable.t2.api;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(code = HttpStatus.BAD_REQUEST)
+public class InvalidCursorException extends RuntimeException {
+
+    public InvalidCursorException(String msg) {
+        super(msg);
+    }
+
+    public InvalidCursorException(String msg, Throwable t) {
+        super(msg, t);
+    }
+}
@@ -0,0 +1,12 @@
+package tech.stackable.t2.api;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(code = HttpStatus.BAD_REQUEST)
+public class InvalidGroupSizeException extends RuntimeException {
+
+    public InvalidGroupSizeException(String msg) {
+        super(msg);
+    }
+}
@@ -0,0 +1,188 @@
+package tech.stackable.t2.cluster;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import tech.stackable.t2.api.ClusterNotRunningException;
+import tech.stackable.t2.api.InvalidSelectionException;
+import tech.stackable.t2.domain.BulkDeletion;
+import tech.stackable.t2.domain.BulkDeletionRequest;
+import tech.stackable.t2.domain.Cluster;
+import tech.stackable.t2.domain.Status;
+
+/**
+ * Terminates sets of clusters.
+ *
+ * The clusters of a bulk deletion are handed over to the {@link LaunchScheduler} in a sliding window: only the
+ * configured number of terminations per bulk deletion are queued or running at the same time, the next one is started
+ * whenever one has finished. So a bulk deletion of hundreds of clusters does not crowd out the launches queued behind
+ * it, and the provider APIs are not flooded.
+ */
+@Service
+public class BulkDeletionService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BulkDeletionService.class);
+
+    @Autowired
+    private ClusterService clusterService;
+
+    @Autowired
+    private ClusterRegistry clusterRegistry;
+
+    private final int maxParallel;
+
+    private final Duration retention;
+
+    private final Map<UUID, BulkDeletion> bulkDeletions = new ConcurrentHashMap<>();
+
+    public BulkDeletionService(
+            @Value("${t2.bulk-deletion.max-parallel:4}") int maxParallel,
+            @Value("${t2.bulk-deletion.retention-hours:24}") long retentionHours) {
+        this.maxParallel = Math.max(1, maxParallel);
+        this.retention = Duration.ofHours(retentionHours);
+    }
+
+    /**
+     * Starts the termination of the selected clusters.
+     *
+     * @param request selection of the clusters, either by ID or by status and creation time
+     * @return the bulk deletion, whose progress can be queried with {@link #get(UUID)}
+     * @throws InvalidSelectionException if the request selects no clusters at all
+     */
+    public BulkDeletion start(BulkDeletionRequest request) {
+        removeExpired();
+
+        List<BulkDeletion.Item> items = select(request);
+        BulkDeletion bulkDeletion = new BulkDeletion(UUID.randomUUID(), this.maxParallel, items);
+        this.bulkDeletions.put(bulkDeletion.getId(), bulkDeletion);
+        LOGGER.info("Bulk deletion {} of {} clusters started.", bulkDeletion.getId(), items.size());
+
+        Window window = new Window(bulkDeletion);
+        for (int i = 0; i < this.maxParallel; i++) {
+            window.next();
+        }
+        return bulkDeletion;
+    }
+
+    /**
+     * Get a bulk deletion by its ID.
+     *
+     * @param id ID of the bulk deletion
+     * @return bulk deletion, empty if unknown or expired
+     */
+    public Optional<BulkDeletion> get(UUID id) {
+        return Optional.ofNullable(this.bulkDeletions.get(id));
+    }
+
+    /**
+     * Get all bulk deletions which are running or have finished recently.
+     *
+     * @return bulk deletions, latest first
+     */
+    public List<BulkDeletion> getAll() {
+        return this.bulkDeletions.values().stream()
+                .sorted(Comparator.comparing(BulkDeletion::getDateTimeCreated).reversed())
+                .collect(Collectors.toList());
+    }
+
+    private List<BulkDeletion.Item> select(BulkDeletionRequest request) {
+        if (request.getIds() != null && !request.getIds().isEmpty()) {
+            return request.getIds().stream()
+                    .map(id -> new BulkDeletion.Item(id, this.clusterService.getCluster(id).orElse(null)))
+                    .collect(Collectors.toList());
+        }
+        if ((request.getStatus() == null || request.getStatus().isEmpty()) && request.getCreatedBefore() == null) {
+            throw new InvalidSelectionException("Clusters must be selected by ID, status or creation time.");
+        }
+        Set<Status> statuses = request.getStatus() == null || request.getStatus().isEmpty() ? Set.of(Status.RUNNING) : request.getStatus();
+        LocalDateTime createdBefore = request.getCreatedBefore();
+        return this.clusterRegistry.getClusters(statuses).stream()
+                .filter(cluster -> createdBefore == null || cluster.getDateTimeCreated().isBefore(createdBefore))
+                .sorted(Comparator.comparing(Cluster::getDateTimeCreated))
+                .map(cluster -> new BulkDeletion.Item(cluster.getId(), cluster))
+                .collect(Collectors.toList());
+    }
+
+    private void removeExpired() {
+        LocalDateTime threshold = LocalDateTime.now().minus(this.retention);
+        this.bulkDeletions.values().removeIf(bulkDeletion -> bulkDeletion.getDateTimeFinished() != null && bulkDeletion.getDateTimeFinished().isBefore(threshold));
+    }
+
+    /**
+     * Sliding window over the clusters of a bulk deletion
+     */
+    private class Window {
+
+        private final BulkDeletion bulkDeletion;
+
+        /**
+         * Clusters not started yet (guarded by <code>this</code>)
+         */
+        private final Iterator<BulkDeletion.Item> pending;
+
+        /**
+         * Number of terminations queued or running (guarded by <code>this</code>)
+         */
+        private int inFlight = 0;
+
+        private Window(BulkDeletion bulkDeletion) {
+            this.bulkDeletion = bulkDeletion;
+            this.pending = new ArrayList<>(bulkDeletion.getItems()).iterator();
+        }
+
+        /**
+         * Starts the termination of the next cluster which can be terminated.
+         */
+        private synchronized void next() {
+            while (this.pending.hasNext()) {
+                BulkDeletion.Item item = this.pending.next();
+                if (item.getCluster() == null) {
+                    item.setState(BulkDeletion.State.SKIPPED);
+                    item.setMessage(String.format("No cluster found with id '%s'.", item.getClusterId()));
+                    continue;
+                }
+                try {
+                    item.setState(BulkDeletion.State.TERMINATING);
+                    this.inFlight++;
+                    BulkDeletionService.this.clusterService.startTermination(item.getCluster()).whenComplete((result, e) -> {
+                        if (e != null) {
+                            item.setState(BulkDeletion.State.FAILED);
+                            item.setMessage(e.getMessage());
+                        }
+                        finished();
+                    });
+                    return;
+                } catch (ClusterNotRunningException e) {
+                    this.inFlight--;
+                    item.setState(BulkDeletion.State.SKIPPED);
+                    item.setMessage(e.getMessage());
+                }
+            }
+            if (this.inFlight == 0 && this.bulkDeletion.getDateTimeFinished() == null) {
+                this.bulkDeletion.setDateTimeFinished(LocalDateTime.now());
+                LOGGER.info("Bulk deletion {} finished: {}", this.bulkDeletion.getId(), this.bulkDeletion.getSummary());
+            }
+        }
+
+        private synchronized void finished() {
+            this.inFlight--;
+            next();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package tech.stackable.t2.cluster;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+
+import tech.stackable.t2.domain.Cluster;
+import tech.stackable.t2.files.FileService;
+
+/**
+ * On-disk archive of finished clusters, which are no longer kept in memory by the {@link ClusterRegistry}.
+ *
+ * Each archived cluster is stored in a file of its own (named by its UUID, in the format of the {@link RegistryCodec}),
+ * so a single cluster can be read without scanning the archive.
+ */
+@Component
+public class ClusterArchive {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ClusterArchive.class);
+
+    private static final String FILE_SUFFIX = ".json";
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    private final Path directory;
+
+    public ClusterArchive(FileService fileService) {
+        this.directory = fileService.stateDirectory("archive");
+    }
+
+    /**
+     * Stores the given cluster in the archive (replacing a previously archived version).
+     *
+     * @param cluster cluster
+     * @throws IOException if the cluster cannot be written
+     */
+    void store(Cluster cluster) throws IOException {
+        Path file = file(cluster.getId());
+        Path temporaryFile = this.directory.resolve(file.getFileName() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temporaryFile, StandardCharsets.UTF_8);
+                JsonGenerator generator = this.jsonFactory.createGenerator(writer)) {
+            RegistryCodec.writeCluster(generator, cluster);
+        }
+        Files.move(temporaryFile, file, ATOMIC_MOVE, REPLACE_EXISTING);
+    }
+
+    /**
+     * Reads an archived cluster.
+     *
+     * @param id ID of the cluster
+     * @return archived cluster, empty if the cluster is not archived
+     */
+    public Optional<Cluster> get(UUID id) {
+        try {
+            return Optional.of(read(file(id)));
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        } catch (IOException e) {
+            LOGGER.error("Archived cluster {} could not be read.", id, e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Reads all archived clusters.
+     *
+     * This reads the whole archive, it is meant for occasional queries only.
+     *
+     * @return archived clusters
+     */
+    public List<Cluster> getClusters() {
+        List<Cluster> clusters = new ArrayList<>();
+        try (Stream<Path> files = Files.list(this.directory)) {
+            for (Iterator<Path> iterator = files.iterator(); iterator.hasNext();) {
+                Path file = iterator.next();
+                if (!file.getFileName().toString().endsWith(FILE_SUFFIX)) {
+                    continue;
+                }
+                try {
+                    clusters.add(read(file));
+                } catch (IOException e) {
+                    LOGGER.error("Archived cluster {} could not be read.", file, e);
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.error("Cluster archive {} could not be listed.", this.directory, e);
+        }
+        return clusters;
+    }
+
+    private Cluster read(Path file) throws IOException {
+        try (JsonParser parser = this.jsonFactory.createParser(Files.newBufferedReader(file, StandardCharsets.UTF_8))) {
+            parser.nextToken();
+            return RegistryCodec.readCluster(parser);
+        }
+    }
+
+    private Path file(UUID id) {
+        return this.directory.resolve(id + FILE_SUFFIX);
+    }
+}
@@ -0,0 +1,387 @@
+package tech.stackable.t2.cluster;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.MessageFormat;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.annotation.PostConstruct;
+
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import tech.stackable.t2.api.InvalidGroupSizeException;
+import tech.stackable.t2.domain.BulkDeletion;
+import tech.stackable.t2.domain.BulkDeletionRequest;
+import tech.stackable.t2.domain.Cluster;
+import tech.stackable.t2.domain.ClusterGroup;
+import tech.stackable.t2.domain.Provider;
+import tech.stackable.t2.domain.Status;
+import tech.stackable.t2.files.FileService;
+import tech.stackable.t2.terraform.TerraformProviderCache;
+import tech.stackable.t2.terraform.TerraformResult;
+import tech.stackable.t2.terraform.TerraformService;
+
+/**
+ * Launches groups of identical clusters from one definition.
+ *
+ * The definition is checked and the template is materialized once for the whole group, the working directories of the
+ * clusters are copies of it. <code>terraform init</code> is run once (as a job of the {@link LaunchScheduler}) and its
+ * result is copied into the working directories, afterwards the launches are handed over to the scheduler in a sliding
+ * window: only the configured number of launches per group are queued or running at the same time.
+ *
+ * Groups are stored in <code>.t2/groups</code> and are kept until none of their clusters is registered anymore (i.e. all
+ * of them have been archived). A group is deleted as a unit with a {@link BulkDeletionService bulk deletion} of its
+ * clusters.
+ */
+@Service
+public class ClusterGroupService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ClusterGroupService.class);
+
+    private static final String FILE_SUFFIX = ".json";
+
+    @Autowired
+    private ClusterService clusterService;
+
+    @Autowired
+    private ClusterRegistry clusterRegistry;
+
+    @Autowired
+    private BulkDeletionService bulkDeletionService;
+
+    @Autowired
+    private FileService fileService;
+
+    @Autowired
+    private TerraformService terraformService;
+
+    @Autowired
+    private TerraformProviderCache terraformProviderCache;
+
+    @Autowired
+    private LaunchScheduler launchScheduler;
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    private final int maxParallel;
+
+    private final int maxSize;
+
+    private final Map<UUID, ClusterGroup> groups = new ConcurrentHashMap<>();
+
+    private Path directory;
+
+    public ClusterGroupService(
+            @Value("${t2.groups.max-parallel:4}") int maxParallel,
+            @Value("${t2.groups.max-size:50}") int maxSize) {
+        this.maxParallel = Math.max(1, maxParallel);
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Reads the stored groups and discards directories prepared for groups before T2 was stopped.
+     *
+     * Clusters of a group which were still queued are launched one by one by
+     * {@link ClusterService#reconcileClusters()}.
+     */
+    @PostConstruct
+    public void load() {
+        this.directory = this.fileService.stateDirectory("groups");
+        try (Stream<Path> files = Files.list(this.directory)) {
+            for (Iterator<Path> iterator = files.iterator(); iterator.hasNext();) {
+                Path file = iterator.next();
+                if (Files.isDirectory(file)) {
+                    FileUtils.deleteQuietly(file.toFile());
+                } else if (file.getFileName().toString().endsWith(FILE_SUFFIX)) {
+                    try {
+                        ClusterGroup group = read(file);
+                        this.groups.put(group.getId(), group);
+                    } catch (IOException | RuntimeException e) {
+                        LOGGER.error("Cluster group {} could not be read.", file, e);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.error("Cluster groups in {} could not be listed.", this.directory, e);
+        }
+        removeExpired();
+    }
+
+    /**
+     * Starts the creation of a group of identical clusters.
+     *
+     * @param clusterDefinition definition of the clusters
+     * @param size              number of clusters
+     * @param maxParallel       maximum number of clusters launched at the same time, the configured default if
+     *                          <code>null</code>
+     * @return the group, whose progress can be queried with {@link #get(UUID)}
+     * @throws InvalidGroupSizeException if the number of clusters is out of range
+     */
+    public ClusterGroup create(Map<String, Object> clusterDefinition, int size, Integer maxParallel) {
+        if (size < 1 || size > this.maxSize) {
+            throw new InvalidGroupSizeException(MessageFormat.format("The number of clusters in a group must be between 1 and {0}.", this.maxSize));
+        }
+        removeExpired();
+
+        String templateName = this.fileService.templateName(clusterDefinition);
+        // checked here, so that the launches of the group do not fail one by one
+        ClusterSpec.of(clusterDefinition);
+        UUID id = UUID.randomUUID();
+
+        Path preparedDirectory = this.directory.resolve(id.toString());
+        this.fileService.materializeTemplate(preparedDirectory, templateName);
+        this.fileService.writeClusterDefinition(preparedDirectory, clusterDefinition);
+        this.terraformProviderCache.prepareWorkingDirectory(templateName, preparedDirectory);
+
+        List<Cluster> clusters = new ArrayList<>();
+        try {
+            for (int i = 0; i < size; i++) {
+                Cluster cluster = this.clusterService.createQueuedCluster(templateName, preparedDirectory);
+                cluster.addEvent(MessageFormat.format("Cluster is #{0} of group {1}.", i + 1, id));
+                clusters.add(cluster);
+            }
+        } catch (RuntimeException e) {
+            // the clusters created so far are launched as a smaller group
+            LOGGER.error("Cluster group {} could only be created with {} of {} clusters.", id, clusters.size(), size, e);
+            if (clusters.isEmpty()) {
+                FileUtils.deleteQuietly(preparedDirectory.toFile());
+                throw e;
+            }
+        }
+
+        ClusterGroup group = new ClusterGroup(id, LocalDateTime.now(), templateName, maxParallel != null ? Math.max(1, maxParallel) : this.maxParallel, clusters);
+        this.groups.put(id, group);
+        try {
+            store(group);
+        } catch (IOException e) {
+            LOGGER.error("Cluster group {} could not be stored, it will be lost when T2 is restarted.", id, e);
+        }
+        LOGGER.info("Cluster group {} of {} clusters of template {} created.", id, clusters.size(), templateName);
+
+        this.launchScheduler.submit(Provider.ofTemplate(templateName), () -> initialize(group, preparedDirectory), queuePosition -> {
+        }).whenComplete((result, e) -> {
+            FileUtils.deleteQuietly(preparedDirectory.toFile());
+            Window window = new Window(group, clusterDefinition);
+            for (int i = 0; i < group.getMaxParallel(); i++) {
+                window.next();
+            }
+        });
+        return group;
+    }
+
+    /**
+     * Get a group by its ID.
+     *
+     * @param id ID of the group
+     * @return group, empty if unknown or expired
+     */
+    public Optional<ClusterGroup> get(UUID id) {
+        return Optional.ofNullable(this.groups.get(id));
+    }
+
+    /**
+     * Get all groups which still have registered clusters.
+     *
+     * @return groups, latest first
+     */
+    public List<ClusterGroup> getAll() {
+        removeExpired();
+        return this.groups.values().stream()
+                .sorted(Comparator.comparing(ClusterGroup::getDateTimeCreated).reversed())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Starts the termination of all clusters of the given group.
+     *
+     * @param group group
+     * @return the bulk deletion of the clusters
+     */
+    public BulkDeletion delete(ClusterGroup group) {
+        BulkDeletionRequest request = new BulkDeletionRequest();
+        request.setIds(new LinkedHashSet<>(group.getClusterIds()));
+        return this.bulkDeletionService.start(request);
+    }
+
+    /**
+     * Runs <code>terraform init</code> in the prepared directory and copies the result into the working directories of
+     * the clusters. If it fails, each cluster is initialized on its own when it is launched.
+     *
+     * @param group             group
+     * @param preparedDirectory directory prepared for the group
+     */
+    private void initialize(ClusterGroup group, Path preparedDirectory) {
+        long start = System.nanoTime();
+        Path logFile = preparedDirectory.resolve("cluster.log");
+        TerraformResult result = this.terraformService.init(preparedDirectory, logFile);
+        if (result != TerraformResult.SUCCESS) {
+            LOGGER.warn("Terraform init failed for cluster group {} with result {}, see {}.", group.getId(), result, logFile);
+            group.getMembers().forEach(cluster -> cluster.addEvent("Terraform init of the group failed, the working directory is initialized on launch."));
+            return;
+        }
+        String took = ClusterService.elapsedSince(start);
+        for (Cluster cluster : group.getMembers()) {
+            Path terraformDirectory = this.fileService.workingDirectory(cluster.getId()).resolve(".terraform");
+            try {
+                this.fileService.copyDirectory(preparedDirectory.resolve(".terraform"), terraformDirectory);
+                Files.copy(preparedDirectory.resolve(TerraformService.LOCK_FILE), terraformDirectory.resolveSibling(TerraformService.LOCK_FILE), REPLACE_EXISTING);
+                cluster.addEvent(MessageFormat.format("Terraform init of the group successful (took {0}).", took));
+            } catch (IOException | RuntimeException e) {
+                LOGGER.warn("Terraform init of cluster group {} could not be copied to cluster {}.", group.getId(), cluster.getId(), e);
+                FileUtils.deleteQuietly(terraformDirectory.toFile());
+                cluster.addEvent("Terraform init of the group could not be copied, the working directory is initialized on launch.");
+            }
+        }
+    }
+
+    private void removeExpired() {
+        this.groups.values().removeIf(group -> {
+            boolean expired = group.getClusterIds().stream().noneMatch(id -> this.clusterRegistry.get(id).isPresent());
+            if (expired) {
+                FileUtils.deleteQuietly(file(group.getId()).toFile());
+            }
+            return expired;
+        });
+    }
+
+    private void store(ClusterGroup group) throws IOException {
+        Path file = file(group.getId());
+        Path temporaryFile = this.directory.resolve(file.getFileName() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temporaryFile, StandardCharsets.UTF_8);
+                JsonGenerator generator = this.jsonFactory.createGenerator(writer)) {
+            generator.writeStartObject();
+            generator.writeStringField("id", group.getId().toString());
+            generator.writeStringField("created", group.getDateTimeCreated().toString());
+            generator.writeStringField("template", group.getTemplate());
+            generator.writeNumberField("maxParallel", group.getMaxParallel());
+            generator.writeArrayFieldStart("clusters");
+            for (UUID clusterId : group.getClusterIds()) {
+                generator.writeString(clusterId.toString());
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+        Files.move(temporaryFile, file, ATOMIC_MOVE, REPLACE_EXISTING);
+    }
+
+    private ClusterGroup read(Path file) throws IOException {
+        UUID id = null;
+        LocalDateTime created = null;
+        String template = null;
+        int maxParallel = this.maxParallel;
+        List<Cluster> clusters = new ArrayList<>();
+        try (JsonParser parser = this.jsonFactory.createParser(Files.newBufferedReader(file, StandardCharsets.UTF_8))) {
+            parser.nextToken();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                switch (field) {
+                case "id":
+                    id = UUID.fromString(parser.getText());
+                    break;
+                case "created":
+                    created = LocalDateTime.parse(parser.getText());
+                    break;
+                case "template":
+                    template = parser.getText();
+                    break;
+                case "maxParallel":
+                    maxParallel = parser.getIntValue();
+                    break;
+                case "clusters":
+                    while (parser.nextToken() != JsonToken.END_ARRAY) {
+                        // clusters which are neither registered nor archived anymore are left out
+                        this.clusterService.getCluster(UUID.fromString(parser.getText())).ifPresent(clusters::add);
+                    }
+                    break;
+                default:
+                    parser.skipChildren();
+                }
+            }
+        }
+        return new ClusterGroup(id, created, template, maxParallel, clusters);
+    }
+
+    private Path file(UUID id) {
+        return this.directory.resolve(id + FILE_SUFFIX);
+    }
+
+    /**
+     * Sliding window over the launches of a group
+     */
+    private class Window {
+
+        private final ClusterGroup group;
+
+        private final Map<String, Object> clusterDefinition;
+
+        /**
+         * Clusters not started yet (guarded by <code>this</code>)
+         */
+        private final Iterator<Cluster> pending;
+
+        /**
+         * Number of launches queued or running (guarded by <code>this</code>)
+         */
+        private int inFlight = 0;
+
+        private boolean launched = false;
+
+        private Window(ClusterGroup group, Map<String, Object> clusterDefinition) {
+            this.group = group;
+            this.clusterDefinition = clusterDefinition;
+            this.pending = new ArrayList<>(group.getMembers()).iterator();
+        }
+
+        /**
+         * Starts the launch of the next cluster which is still queued.
+         */
+        private synchronized void next() {
+            while (this.pending.hasNext()) {
+                Cluster cluster = this.pending.next();
+                if (cluster.getStatus() != Status.QUEUED) {
+                    continue;
+                }
+                this.inFlight++;
+                ClusterGroupService.this.clusterService.startLaunch(cluster, this.clusterDefinition).whenComplete((result, e) -> finished());
+                return;
+            }
+            if (this.inFlight == 0 && !this.launched) {
+                this.launched = true;
+                LOGGER.info("Cluster group {} launched: {}", this.group.getId(), this.group.getSummary());
+            }
+        }
+
+        private synchronized void finished() {
+            this.inFlight--;
+            next();
+        }
+    }
+}
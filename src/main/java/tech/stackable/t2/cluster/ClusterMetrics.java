@@ -0,0 +1,48 @@
+package tech.stackable.t2.cluster;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import tech.stackable.t2.domain.Provider;
+import tech.stackable.t2.domain.Status;
+
+/**
+ * Gauges of the clusters and the launch queue, read from the registry and the scheduler when they are scraped.
+ */
+@Component
+public class ClusterMetrics implements MeterBinder {
+
+    @Autowired
+    private ClusterRegistry clusterRegistry;
+
+    @Autowired
+    private LaunchScheduler launchScheduler;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (Status status : Status.values()) {
+            Gauge.builder("t2.clusters", this.clusterRegistry, clusters -> clusters.countClusters(status))
+                    .description("Number of clusters per status (archived clusters are not counted)")
+                    .tag("status", status.name())
+                    .register(registry);
+        }
+        Gauge.builder("t2.scheduler.queued", this.launchScheduler, LaunchScheduler::getQueueLength)
+                .description("Number of jobs (launches, cleanups, terminations) waiting for a free slot")
+                .register(registry);
+        Gauge.builder("t2.scheduler.running", this.launchScheduler, LaunchScheduler::getRunningJobs)
+                .description("Number of running jobs")
+                .register(registry);
+        Gauge.builder("t2.scheduler.slots", this.launchScheduler, LaunchScheduler::getMaxConcurrentJobs)
+                .description("Maximum number of running jobs")
+                .register(registry);
+        for (Provider provider : Provider.values()) {
+            Gauge.builder("t2.scheduler.provider.running", this.launchScheduler, scheduler -> scheduler.getRunningJobs(provider))
+                    .description("Number of running jobs per provider")
+                    .tag("provider", provider.getKey())
+                    .register(registry);
+        }
+    }
+}
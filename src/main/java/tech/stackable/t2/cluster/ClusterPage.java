@@ -0,0 +1,30 @@
+package tech.stackable.t2.cluster;
+
+import java.util.List;
+
+import tech.stackable.t2.domain.Cluster;
+
+/**
+ * A page of a (sorted) list of clusters.
+ */
+public class ClusterPage {
+
+    private final List<Cluster> clusters;
+    private final String nextCursor;
+
+    ClusterPage(List<Cluster> clusters, String nextCursor) {
+        this.clusters = clusters;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<Cluster> getClusters() {
+        return clusters;
+    }
+
+    /**
+     * @return cursor pointing behind the last cluster of this page, <code>null</code> if this is the last page
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
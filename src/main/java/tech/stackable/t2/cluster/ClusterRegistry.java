@@ -0,0 +1,592 @@
+package tech.stackable.t2.cluster;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.SerializedString;
+
+import tech.stackable.t2.domain.Cluster;
+import tech.stackable.t2.domain.ClusterEvent;
+import tech.stackable.t2.domain.ClusterListener;
+import tech.stackable.t2.domain.Status;
+import tech.stackable.t2.files.FileService;
+
+/**
+ * Persistent registry of all clusters (by UUID).
+ *
+ * All changes of registered clusters are appended to a journal in the workspace directory. The journal is compacted
+ * into a snapshot periodically. On startup, the registry is restored from the snapshot and the journal.
+ *
+ * Replaying is idempotent: Entries of the journal may already be contained in the snapshot (events are identified by
+ * their position, status changes are replayed in order), so a crash at any point of a compaction loses nothing.
+ *
+ * The clusters are indexed by their status. Terminated clusters are moved to the {@link ClusterArchive} once their
+ * last change is older than the configured retention, so the registry only grows with the clusters in use.
+ */
+@Component
+public class ClusterRegistry implements ClusterListener {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ClusterRegistry.class);
+
+    private static final String SNAPSHOT_FILE = "snapshot.json";
+    private static final String JOURNAL_FILE = "journal.jsonl";
+    private static final String ROTATED_JOURNAL_FILE = "journal.rotated.jsonl";
+
+    private static final String ENTRY_CLUSTER = "CLUSTER";
+    private static final String ENTRY_STATUS = "STATUS";
+    private static final String ENTRY_EVENT = "EVENT";
+    private static final String ENTRY_STAGE = "STAGE";
+    private static final String ENTRY_ARCHIVED = "ARCHIVED";
+
+    /**
+     * Statuses of clusters which can be archived
+     */
+    private static final Set<Status> ARCHIVABLE_STATUSES = EnumSet.of(Status.TERMINATED, Status.TERMINATED_MANUALLY);
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    private final Path directory;
+
+    private final int compactionThreshold;
+
+    private final ClusterArchive archive;
+
+    private final Duration retention;
+
+    /**
+     * All clusters by UUID.
+     */
+    private final Map<UUID, Cluster> clusters = new ConcurrentHashMap<>();
+
+    /**
+     * Clusters by status. A cluster is added to the set of its new status before it is removed from the set of its
+     * previous status, so readers have to check the status of the clusters they find.
+     */
+    private final Map<Status, Set<Cluster>> clustersByStatus = new EnumMap<>(Status.class);
+
+    /**
+     * Listeners for the changes of all clusters (besides the registry itself).
+     */
+    private final List<ClusterListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Version of the registry, which is increased with every change of a cluster. It starts with the current time, so
+     * that versions handed out before a restart are not reused.
+     */
+    private final AtomicLong version = new AtomicLong(System.currentTimeMillis());
+
+    private final Object journalLock = new Object();
+
+    private final Object compactionLock = new Object();
+
+    /**
+     * Writer of the current journal (guarded by {@link #journalLock}).
+     */
+    private Writer journal;
+
+    /**
+     * Number of entries in the current journal (guarded by {@link #journalLock}).
+     */
+    private int journalEntries = 0;
+
+    public ClusterRegistry(
+            FileService fileService,
+            ClusterArchive archive,
+            @Value("${t2.registry.compaction-threshold:10000}") int compactionThreshold,
+            @Value("${t2.registry.archive.retention-hours:168}") long retentionHours) {
+        this.directory = fileService.stateDirectory("registry");
+        this.archive = archive;
+        this.compactionThreshold = compactionThreshold;
+        this.retention = Duration.ofHours(retentionHours);
+        for (Status status : Status.values()) {
+            this.clustersByStatus.put(status, ConcurrentHashMap.newKeySet());
+        }
+    }
+
+    /**
+     * Restores the registry from snapshot and journal.
+     *
+     * @throws IOException if the files of the registry cannot be read
+     */
+    @PostConstruct
+    public void load() throws IOException {
+        long start = System.nanoTime();
+
+        Path snapshot = this.directory.resolve(SNAPSHOT_FILE);
+        if (Files.exists(snapshot)) {
+            try (JsonParser parser = this.jsonFactory.createParser(snapshot.toFile())) {
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    Cluster cluster = RegistryCodec.readCluster(parser);
+                    this.clusters.put(cluster.getId(), cluster);
+                }
+            }
+        }
+
+        int replayedEntries = replay(this.directory.resolve(ROTATED_JOURNAL_FILE)) + replay(this.directory.resolve(JOURNAL_FILE));
+
+        for (Cluster cluster : this.clusters.values()) {
+            cluster.addListener(this);
+            index(cluster, cluster.getStatus());
+        }
+
+        LOGGER.info("Cluster registry restored {} clusters ({} journal entries) in {} ms.", this.clusters.size(), replayedEntries, (System.nanoTime() - start) / 1_000_000);
+
+        synchronized (this.journalLock) {
+            this.journal = openJournal();
+        }
+
+        // A fresh snapshot also gets rid of a journal which might end with a partially written entry
+        if (replayedEntries > 0) {
+            compact();
+        }
+    }
+
+    /**
+     * Registers a listener which is informed about the changes of all registered clusters, including clusters which
+     * are added later on. The listener gets the status of a cluster when the cluster is added.
+     *
+     * @param listener listener
+     */
+    public void addListener(ClusterListener listener) {
+        this.listeners.add(listener);
+        this.clusters.values().forEach(cluster -> cluster.addListener(listener));
+    }
+
+    /**
+     * Adds a new cluster to the registry.
+     *
+     * The cluster must be added before it is shared with other threads, all further changes are persisted.
+     *
+     * @param cluster cluster to be added
+     */
+    public void add(Cluster cluster) {
+        cluster.addListener(this);
+        this.clusters.put(cluster.getId(), cluster);
+        index(cluster, cluster.getStatus());
+        this.version.incrementAndGet();
+        // registered after the cluster has been put, so that a concurrent addListener(...) cannot miss it
+        for (ClusterListener listener : this.listeners) {
+            cluster.addListener(listener);
+            // the cluster is not shared yet, so its status cannot change concurrently
+            listener.statusChanged(cluster, cluster.getStatus());
+        }
+        appendToJournal(generator -> {
+            generator.writeStringField("type", ENTRY_CLUSTER);
+            generator.writeFieldName("cluster");
+            RegistryCodec.writeCluster(generator, cluster);
+        });
+    }
+
+    /**
+     * Get a cluster by its ID.
+     *
+     * @param id ID of the cluster
+     * @return cluster with the given ID
+     */
+    public Optional<Cluster> get(UUID id) {
+        return Optional.ofNullable(this.clusters.get(id));
+    }
+
+    /**
+     * Get list of all clusters.
+     *
+     * @return list of all clusters
+     */
+    public List<Cluster> getClusters() {
+        return new ArrayList<>(this.clusters.values());
+    }
+
+    /**
+     * Counts the clusters with the given status, using the status index.
+     *
+     * @param status status
+     * @return number of clusters with the given status
+     */
+    public long countClusters(Status status) {
+        return this.clustersByStatus.get(status).stream().filter(cluster -> cluster.getStatus() == status).count();
+    }
+
+    /**
+     * Get list of clusters filtered by status, using the status index.
+     *
+     * @param statusFilter statuses to be included, all clusters if empty or <code>null</code>
+     * @return list of the clusters with one of the given statuses
+     */
+    public List<Cluster> getClusters(Set<Status> statusFilter) {
+        if (statusFilter == null || statusFilter.isEmpty()) {
+            return getClusters();
+        }
+        Set<Cluster> matches = new LinkedHashSet<>();
+        for (Status status : statusFilter) {
+            for (Cluster cluster : this.clustersByStatus.get(status)) {
+                if (statusFilter.contains(cluster.getStatus())) {
+                    matches.add(cluster);
+                }
+            }
+        }
+        return new ArrayList<>(matches);
+    }
+
+    /**
+     * Current version of the registry.
+     *
+     * The version changes whenever a cluster is added or changed. If it is read before the clusters, the clusters are
+     * at least as recent as the version.
+     *
+     * @return version
+     */
+    public long getVersion() {
+        return this.version.get();
+    }
+
+    /**
+     * Marks the registry as changed for changes of a cluster which are not persisted (e.g. its position in the launch
+     * queue, its current wait or the timing of its stages).
+     */
+    public void markChanged() {
+        this.version.incrementAndGet();
+    }
+
+    @Override
+    public void statusChanged(Cluster cluster, Status status) {
+        index(cluster, status);
+        this.version.incrementAndGet();
+        appendToJournal(generator -> {
+            generator.writeStringField("type", ENTRY_STATUS);
+            generator.writeStringField("id", cluster.getId().toString());
+            generator.writeStringField("status", status.name());
+        });
+    }
+
+    @Override
+    public void eventAdded(Cluster cluster, ClusterEvent event, int index) {
+        this.version.incrementAndGet();
+        appendToJournal(generator -> {
+            generator.writeStringField("type", ENTRY_EVENT);
+            generator.writeStringField("id", cluster.getId().toString());
+            generator.writeNumberField("index", index);
+            generator.writeFieldName("event");
+            RegistryCodec.writeEvent(generator, event);
+        });
+    }
+
+    @Override
+    public void launchStageCompleted(Cluster cluster, String stage, LocalDateTime completedAt) {
+        this.version.incrementAndGet();
+        appendToJournal(generator -> {
+            generator.writeStringField("type", ENTRY_STAGE);
+            generator.writeStringField("id", cluster.getId().toString());
+            generator.writeStringField("stage", stage);
+            generator.writeNumberField("at", RegistryCodec.toNanos(completedAt));
+        });
+    }
+
+    /**
+     * Moves terminated clusters whose last change is older than the retention to the archive.
+     *
+     * A cluster is written to the archive before its removal is journaled, so a crash in between leaves it in the
+     * registry (and it is archived again by the next run).
+     */
+    @Scheduled(initialDelayString = "${t2.registry.archive.interval-ms:3600000}", fixedDelayString = "${t2.registry.archive.interval-ms:3600000}")
+    public void archiveFinishedClusters() {
+        LocalDateTime threshold = LocalDateTime.now().minus(this.retention);
+        int archived = 0;
+        for (Cluster cluster : getClusters(ARCHIVABLE_STATUSES)) {
+            LocalDateTime lastChangedAt = Optional.ofNullable(cluster.getLastChangedAt()).orElse(cluster.getDateTimeCreated());
+            if (lastChangedAt.isAfter(threshold)) {
+                continue;
+            }
+            try {
+                this.archive.store(cluster);
+            } catch (IOException e) {
+                LOGGER.error("Cluster {} could not be archived.", cluster.getId(), e);
+                continue;
+            }
+            appendToJournal(generator -> {
+                generator.writeStringField("type", ENTRY_ARCHIVED);
+                generator.writeStringField("id", cluster.getId().toString());
+            });
+            this.clusters.remove(cluster.getId());
+            this.clustersByStatus.values().forEach(clusters -> clusters.remove(cluster));
+            this.version.incrementAndGet();
+            archived++;
+        }
+        if (archived > 0) {
+            LOGGER.info("Archived {} terminated clusters.", archived);
+        }
+    }
+
+    /**
+     * Compacts the journal into a new snapshot if the journal has grown large enough.
+     */
+    @Scheduled(fixedDelayString = "${t2.registry.compaction-interval-ms:60000}")
+    public void compactIfNeeded() {
+        synchronized (this.journalLock) {
+            if (this.journalEntries < this.compactionThreshold) {
+                return;
+            }
+        }
+        compact();
+    }
+
+    /**
+     * Writes a final snapshot on shutdown.
+     */
+    @PreDestroy
+    public void shutdown() {
+        compact();
+        synchronized (this.journalLock) {
+            closeJournal();
+        }
+    }
+
+    /**
+     * Writes a snapshot of all clusters and discards the journal entries which are contained in it.
+     *
+     * The journal is rotated before the clusters are read, so every change which might be missing in the snapshot is
+     * still contained in the new journal.
+     */
+    void compact() {
+        synchronized (this.compactionLock) {
+            Path journalFile = this.directory.resolve(JOURNAL_FILE);
+            Path rotatedJournalFile = this.directory.resolve(ROTATED_JOURNAL_FILE);
+            try {
+                synchronized (this.journalLock) {
+                    closeJournal();
+                    if (Files.exists(rotatedJournalFile)) {
+                        // A previous compaction failed, the rotated journal must be kept until a snapshot was written.
+                        try (OutputStream out = Files.newOutputStream(rotatedJournalFile, APPEND)) {
+                            Files.copy(journalFile, out);
+                        }
+                        Files.delete(journalFile);
+                    } else if (Files.exists(journalFile)) {
+                        Files.move(journalFile, rotatedJournalFile, ATOMIC_MOVE);
+                    }
+                    this.journal = openJournal();
+                    this.journalEntries = 0;
+                }
+
+                Path snapshotFile = this.directory.resolve(SNAPSHOT_FILE);
+                Path temporaryFile = this.directory.resolve(SNAPSHOT_FILE + ".tmp");
+                try (FileChannel channel = FileChannel.open(temporaryFile, CREATE, WRITE);
+                        Writer writer = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8));
+                        JsonGenerator generator = this.jsonFactory.createGenerator(writer)) {
+                    channel.truncate(0);
+                    generator.setRootValueSeparator(new SerializedString("\n"));
+                    for (Cluster cluster : getClusters()) {
+                        RegistryCodec.writeCluster(generator, cluster);
+                    }
+                    generator.flush();
+                    writer.flush();
+                    channel.force(true);
+                }
+                Files.move(temporaryFile, snapshotFile, ATOMIC_MOVE, REPLACE_EXISTING);
+                Files.deleteIfExists(rotatedJournalFile);
+            } catch (IOException e) {
+                LOGGER.error("Compaction of the cluster registry failed.", e);
+            }
+        }
+    }
+
+    /**
+     * Replays the given journal file.
+     *
+     * @param journalFile journal file
+     * @return number of replayed entries
+     * @throws IOException if the journal cannot be read
+     */
+    private int replay(Path journalFile) throws IOException {
+        if (!Files.exists(journalFile)) {
+            return 0;
+        }
+
+        int entries = 0;
+        try (JsonParser parser = this.jsonFactory.createParser(journalFile.toFile())) {
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                applyEntry(parser);
+                entries++;
+            }
+        } catch (IOException | RuntimeException e) {
+            // The last entry might have been written partially when T2 stopped.
+            LOGGER.warn("Replay of {} stopped after {} entries at an unreadable entry.", journalFile, entries, e);
+        }
+        return entries;
+    }
+
+    /**
+     * Reads a journal entry and applies it to the (not yet shared) clusters.
+     *
+     * @param parser JSON parser pointing at the start of the entry
+     * @throws IOException on read errors
+     */
+    private void applyEntry(JsonParser parser) throws IOException {
+        String type = null;
+        Cluster cluster = null;
+        Status status = null;
+        int index = -1;
+        ClusterEvent event = null;
+        String stage = null;
+        long stageNanos = 0;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            switch (field) {
+            case "type":
+                type = parser.getText();
+                break;
+            case "id":
+                cluster = this.clusters.get(UUID.fromString(parser.getText()));
+                break;
+            case "cluster":
+                Cluster restored = RegistryCodec.readCluster(parser);
+                cluster = this.clusters.putIfAbsent(restored.getId(), restored);
+                break;
+            case "status":
+                status = Status.valueOf(parser.getText());
+                break;
+            case "index":
+                index = parser.getIntValue();
+                break;
+            case "stage":
+                stage = parser.getText();
+                break;
+            case "at":
+                stageNanos = parser.getLongValue();
+                break;
+            case "event":
+                // the ID is always written before the event
+                if (cluster == null) {
+                    parser.skipChildren();
+                } else {
+                    event = RegistryCodec.readEvent(parser, RegistryCodec.toNanos(cluster.getDateTimeCreated()));
+                }
+                break;
+            default:
+                parser.skipChildren();
+            }
+        }
+
+        if (cluster == null) {
+            return;
+        }
+        if (ENTRY_STATUS.equals(type)) {
+            cluster.setStatus(status);
+        } else if (ENTRY_STAGE.equals(type) && stage != null) {
+            cluster.restoreLaunchStage(stage, RegistryCodec.fromNanos(stageNanos));
+        } else if (ENTRY_ARCHIVED.equals(type)) {
+            this.clusters.remove(cluster.getId());
+        } else if (ENTRY_EVENT.equals(type) && event != null && cluster.getEvents(index).isEmpty()) {
+            cluster.restoreEvent(event);
+        }
+    }
+
+    /**
+     * Appends an entry to the journal.
+     *
+     * Errors are logged but not propagated, the clusters in memory remain the primary source of truth.
+     *
+     * @param fields writes the fields of the entry
+     */
+    private void appendToJournal(EntryWriter fields) {
+        try {
+            StringWriter line = new StringWriter(128);
+            try (JsonGenerator generator = this.jsonFactory.createGenerator(line)) {
+                generator.writeStartObject();
+                fields.write(generator);
+                generator.writeEndObject();
+            }
+            line.write('\n');
+            synchronized (this.journalLock) {
+                if (this.journal == null) {
+                    this.journal = openJournal();
+                }
+                this.journal.write(line.toString());
+                this.journal.flush();
+                this.journalEntries++;
+            }
+        } catch (IOException e) {
+            LOGGER.error("Entry could not be written to the cluster registry journal.", e);
+        }
+    }
+
+    /**
+     * Updates the status index for the given cluster.
+     *
+     * @param cluster cluster
+     * @param status  current status of the cluster
+     */
+    private void index(Cluster cluster, Status status) {
+        this.clustersByStatus.get(status).add(cluster);
+        for (Map.Entry<Status, Set<Cluster>> entry : this.clustersByStatus.entrySet()) {
+            if (entry.getKey() != status) {
+                entry.getValue().remove(cluster);
+            }
+        }
+    }
+
+    private Writer openJournal() throws IOException {
+        return Files.newBufferedWriter(this.directory.resolve(JOURNAL_FILE), StandardCharsets.UTF_8, CREATE, APPEND);
+    }
+
+    private void closeJournal() {
+        if (this.journal == null) {
+            return;
+        }
+        try {
+            this.journal.close();
+        } catch (IOException e) {
+            LOGGER.warn("Cluster registry journal could not be closed.", e);
+        }
+        this.journal = null;
+    }
+
+    /**
+     * Writes the fields of a journal entry
+     */
+    @FunctionalInterface
+    private interface EntryWriter {
+        void write(JsonGenerator generator) throws IOException;
+    }
+}
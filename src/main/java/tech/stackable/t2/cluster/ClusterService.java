@@ -1,37 +1,69 @@
 package tech.stackable.t2.cluster;
 
-import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.text.MessageFormat;
-import java.util.HashMap;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Random;
 import java.util.Set;
 import java.util.UUID;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
-import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Repository;
 import org.springframework.util.CollectionUtils;
 
-import tech.stackable.t2.ansible.AnsibleResult;
+import tech.stackable.t2.ansible.AnsibleProfile;
+import tech.stackable.t2.ansible.AnsibleProfileStatistics;
 import tech.stackable.t2.ansible.AnsibleService;
 import tech.stackable.t2.api.ClusterNotFoundException;
+import tech.stackable.t2.api.ClusterNotLaunchingException;
 import tech.stackable.t2.api.ClusterNotRunningException;
 import tech.stackable.t2.api.IllegalClusterStateTransitionException;
+import tech.stackable.t2.api.ClusterNotWaitingException;
+import tech.stackable.t2.api.InvalidCursorException;
+import tech.stackable.t2.api.MalformedClusterDefinitionException;
 import tech.stackable.t2.domain.Cluster;
+import tech.stackable.t2.domain.ClusterSort;
+import tech.stackable.t2.domain.Provider;
+import tech.stackable.t2.domain.StageTiming;
 import tech.stackable.t2.domain.Status;
 import tech.stackable.t2.files.FileService;
-import tech.stackable.t2.terraform.TerraformResult;
+import tech.stackable.t2.pipeline.InvalidPipelineException;
+import tech.stackable.t2.pipeline.Pipeline;
+import tech.stackable.t2.pipeline.PipelineService;
+import tech.stackable.t2.pipeline.StageDefinition;
+import tech.stackable.t2.pipeline.StageStatistics;
+import tech.stackable.t2.pipeline.StageType;
+import tech.stackable.t2.process.ProcessOutcome;
+import tech.stackable.t2.process.ProcessService;
+import tech.stackable.t2.retry.FailureClass;
+import tech.stackable.t2.retry.FailureClassifier;
+import tech.stackable.t2.retry.RetryEngine;
+import tech.stackable.t2.retry.RetryListener;
+import tech.stackable.t2.retry.RetryPolicy;
+import tech.stackable.t2.retry.RetryResult;
+import tech.stackable.t2.terraform.TerraformProviderCache;
 import tech.stackable.t2.terraform.TerraformService;
-import tech.stackable.t2.util.RetryUtil;
 
 /**
  * Creation and Termination of clusters
@@ -41,21 +73,69 @@ public class ClusterService {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ClusterService.class);
 
+    private static final String CURSOR_SEPARATOR = "/";
+
     @Autowired
     private FileService fileService;
 
     @Autowired
     private TerraformService terraformService;
 
+    @Autowired
+    private TerraformProviderCache terraformProviderCache;
+
     @Autowired
     private AnsibleService ansibleService;
 
+    @Autowired
+    private LaunchScheduler launchScheduler;
+
+    @Autowired
+    private WorkspacePool workspacePool;
+
+    @Autowired
+    private ClusterArchive clusterArchive;
+
+    @Autowired
+    private RetryEngine retryEngine;
+
+    @Autowired
+    private WaitService waitService;
+
+    @Autowired
+    private PipelineService pipelineService;
+
+    @Autowired
+    private StageStatistics stageStatistics;
+
+    @Autowired
+    private ProcessService processService;
+
+    @Autowired
+    private AnsibleProfileStatistics ansibleProfileStatistics;
+
     /**
      * This is the main storage for all clusters (by UUID).
-     * 
-     * Currently, this only exists in memory.
      */
-    private Map<UUID, Cluster> clusters = new HashMap<>();
+    @Autowired
+    private ClusterRegistry clusterRegistry;
+
+    /**
+     * Maximum number of tries of each stage of a launch
+     */
+    private final int launchTries;
+
+    /**
+     * Maximum number of tries of each stage of a termination
+     */
+    private final int terminationTries;
+
+    public ClusterService(
+            @Value("${t2.retry.launch-tries:3}") int launchTries,
+            @Value("${t2.retry.termination-tries:3}") int terminationTries) {
+        this.launchTries = launchTries;
+        this.terminationTries = terminationTries;
+    }
 
     /**
      * Get list of all clusters.
@@ -73,19 +153,71 @@ public class ClusterService {
      * @return list of clusters, filtered by status
      */
     public List<Cluster> getClusters(Set<Status> statusFilter) {
-        return this.clusters.values().stream()
-                .filter(cluster -> (CollectionUtils.isEmpty(statusFilter) || statusFilter.contains(cluster.getStatus())))
+        return this.clusterRegistry.getClusters(statusFilter);
+    }
+
+    /**
+     * Current version of the clusters, which changes whenever a cluster is added or changed.
+     * 
+     * @return version
+     */
+    public long getVersion() {
+        return this.clusterRegistry.getVersion();
+    }
+
+    /**
+     * Get a page of the sorted list of clusters.
+     * 
+     * Clusters with the same sort key are ordered by their ID. The cursor identifies the position behind the last
+     * cluster of the previous page, so pages do not overlap or skip clusters when clusters are added in between. When
+     * sorted by the last change, a cluster which changes while paging moves to another position, so it may be skipped
+     * or returned twice.
+     * 
+     * @param archived      <code>true</code> to list the archived clusters instead of the registered ones
+     * @param statusFilter  Set of Status values to be included in the list.
+     * @param changedSince  only clusters changed after this timestamp are included (optional)
+     * @param sort          sort order
+     * @param descending    <code>true</code> for descending order (newest first)
+     * @param cursor        cursor returned with the previous page, <code>null</code> for the first page
+     * @param limit         maximum number of clusters in the page
+     * @return page of clusters
+     */
+    public ClusterPage getClusters(boolean archived, Set<Status> statusFilter, LocalDateTime changedSince, ClusterSort sort, boolean descending, String cursor, int limit) {
+        Comparator<SortEntry> comparator = Comparator.<SortEntry, LocalDateTime>comparing(entry -> entry.key).thenComparing(entry -> entry.id);
+        if (descending) {
+            comparator = comparator.reversed();
+        }
+        SortEntry after = cursor != null ? SortEntry.ofCursor(cursor) : null;
+        Comparator<SortEntry> order = comparator;
+        // the registry filters by its status index, the archive has to be filtered here
+        Stream<Cluster> clusters = archived
+                ? this.clusterArchive.getClusters().stream().filter(cluster -> CollectionUtils.isEmpty(statusFilter) || statusFilter.contains(cluster.getStatus()))
+                : this.clusterRegistry.getClusters(statusFilter).stream();
+        List<SortEntry> entries = clusters
+                .filter(cluster -> changedSince == null || (cluster.getLastChangedAt() != null && cluster.getLastChangedAt().isAfter(changedSince)))
+                .map(cluster -> new SortEntry(sort.key(cluster), cluster.getId(), cluster))
+                .filter(entry -> after == null || order.compare(entry, after) > 0)
+                .sorted(order)
+                .limit(limit + 1L)
                 .collect(Collectors.toList());
+
+        String nextCursor = null;
+        if (entries.size() > limit) {
+            entries = entries.subList(0, limit);
+            nextCursor = entries.get(limit - 1).toCursor();
+        }
+        return new ClusterPage(entries.stream().map(entry -> entry.cluster).collect(Collectors.toList()), nextCursor);
     }
 
     /**
-     * Get a cluster by its ID.
+     * Get a cluster by its ID, archived clusters included.
      * 
      * @param id ID of the cluster
      * @return cluster with the given ID
      */
     public Optional<Cluster> getCluster(UUID id) {
-        return Optional.ofNullable(this.clusters.get(id));
+        Optional<Cluster> cluster = this.clusterRegistry.get(id);
+        return cluster.isPresent() ? cluster : this.clusterArchive.get(id);
     }
 
     /**
@@ -103,20 +235,16 @@ public class ClusterService {
      * @return cluster with the given ID and new status
      */
     public Cluster setClusterStatus(UUID id, Status status) {
-        synchronized (this.clusters) {
-            Cluster cluster = this.clusters.get(id);
-            if (cluster == null) {
-                throw new ClusterNotFoundException(MessageFormat.format("No cluster found with ID {0}", id));
-            }
-            synchronized (cluster) {
-                if ((cluster.getStatus() == Status.LAUNCH_FAILED || cluster.getStatus() == Status.TERMINATION_FAILED) && status == Status.TERMINATED_MANUALLY) {
-                    cluster.setStatus(status);
-                    cluster.addEvent(MessageFormat.format("Status set to {0}", status));
-                    return cluster;
-                } else {
-                    throw new IllegalClusterStateTransitionException(MessageFormat.format("The status of the cluster {0} cannot be set to {1}.", id, status));
-                }
-            }
+        Cluster cluster = getCluster(id).orElse(null);
+        if (cluster == null) {
+            throw new ClusterNotFoundException(MessageFormat.format("No cluster found with ID {0}", id));
+        }
+        if (status == Status.TERMINATED_MANUALLY
+                && (cluster.transition(Status.LAUNCH_FAILED, status) || cluster.transition(Status.TERMINATION_FAILED, status))) {
+            cluster.addEvent(MessageFormat.format("Status set to {0}", status));
+            return cluster;
+        } else {
+            throw new IllegalClusterStateTransitionException(MessageFormat.format("The status of the cluster {0} cannot be set to {1}.", id, status));
         }
     }
 
@@ -127,181 +255,719 @@ public class ClusterService {
      * @return cluster metadata
      */
     public Cluster startClusterCreation(Map<String, Object> clusterDefinition) {
-        synchronized (this.clusters) {
-
-            Cluster cluster = new Cluster();
-
-            synchronized (cluster) {
-                Path workingDirectory = this.fileService.workingDirectory(cluster.getId());
-                cluster.addEvent(MessageFormat.format("Creating working directory {0}...", workingDirectory));
-                this.fileService.createWorkingDirectory(workingDirectory, clusterDefinition);
-                cluster.addEvent(MessageFormat.format("Created working directory {0}.", workingDirectory));
-                
-                cluster.setStatus(Status.LAUNCHING);
-
-                clusters.put(cluster.getId(), cluster);
-
-                // Wait a certain amount of time after Terraform apply
-                final int waitAfterTerraformApply = 
-                    (
-                        ((Map<String, Object>) clusterDefinition.get("spec")).containsKey("waitAfterTerraform") &&
-                        ((Map<String, Object>) clusterDefinition.get("spec")).get("waitAfterTerraform") instanceof Integer 
-                    ) ? ((Integer)((Map<String, Object>) clusterDefinition.get("spec")).get("waitAfterTerraform")).intValue() : 0;
-
-                // Launching cluster in new thread
-                new Thread(() -> {
-
-                    final AtomicBoolean eventualFailureFlag = new AtomicBoolean(false);
-
-                    RetryUtil.<TerraformResult>retryTask(
-                        1,
-                        30,
-                        () -> {
-                            return this.terraformService.init(cluster.getId());
-                        },
-                        TerraformResult.ERROR,
-                        tryNumber -> {
-                            cluster.addEvent(MessageFormat.format("Terraform init started (try #{0}).", tryNumber));
-                        }, 
-                        (tfResult, tryNumber) -> {
-                            cluster.addEvent(MessageFormat.format("Terraform init failed with result {0} after {1} tries.", tfResult, tryNumber));
-                            cluster.addEvent("Working directory cleanup started...");
-                            this.fileService.cleanUpWorkingDirectory(workingDirectory);
-                            cluster.addEvent("Working directory cleaned up.");
-                            cluster.setStatus(Status.LAUNCH_FAILED);
-                            eventualFailureFlag.set(true);
-                        }
-                    );
+        // The new cluster is only visible to the calling thread until it is added to the registry,
+        // so neither the cluster nor the registry has to be locked while the working directory is created.
+        Cluster cluster = new Cluster();
 
-                    if(eventualFailureFlag.get()) {
-                        return;
-                    }
-                    cluster.addEvent("Terraform init successful.");
-
-                    RetryUtil.<TerraformResult>retryTask(
-                        1,
-                        30,
-                        () -> {
-                            return this.terraformService.plan(cluster.getId());
-                        },
-                        TerraformResult.ERROR,
-                        tryNumber -> {
-                            cluster.addEvent(MessageFormat.format("Terraform plan started (try #{0}).", tryNumber));
-                        }, 
-                        (tfResult, tryNumber) -> {
-                            cluster.addEvent(MessageFormat.format("Terraform plan failed with result {0} after {1} tries.", tfResult, tryNumber));
-                            cluster.addEvent("Working directory cleanup started...");
-                            this.fileService.cleanUpWorkingDirectory(workingDirectory);
-                            cluster.addEvent("Working directory cleaned up.");
-                            cluster.setStatus(Status.LAUNCH_FAILED);
-                            eventualFailureFlag.set(true);
-                        }
-                    );
+        String templateName = this.fileService.templateName(clusterDefinition);
+        ClusterSpec spec = ClusterSpec.of(clusterDefinition);
+        cluster.setTemplate(templateName);
 
-                    if(eventualFailureFlag.get()) {
-                        return;
-                    }
-                    cluster.addEvent("Terraform plan successful.");
-
-                    RetryUtil.<TerraformResult>retryTask(
-                        1,
-                        30,
-                        () -> {
-                            return this.terraformService.apply(cluster.getId());
-                        },
-                        TerraformResult.ERROR,
-                        tryNumber -> {
-                            cluster.addEvent(MessageFormat.format("Terraform apply started (try #{0}).", tryNumber));
-                        }, 
-                        (tfResult, tryNumber) -> {
-                            cluster.addEvent(MessageFormat.format("Terraform apply failed with result {0} after {1} tries.", tfResult, tryNumber));
-                            cleanupAfterFailedLaunch(cluster);
-                            eventualFailureFlag.set(true);
-                        }
-                    );
+        Path workingDirectory = this.fileService.workingDirectory(cluster.getId());
+        cluster.addEvent(MessageFormat.format("Creating working directory {0}...", workingDirectory));
+        if (this.workspacePool.claim(templateName, workingDirectory)) {
+            this.fileService.writeClusterDefinition(workingDirectory, clusterDefinition);
+            cluster.addEvent(MessageFormat.format("Created working directory {0} from the pool.", workingDirectory));
+        } else {
+            this.fileService.createWorkingDirectory(workingDirectory, clusterDefinition);
+            cluster.addEvent(MessageFormat.format("Created working directory {0}.", workingDirectory));
+            this.terraformProviderCache.prepareWorkingDirectory(templateName, workingDirectory);
+        }
 
-                    if(eventualFailureFlag.get()) {
-                        return;
-                    }
-                    cluster.addEvent("Terraform apply successful.");
-
-                    if(waitAfterTerraformApply > 0) {
-                        cluster.addEvent(MessageFormat.format("Waiting after Terraform apply for {0} minutes.", waitAfterTerraformApply));
-                        try {
-                            Thread.sleep(waitAfterTerraformApply * 60_000);
-                        } catch (InterruptedException e) {
-                            cluster.addEvent(MessageFormat.format("Waiting after Terraform apply for {0} minutes was interrupted.", waitAfterTerraformApply));
-                            cleanupAfterFailedLaunch(cluster);
-                            eventualFailureFlag.set(true);
-                        }
-                    }
+        cluster.setStatus(Status.QUEUED);
+        cluster.addEvent("Cluster queued for launch.");
+
+        this.clusterRegistry.add(cluster);
+
+        submitLaunch(cluster, spec);
+
+        return cluster;
+    }
+
+    /**
+     * Creates a new cluster whose working directory is copied from a directory prepared in advance, e.g. for a group of
+     * clusters with the same definition.
+     * 
+     * The cluster is queued, its launch is started with {@link #startLaunch(Cluster, Map)}.
+     * 
+     * @param templateName      name of the template, checked already
+     * @param preparedDirectory directory containing the template files and the cluster definition
+     * @return cluster metadata
+     */
+    public Cluster createQueuedCluster(String templateName, Path preparedDirectory) {
+        Cluster cluster = new Cluster();
+        cluster.setTemplate(templateName);
+
+        Path workingDirectory = this.fileService.workingDirectory(cluster.getId());
+        cluster.addEvent(MessageFormat.format("Creating working directory {0}...", workingDirectory));
+        this.fileService.copyDirectory(preparedDirectory, workingDirectory);
+        cluster.addEvent(MessageFormat.format("Created working directory {0} from {1}.", workingDirectory, preparedDirectory.getFileName()));
+
+        cluster.setStatus(Status.QUEUED);
+        cluster.addEvent("Cluster queued for launch.");
+
+        this.clusterRegistry.add(cluster);
+        return cluster;
+    }
+
+    /**
+     * Starts the launch of a queued cluster created with {@link #createQueuedCluster(String, Path)}.
+     * 
+     * @param cluster           queued cluster
+     * @param clusterDefinition definition of the cluster
+     * @return future which is completed when the launch has finished (successful or not)
+     */
+    public CompletableFuture<Void> startLaunch(Cluster cluster, Map<String, Object> clusterDefinition) {
+        return submitLaunch(cluster, ClusterSpec.of(clusterDefinition));
+    }
 
-                    RetryUtil.<AnsibleResult>retryTask(
-                        1,
-                        30,
-                        () -> {
-                            return this.ansibleService.launch(cluster.getId());
-                        },
-                        AnsibleResult.ERROR,
-                        tryNumber -> {
-                            cluster.addEvent(MessageFormat.format("Ansible launch started (try #{0}).", tryNumber));
-                        }, 
-                        (tfResult, tryNumber) -> {
-                            cluster.addEvent(MessageFormat.format("Ansible launch failed with result {0} after {1} tries.", tfResult, tryNumber));
-                            cleanupAfterFailedLaunch(cluster);
-                            eventualFailureFlag.set(true);
+    /**
+     * Picks up the clusters which were in progress when T2 was stopped.
+     * 
+     * <ul>
+     * <li>Clusters still waiting in the launch queue are queued again.</li>
+     * <li>Clusters whose launch was interrupted are cleaned up, as resources might have been created.</li>
+     * <li>Clusters whose termination was interrupted are terminated again.</li>
+     * </ul>
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcileClusters() {
+        for (Cluster cluster : this.clusterRegistry.getClusters()) {
+            switch (cluster.getStatus()) {
+            case NEW:
+                cluster.addEvent("T2 was restarted while the working directory was created.");
+                cluster.setStatus(Status.LAUNCH_FAILED);
+                break;
+            case QUEUED:
+                Optional<Map<String, Object>> clusterDefinition = this.fileService.readClusterDefinition(this.fileService.workingDirectory(cluster.getId()));
+                if (clusterDefinition.isEmpty()) {
+                    cluster.addEvent("T2 was restarted and the cluster definition could not be read from the working directory.");
+                    cluster.setStatus(Status.LAUNCH_FAILED);
+                    break;
+                }
+                ClusterSpec spec;
+                try {
+                    spec = ClusterSpec.of(clusterDefinition.get());
+                } catch (MalformedClusterDefinitionException e) {
+                    cluster.addEvent(MessageFormat.format("T2 was restarted and the cluster definition is not valid: {0}", e.getMessage()));
+                    cluster.setStatus(Status.LAUNCH_FAILED);
+                    break;
+                }
+                cluster.addEvent("T2 was restarted, cluster queued for launch again.");
+                submitLaunch(cluster, spec);
+                break;
+            case LAUNCHING:
+                resumeLaunch(cluster);
+                break;
+            case TERMINATING:
+                cluster.addEvent("T2 was restarted during the termination, termination queued again.");
+                submitTermination(cluster);
+                break;
+            default:
+                break;
+            }
+        }
+    }
+
+    /**
+     * Resumes a launch which was interrupted by a restart of T2 after its last completed stage (checkpoint).
+     * 
+     * <ul>
+     * <li>Interrupted stages are run again if they are resumable (Terraform stages, as Terraform converges to the
+     * planned state, and waits, which continue for the remaining time). An interrupted apply is planned again, because
+     * the saved plan may be stale.</li>
+     * <li>Launches interrupted in a stage which is not resumable (e.g. an Ansible playbook, as T2 cannot know if it can
+     * be run twice) are cleaned up, as well as launches without a checkpoint (from older versions of T2).</li>
+     * <li>Interrupted cleanups are run again.</li>
+     * </ul>
+     * 
+     * @param cluster cluster with status {@link Status#LAUNCHING}
+     */
+    private void resumeLaunch(Cluster cluster) {
+        String completed = cluster.getLaunchStage();
+        if (completed == null) {
+            cluster.addEvent("T2 was restarted during the launch, cleanup queued.");
+            submitCleanupAfterFailedLaunch(cluster);
+            return;
+        }
+        if (Pipeline.CLEANUP.equals(completed)) {
+            cluster.addEvent("T2 was restarted during the cleanup, cleanup queued again.");
+            submitCleanupAfterFailedLaunch(cluster);
+            return;
+        }
+
+        Path workingDirectory = this.fileService.workingDirectory(cluster.getId());
+        ClusterSpec spec;
+        Pipeline pipeline;
+        try {
+            spec = this.fileService.readClusterDefinition(workingDirectory)
+                    .map(ClusterSpec::of)
+                    .orElseThrow(() -> new MalformedClusterDefinitionException("The cluster definition could not be read from the working directory."));
+            pipeline = this.pipelineService.read(workingDirectory);
+        } catch (MalformedClusterDefinitionException | InvalidPipelineException e) {
+            cluster.addEvent(MessageFormat.format("T2 was restarted during the launch and the launch cannot be resumed: {0} Cleanup queued.", e.getMessage()));
+            submitCleanupAfterFailedLaunch(cluster);
+            return;
+        }
+
+        List<List<StageDefinition>> groups = pipeline.groups();
+        int next = pipeline.groupAfter(completed);
+        if (next < 0) {
+            cluster.addEvent(MessageFormat.format("T2 was restarted during the launch and the pipeline has no stage {0}, cleanup queued.", completed));
+            submitCleanupAfterFailedLaunch(cluster);
+            return;
+        }
+        if (next == groups.size()) {
+            cluster.addEvent("T2 was restarted after the last stage of the launch.");
+            cluster.addEvent("Cluster up and running!");
+            cluster.setStatus(Status.RUNNING);
+            return;
+        }
+        List<StageDefinition> interrupted = groups.get(next);
+        if (!interrupted.stream().allMatch(StageDefinition::isResumable)) {
+            cluster.addEvent(MessageFormat.format("T2 was restarted during the launch stage {0}, which cannot be run again, cleanup queued.", stageNames(interrupted)));
+            submitCleanupAfterFailedLaunch(cluster);
+            return;
+        }
+        int resumeAt = next;
+        if (interrupted.stream().anyMatch(stage -> stage.getType() == StageType.TERRAFORM_APPLY)) {
+            resumeAt = planGroupBefore(groups, next);
+        }
+
+        List<StageDefinition> resumed = groups.get(resumeAt);
+        int firstGroup = resumeAt;
+        cluster.addEvent(MessageFormat.format("T2 was restarted during the launch, launch queued to be resumed at stage {0}.", stageNames(resumed)));
+        this.launchScheduler.submitAsync(
+                Provider.ofTemplate(cluster.getTemplate()),
+                () -> {
+                    cluster.addEvent(MessageFormat.format("Cluster launch resumed at stage {0}.", stageNames(resumed)));
+                    return runLaunch(cluster, spec, pipeline, firstGroup);
+                },
+                queuePosition -> updateQueuePosition(cluster, queuePosition));
+    }
+
+    /**
+     * The group with the plan which an interrupted apply has to be resumed at.
+     * 
+     * @param groups     groups of the pipeline
+     * @param applyGroup position of the group with the interrupted apply
+     * @return position of the group with the last plan before the apply, the apply group itself if there is none
+     */
+    private static int planGroupBefore(List<List<StageDefinition>> groups, int applyGroup) {
+        for (int i = applyGroup - 1; i >= 0; i--) {
+            List<StageDefinition> group = groups.get(i);
+            if (group.stream().anyMatch(stage -> stage.getType() == StageType.TERRAFORM_PLAN)) {
+                return group.stream().allMatch(StageDefinition::isResumable) ? i : applyGroup;
+            }
+            if (group.stream().anyMatch(stage -> stage.getType() == StageType.TERRAFORM_APPLY)) {
+                break;
+            }
+        }
+        return applyGroup;
+    }
+
+    private static String stageNames(List<StageDefinition> group) {
+        return group.stream().map(StageDefinition::getName).collect(Collectors.joining(", "));
+    }
+
+    private void submitCleanupAfterFailedLaunch(Cluster cluster) {
+        this.launchScheduler.submit(
+                Provider.ofTemplate(cluster.getTemplate()),
+                () -> cleanupAfterFailedLaunch(cluster),
+                queuePosition -> updateQueuePosition(cluster, queuePosition));
+    }
+
+    /**
+     * Ends the current wait of the launch of a cluster (e.g. after Terraform apply) early, so that the launch continues
+     * immediately.
+     * 
+     * @param id ID of the cluster
+     * @return cluster
+     * @throws ClusterNotFoundException   if there is no cluster with the given ID
+     * @throws ClusterNotWaitingException if the cluster is not waiting
+     */
+    public Cluster skipWait(UUID id) {
+        Cluster cluster = getCluster(id).orElseThrow(() -> new ClusterNotFoundException(MessageFormat.format("No cluster found with ID {0}", id)));
+        if (!this.waitService.skip(id)) {
+            throw new ClusterNotWaitingException(MessageFormat.format("The cluster {0} is not waiting.", id));
+        }
+        return cluster;
+    }
+
+    /**
+     * Cancels the launch of a cluster.
+     * 
+     * A queued cluster is cleaned up immediately. For a launching cluster, the running Terraform and Ansible commands
+     * are killed (with all their child processes), waits and scheduled retries end, and no further stage is started:
+     * the launch fails and the cluster is cleaned up in the slot of the launch.
+     * 
+     * @param id ID of the cluster
+     * @return cluster
+     * @throws ClusterNotFoundException     if there is no cluster with the given ID
+     * @throws ClusterNotLaunchingException if the cluster is neither queued nor launching, or is being cleaned up
+     *                                      already
+     */
+    public Cluster cancelLaunch(UUID id) {
+        Cluster cluster = getCluster(id).orElseThrow(() -> new ClusterNotFoundException(MessageFormat.format("No cluster found with ID {0}", id)));
+        if (cluster.transition(Status.QUEUED, Status.LAUNCHING)) {
+            // the queued launch job finds the cluster launching and skips it
+            cluster.addEvent("Cluster launch cancelled while queued.");
+            cleanupAfterEarlyFailure(cluster);
+            return cluster;
+        }
+        if (cluster.getStatus() != Status.LAUNCHING || Pipeline.CLEANUP.equals(cluster.getLaunchStage())) {
+            throw new ClusterNotLaunchingException(MessageFormat.format("The launch of cluster {0} cannot be cancelled, the cluster has status {1}.", id, cluster.getStatus()));
+        }
+        if (!this.processService.isCancelled(id)) {
+            cluster.addEvent("Cluster launch cancelled.");
+            this.processService.cancel(id);
+            this.waitService.skip(id);
+            this.retryEngine.wakeUp(id);
+        }
+        return cluster;
+    }
+
+    /**
+     * Queues the launch of the given cluster.
+     * 
+     * The stages of the launch are chained asynchronously: while a stage waits for a retry, the launch keeps its slot
+     * in the {@link LaunchScheduler} but occupies no thread. Stages running concurrently occupy a thread each, as long
+     * as they run Terraform or Ansible.
+     * 
+     * @param cluster cluster to be launched, its working directory must exist
+     * @param spec    spec of the cluster definition
+     * @return future which is completed when the launch has finished
+     */
+    private CompletableFuture<Void> submitLaunch(Cluster cluster, ClusterSpec spec) {
+        return this.launchScheduler.submitAsync(
+                Provider.ofTemplate(cluster.getTemplate()),
+                () -> launch(cluster, spec),
+                queuePosition -> updateQueuePosition(cluster, queuePosition));
+    }
+
+    /**
+     * Launches the given cluster with the pipeline of its template.
+     * 
+     * @param cluster cluster to be launched
+     * @param spec    spec of the cluster definition
+     * @return future which is completed when the launch has finished
+     */
+    private CompletableFuture<Void> launch(Cluster cluster, ClusterSpec spec) {
+        if (!cluster.transition(Status.QUEUED, Status.LAUNCHING)) {
+            LOGGER.warn("Launch of cluster {} skipped, the cluster has status {}.", cluster.getId(), cluster.getStatus());
+            return CompletableFuture.completedFuture(null);
+        }
+        cluster.addEvent("Cluster launch started.");
+        cluster.completeLaunchStage(Pipeline.STARTED);
+
+        Pipeline pipeline;
+        try {
+            pipeline = this.pipelineService.read(this.fileService.workingDirectory(cluster.getId()));
+        } catch (InvalidPipelineException e) {
+            cluster.addEvent(MessageFormat.format("The launch pipeline of the template is not valid: {0}", e.getMessage()));
+            cleanupAfterEarlyFailure(cluster);
+            return CompletableFuture.completedFuture(null);
+        }
+        return runLaunch(cluster, spec, pipeline, 0);
+    }
+
+    /**
+     * Runs the stages of a launch pipeline, starting with the given group of stages.
+     * 
+     * The stages of a group run concurrently, the next group is started when all stages of the group have been
+     * successful. Every completed group is checkpointed in the cluster registry (by the name of its last stage), so
+     * that the launch can be resumed after a restart of T2. If a stage fails (also with an error) or the launch is
+     * cancelled, the cluster is cleaned up after the other stages of its group have finished.
+     * 
+     * @param cluster    cluster being launched
+     * @param spec       spec of the cluster definition
+     * @param pipeline   pipeline of the cluster
+     * @param firstGroup position of the first group to run
+     * @return future which is completed when the launch has finished
+     */
+    private CompletableFuture<Void> runLaunch(Cluster cluster, ClusterSpec spec, Pipeline pipeline, int firstGroup) {
+        List<List<StageDefinition>> groups = pipeline.groups();
+
+        // Resources might have been created as soon as a stage other than Terraform init and plan has been started.
+        int firstGroupWithResources = groups.size();
+        for (int i = 0; i < groups.size(); i++) {
+            if (groups.get(i).stream().anyMatch(stage -> stage.getType() != StageType.TERRAFORM_INIT && stage.getType() != StageType.TERRAFORM_PLAN)) {
+                firstGroupWithResources = i;
+                break;
+            }
+        }
+
+        CompletableFuture<Void> launch = CompletableFuture.completedFuture(null);
+        for (int i = firstGroup; i < groups.size(); i++) {
+            List<StageDefinition> group = groups.get(i);
+            boolean resourcesMayExist = i >= firstGroupWithResources;
+            launch = launch.thenCompose(v -> runGroup(cluster, spec, group, resourcesMayExist));
+        }
+
+        return launch
+                .handle((v, e) -> {
+                    this.processService.clearCancellation(cluster.getId());
+                    if (e == null) {
+                        cluster.addEvent("Cluster up and running!");
+                        cluster.setStatus(Status.RUNNING);
+                    } else if (!(e instanceof StageFailedException || e.getCause() instanceof StageFailedException)) {
+                        // the cleanup itself has failed, the cluster must not stay in LAUNCHING forever
+                        LOGGER.error("Launch of cluster {} failed with an error.", cluster.getId(), e);
+                        if (cluster.transition(Status.LAUNCHING, Status.LAUNCH_FAILED)) {
+                            cluster.addEvent(MessageFormat.format("Cluster launch failed with an error: {0}", ExceptionUtils.getRootCauseMessage(e)));
                         }
-                    );
-                    
-                    if(eventualFailureFlag.get()) {
-                        return;
+                        throw e instanceof CompletionException ? (CompletionException) e : new CompletionException(e);
                     }
-                    cluster.addEvent("Ansible launch successful.");
-                    cluster.addEvent("Cluster up and running!");
-                    cluster.setStatus(Status.RUNNING);
+                    return null;
+                });
+    }
 
-                }).start();
+    /**
+     * Runs a group of stages concurrently.
+     * 
+     * @param cluster           cluster being launched
+     * @param spec              spec of the cluster definition
+     * @param group             stages of the group
+     * @param resourcesMayExist might resources have been created if the group fails?
+     * @return future which is completed when the group was successful, completed with a {@link StageFailedException}
+     *         if a stage has failed
+     */
+    private CompletableFuture<Void> runGroup(Cluster cluster, ClusterSpec spec, List<StageDefinition> group, boolean resourcesMayExist) {
+        List<CompletableFuture<Boolean>> stages = this.processService.isCancelled(cluster.getId())
+                ? List.of(CompletableFuture.completedFuture(false))
+                : group.stream().map(stage -> startLaunchStage(cluster, spec, stage)).collect(Collectors.toList());
+        return CompletableFuture.allOf(stages.toArray(new CompletableFuture<?>[0])).handle((v, e) -> {
+            // a stage which has completed exceptionally counts as failed
+            boolean successful = stages.stream().allMatch(stage -> !stage.isCompletedExceptionally() && stage.join());
+            if (successful && !this.processService.isCancelled(cluster.getId())) {
+                cluster.completeLaunchStage(group.get(group.size() - 1).getName());
+                return null;
             }
+            if (resourcesMayExist) {
+                cleanupAfterFailedLaunch(cluster);
+            } else {
+                cleanupAfterEarlyFailure(cluster);
+            }
+            throw new StageFailedException();
+        });
+    }
 
-            return cluster;
+    /**
+     * Starts a stage of a launch, an error while running the stage fails the stage.
+     * 
+     * @param cluster cluster being launched
+     * @param spec    spec of the cluster definition
+     * @param stage   stage
+     * @return future which is completed with <code>true</code> if the stage was successful
+     */
+    private CompletableFuture<Boolean> startLaunchStage(Cluster cluster, ClusterSpec spec, StageDefinition stage) {
+        CompletableFuture<Boolean> run;
+        try {
+            run = runLaunchStage(cluster, spec, stage);
+        } catch (RuntimeException e) {
+            run = CompletableFuture.failedFuture(e);
         }
+        return run.exceptionally(e -> {
+            LOGGER.error("Stage {} of the launch of cluster {} failed with an error.", stage.getName(), cluster.getId(), e);
+            cluster.addEvent(MessageFormat.format("Stage {0} failed with an error: {1}", stage.getName(), ExceptionUtils.getRootCauseMessage(e)));
+            return false;
+        });
+    }
+
+    /**
+     * Runs a stage of a launch and records its timing.
+     * 
+     * @param cluster cluster being launched
+     * @param spec    spec of the cluster definition
+     * @param stage   stage
+     * @return future which is completed with <code>true</code> if the stage was successful
+     */
+    private CompletableFuture<Boolean> runLaunchStage(Cluster cluster, ClusterSpec spec, StageDefinition stage) {
+        LocalDateTime startedAt = LocalDateTime.now();
+        long start = System.nanoTime();
+
+        CompletableFuture<StageRun> run;
+        switch (stage.getType()) {
+        case TERRAFORM_INIT:
+            if (this.terraformService.isInitialized(cluster.getId())) {
+                cluster.addEvent("Terraform init skipped, the working directory has been initialized in advance.");
+                run = CompletableFuture.completedFuture(new StageRun(true, 0));
+            } else {
+                run = processStage(cluster, "Terraform init", stage, TerraformService.FAILURE_CLASSIFIER, () -> this.terraformService.init(cluster.getId()));
+            }
+            break;
+        case TERRAFORM_PLAN:
+            run = processStage(cluster, "Terraform plan", stage, TerraformService.FAILURE_CLASSIFIER, () -> this.terraformService.plan(cluster.getId()));
+            break;
+        case TERRAFORM_APPLY:
+            run = processStage(cluster, "Terraform apply", stage, TerraformService.FAILURE_CLASSIFIER, () -> {
+                if (this.terraformService.isPlanStale(cluster.getId())) {
+                    cluster.addEvent("Terraform plan is recomputed, as applying the previous plan failed.");
+                }
+                return this.terraformService.apply(cluster.getId());
+            });
+            break;
+        case WAIT:
+            Duration duration = stage.getMinutes() != null ? Duration.ofMinutes(stage.getMinutes()) : spec.getWaitAfterTerraform();
+            run = waitStage(cluster, stage.getName(), remainingWait(cluster, duration)).thenApply(v -> new StageRun(true, 0));
+            break;
+        default:
+            String phase = stage.getName().startsWith("ansible") ? stage.getName() : "ansible-" + stage.getName();
+            String label = "Ansible " + StringUtils.removeStart(phase, "ansible-");
+            run = processStage(cluster, label, stage, AnsibleService.FAILURE_CLASSIFIER, () -> this.ansibleService.run(cluster.getId(), stage.getPlaybook(), phase))
+                    .thenApply(result -> {
+                        this.ansibleService.readProfile(cluster.getId())
+                                .map(profile -> profile.lastRun(phase))
+                                .ifPresent(profile -> this.ansibleProfileStatistics.record(cluster.getTemplate(), profile));
+                        return result;
+                    });
+            break;
+        }
+
+        return run.thenApply(result -> {
+            Duration duration = Duration.ofNanos(System.nanoTime() - start);
+            cluster.addStageTiming(new StageTiming(stage.getName(), startedAt, duration, result.tries, result.successful));
+            this.clusterRegistry.markChanged();
+            this.stageStatistics.record(cluster.getTemplate(), stage.getName(), duration, result.successful);
+            return result.successful;
+        });
+    }
+
+    /**
+     * Runs a stage which calls Terraform or Ansible with the retry policy of the stage.
+     * 
+     * @param cluster    cluster being launched
+     * @param label      label of the stage in the events, e.g. <code>Terraform apply</code>
+     * @param stage      stage
+     * @param classifier classifier of failed tries
+     * @param task       task of the stage
+     * @return future of the run of the stage
+     */
+    private CompletableFuture<StageRun> processStage(Cluster cluster, String label, StageDefinition stage, FailureClassifier classifier, Supplier<ProcessOutcome> task) {
+        RetryPolicy policy = this.retryEngine.policy(stage.getTries() != null ? stage.getTries() : this.launchTries);
+        if (stage.getRetryDelaySeconds() != null) {
+            policy = policy.withInitialDelay(Duration.ofSeconds(stage.getRetryDelaySeconds()));
+        }
+        if (stage.getTimeout() != null) {
+            policy = policy.withMaxElapsed(stage.getTimeout());
+        }
+        return runStage(cluster, label, policy, classifier, task).thenApply(result -> new StageRun(result.isSuccessful(), result.getTries()));
+    }
+
+    /**
+     * Remaining time of a wait which starts when the last stage of the launch has been completed, i.e. the full wait
+     * unless the launch has been resumed after a restart.
+     * 
+     * @param cluster  cluster being launched
+     * @param duration duration of the wait
+     * @return remaining time, zero if the wait has elapsed
+     */
+    private static Duration remainingWait(Cluster cluster, Duration duration) {
+        LocalDateTime start = cluster.getLaunchStageCompletedAt();
+        if (start == null || duration.isZero()) {
+            return duration;
+        }
+        Duration remaining = duration.minus(Duration.between(start, LocalDateTime.now()));
+        return remaining.isNegative() ? Duration.ZERO : remaining;
+    }
+
+    /**
+     * Lets the launch of a cluster wait on the timer of the {@link WaitService}, without occupying a thread.
+     * 
+     * @param cluster  cluster being launched
+     * @param stage    name of the wait stage
+     * @param duration duration of the wait, no wait if zero
+     * @return future which is completed when the wait has elapsed or has been skipped
+     */
+    private CompletableFuture<Void> waitStage(Cluster cluster, String stage, Duration duration) {
+        if (duration.isZero()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        // rounded up, a resumed wait has only the remaining time left
+        cluster.addEvent(MessageFormat.format("Waiting ({0}) for {1} minutes.", stage, (duration.toSeconds() + 59) / 60));
+        return this.waitService.wait(cluster, duration).thenAcceptAsync(elapsed -> {
+            if (!elapsed) {
+                cluster.addEvent(MessageFormat.format("Waiting ({0}) skipped.", stage));
+            }
+        }, this.launchScheduler.getExecutor());
+    }
+
+    /**
+     * Runs a stage of a launch or termination with retries and records its progress in the events of the cluster.
+     * 
+     * @param cluster    cluster
+     * @param stage      name of the stage, e.g. <code>Terraform apply</code>
+     * @param policy     retry policy
+     * @param classifier classifier of failed tries
+     * @param task       task of the stage
+     * @return future of the result of the stage
+     */
+    private CompletableFuture<RetryResult> runStage(Cluster cluster, String stage, RetryPolicy policy, FailureClassifier classifier, Supplier<ProcessOutcome> task) {
+        long start = System.nanoTime();
+        return this.retryEngine.retry(
+                cluster.getId(),
+                policy,
+                Provider.ofTemplate(cluster.getTemplate()).getKey(),
+                classifier,
+                this.launchScheduler.getExecutor(),
+                task,
+                new RetryListener() {
+
+                    @Override
+                    public void onTryStart(int tryNumber) {
+                        cluster.addEvent(MessageFormat.format("{0} started (try #{1}).", stage, tryNumber));
+                    }
+
+                    @Override
+                    public void onRetryScheduled(int tryNumber, ProcessOutcome outcome, FailureClass failure, Duration delay) {
+                        if (outcome.isTimedOut()) {
+                            cluster.addEvent(MessageFormat.format("{0} timed out and was killed, retry in {1} s.", stage, delay.toSeconds()));
+                        } else {
+                            cluster.addEvent(MessageFormat.format("{0} failed with a {1} failure (exit code {2}), retry in {3} s.", stage, failure, outcome.getExitCode(), delay.toSeconds()));
+                        }
+                    }
+                })
+                .thenApply(result -> {
+                    if (result.isSuccessful()) {
+                        cluster.addEvent(MessageFormat.format("{0} successful (took {1}).", stage, elapsedSince(start)));
+                    } else {
+                        String reason = result.getOutcome().isTimedOut() ? "timed out, " + result.getReason() : result.getReason();
+                        cluster.addEvent(MessageFormat.format("{0} failed after {1} tries: {2}.", stage, result.getTries(), reason));
+                    }
+                    return result;
+                });
+    }
+
+    /**
+     * Queues the termination of the given cluster.
+     * 
+     * @param cluster cluster to be terminated
+     * @return future which is completed when the termination has finished
+     */
+    private CompletableFuture<Void> submitTermination(Cluster cluster) {
+        return this.launchScheduler.submitAsync(
+                Provider.ofTemplate(cluster.getTemplate()),
+                () -> terminate(cluster),
+                queuePosition -> updateQueuePosition(cluster, queuePosition));
+    }
+
+    /**
+     * Terminates the given cluster.
+     * 
+     * Terraform destroy is run even if the Ansible cleanup has failed.
+     * 
+     * @param cluster cluster to be terminated
+     * @return future which is completed when the termination has finished
+     */
+    private CompletableFuture<Void> terminate(Cluster cluster) {
+        Path workingDirectory = this.fileService.workingDirectory(cluster.getId());
+        long start = System.nanoTime();
+
+        return runStage(cluster, "Ansible cleanup", this.retryEngine.policy(this.terminationTries), AnsibleService.FAILURE_CLASSIFIER, () -> this.ansibleService.cleanup(cluster.getId()))
+                .thenCompose(ansibleResult -> {
+                    recordStage(cluster, "ansible-cleanup", start, ansibleResult.isSuccessful());
+                    long destroyStart = System.nanoTime();
+                    return runStage(cluster, "Terraform destroy", this.retryEngine.policy(this.terminationTries), TerraformService.FAILURE_CLASSIFIER, () -> this.terraformService.destroy(cluster.getId()))
+                            .thenAccept(terraformResult -> {
+                                recordStage(cluster, "terraform-destroy", destroyStart, terraformResult.isSuccessful());
+
+                                cluster.addEvent("Working directory cleanup started...");
+                                this.fileService.cleanUpWorkingDirectory(workingDirectory);
+                                cluster.addEvent("Working directory cleaned up.");
+
+                                if (!ansibleResult.isSuccessful() || !terraformResult.isSuccessful()) {
+                                    cluster.setStatus(Status.TERMINATION_FAILED);
+                                    return;
+                                }
+
+                                cluster.setStatus(Status.TERMINATED);
+                            });
+                });
+    }
+
+    /**
+     * Cleans up after a cluster launch which has failed before any resources might have been created, and sets the
+     * status to {@link Status#LAUNCH_FAILED}.
+     * 
+     * @param cluster cluster to be cleaned up.
+     */
+    private void cleanupAfterEarlyFailure(Cluster cluster) {
+        cluster.completeLaunchStage(Pipeline.CLEANUP);
+        cluster.addEvent("Working directory cleanup started...");
+        this.fileService.cleanUpWorkingDirectory(this.fileService.workingDirectory(cluster.getId()));
+        cluster.addEvent("Working directory cleaned up.");
+        cluster.setStatus(Status.LAUNCH_FAILED);
     }
 
     /**
      * Cleans up after a failed cluster launch and eventually sets the status to {@link Status#LAUNCH_FAILED}.
      * 
-     * The cleanup happens in a separate thread!
+     * The cleanup happens in the calling thread, i.e. in the slot of the failed launch job.
      * 
      * @param cluster cluster to be cleaned up.
      */
     private void cleanupAfterFailedLaunch(Cluster cluster) {
-        new Thread(() -> {
-            synchronized (cluster) {
-                Path workingDirectory = this.fileService.workingDirectory(cluster.getId());
-
-                cluster.addEvent("Ansible cleanup started.");
-                AnsibleResult ansibleResult = this.ansibleService.cleanup(cluster.getId());
-                if (ansibleResult == AnsibleResult.SUCCESS) {
-                    cluster.addEvent("Ansible cleanup successful.");
-                } else {
-                    cluster.addEvent("Ansible cleanup failed.");
-                }
+        cluster.completeLaunchStage(Pipeline.CLEANUP);
+        Path workingDirectory = this.fileService.workingDirectory(cluster.getId());
 
-                cluster.addEvent("Terraform destroy started.");
-                TerraformResult terraformResult = this.terraformService.destroy(cluster.getId());
-                if (terraformResult == TerraformResult.SUCCESS) {
-                    cluster.addEvent("Terraform destroy successful.");
-                } else {
-                    cluster.addEvent(MessageFormat.format("Terraform destroy failed with result {0}", terraformResult));
-                }
+        cluster.addEvent("Ansible cleanup started.");
+        long start = System.nanoTime();
+        ProcessOutcome ansibleOutcome = this.ansibleService.cleanup(cluster.getId());
+        recordStage(cluster, "ansible-cleanup", start, ansibleOutcome.isSuccessful());
+        if (ansibleOutcome.isSuccessful()) {
+            cluster.addEvent("Ansible cleanup successful.");
+        } else {
+            cluster.addEvent("Ansible cleanup failed.");
+        }
 
-                cluster.addEvent("Working directory cleanup started...");
-                this.fileService.cleanUpWorkingDirectory(workingDirectory);
-                cluster.addEvent("Working directory cleaned up.");
+        cluster.addEvent("Terraform destroy started.");
+        start = System.nanoTime();
+        ProcessOutcome terraformOutcome = this.terraformService.destroy(cluster.getId());
+        recordStage(cluster, "terraform-destroy", start, terraformOutcome.isSuccessful());
+        if (terraformOutcome.isSuccessful()) {
+            cluster.addEvent("Terraform destroy successful.");
+        } else {
+            cluster.addEvent(MessageFormat.format("Terraform destroy failed with exit code {0}", terraformOutcome.getExitCode()));
+        }
 
-                cluster.setStatus(Status.LAUNCH_FAILED);
-            }
-        }).start();
+        cluster.addEvent("Working directory cleanup started...");
+        this.fileService.cleanUpWorkingDirectory(workingDirectory);
+        cluster.addEvent("Working directory cleaned up.");
+
+        cluster.setStatus(Status.LAUNCH_FAILED);
+    }
+
+    /**
+     * Records the duration of a stage of a teardown in the {@link StageStatistics}.
+     * 
+     * @param cluster    cluster
+     * @param stage      name of the stage, e.g. <code>terraform-destroy</code>
+     * @param startNanos start as returned by {@link System#nanoTime()}
+     * @param successful was the stage successful?
+     */
+    private void recordStage(Cluster cluster, String stage, long startNanos, boolean successful) {
+        this.stageStatistics.record(cluster.getTemplate(), stage, Duration.ofNanos(System.nanoTime() - startNanos), successful);
+    }
+
+    /**
+     * Formats the time elapsed since the given start for the events of a cluster.
+     * 
+     * @param startNanos start as returned by {@link System#nanoTime()}
+     * @return elapsed time, e.g. <code>12.3 s</code>
+     */
+    static String elapsedSince(long startNanos) {
+        return String.format(Locale.ROOT, "%.1f s", (System.nanoTime() - startNanos) / 1e9);
+    }
+
+    /**
+     * Reflects the position of the cluster's job in the launch queue on the cluster.
+     * 
+     * @param cluster       cluster
+     * @param queuePosition queue position as reported by the {@link LaunchScheduler}, <code>0</code> if the job has started
+     */
+    private void updateQueuePosition(Cluster cluster, int queuePosition) {
+        cluster.setQueuePosition(queuePosition > 0 ? queuePosition : null);
+        this.clusterRegistry.markChanged();
     }
 
     /**
@@ -311,77 +977,30 @@ public class ClusterService {
      * @return cluster metadata
      */
     public Optional<Cluster> startClusterDeletion(UUID id) {
-        synchronized (this.clusters) {
-            Cluster cluster = this.clusters.get(id);
-            if (cluster == null) {
-                return Optional.empty();
-            }
-
-            synchronized (cluster) {
-                if (cluster.getStatus() != Status.RUNNING) {
-                    throw new ClusterNotRunningException(MessageFormat.format("The cluster {0} is not running.", id));
-                }
-
-                cluster.setStatus(Status.TERMINATING);
-
-                new Thread(() -> {
-                    synchronized (cluster) {
-                        Path workingDirectory = this.fileService.workingDirectory(cluster.getId());
-
-                        AnsibleResult ansibleResult = RetryUtil.<AnsibleResult>retryTask(
-                            3,
-                            30,
-                            () -> {
-                                return this.ansibleService.cleanup(cluster.getId());
-                            },
-                            AnsibleResult.ERROR,
-                            tryNumber -> {
-                                cluster.addEvent(MessageFormat.format("Ansible cleanup started (try #{0}).", tryNumber));
-                            }, 
-                            (tfResult, tryNumber) -> {
-                                cluster.addEvent(MessageFormat.format("Ansible cleanup failed with result {0} after {1} tries.", tfResult, tryNumber));
-                            }
-                        );
-
-                        if(ansibleResult == AnsibleResult.SUCCESS) {
-                            cluster.addEvent("Ansible cleanup successful.");
-                        }
-    
-                        TerraformResult terraformResult = RetryUtil.<TerraformResult>retryTask(
-                            3,
-                            30,
-                            () -> {
-                                return this.terraformService.destroy(cluster.getId());
-                            },
-                            TerraformResult.ERROR,
-                            tryNumber -> {
-                                cluster.addEvent(MessageFormat.format("Terraform destroy started (try #{0}).", tryNumber));
-                            }, 
-                            (tfResult, tryNumber) -> {
-                                cluster.addEvent(MessageFormat.format("Terraform destroy failed with result {0} after {1} tries.", tfResult, tryNumber));
-                            }
-                        );
-    
-                        if(terraformResult == TerraformResult.SUCCESS) {
-                            cluster.addEvent("Terraform destroy successful.");
-                        }
-
-                        cluster.addEvent("Working directory cleanup started...");
-                        this.fileService.cleanUpWorkingDirectory(workingDirectory);
-                        cluster.addEvent("Working directory cleaned up.");
+        Cluster cluster = getCluster(id).orElse(null);
+        if (cluster == null) {
+            return Optional.empty();
+        }
 
-                        if (ansibleResult != AnsibleResult.SUCCESS || terraformResult != TerraformResult.SUCCESS) {
-                            cluster.setStatus(Status.TERMINATION_FAILED);
-                            return;
-                        }
+        startTermination(cluster);
 
-                        cluster.setStatus(Status.TERMINATED);
-                    }
-                }).start();
-            }
+        return Optional.of(cluster);
+    }
 
-            return Optional.of(cluster);
+    /**
+     * Starts the termination of the given cluster.
+     * 
+     * @param cluster cluster to be terminated
+     * @return future which is completed when the termination has finished (successfully or not)
+     * @throws ClusterNotRunningException if the cluster is not running
+     */
+    public CompletableFuture<Void> startTermination(Cluster cluster) {
+        // only one of concurrent deletion requests succeeds in the transition
+        if (!cluster.transition(Status.RUNNING, Status.TERMINATING)) {
+            throw new ClusterNotRunningException(MessageFormat.format("The cluster {0} is not running.", cluster.getId()));
         }
+
+        return submitTermination(cluster);
     }
 
     /**
@@ -405,29 +1024,101 @@ public class ClusterService {
     }
 
     /**
-     * Reads the logfile from the working directory of the given cluster.
+     * Reads the readable version of the Terraform plan from the working directory of the given cluster.
      * 
      * @param id ID of the cluster in whose working directory the file is located
-     * @return content of the logfile
+     * @return content of the plan file
      */
-    public Optional<String> getLogs(UUID id) {
-        return this.getFileContent(id, "cluster.log");
+    public Optional<String> getPlan(UUID id) {
+        return this.getFileContent(id, TerraformService.PLAN_TEXT_FILE);
     }
 
     /**
-     * Reads the content of a file in the working directory of a cluster.
+     * Reads the profile of the Ansible runs of the given cluster (so far, if a playbook is running).
+     * 
+     * @param id ID of the cluster
+     * @return profile, empty if no playbook has been run with profiling
+     */
+    public Optional<AnsibleProfile> getAnsibleProfile(UUID id) {
+        return this.ansibleService.readProfile(id);
+    }
+
+    /**
+     * Reads the content of a file in the (possibly archived) working directory of a cluster.
      * 
      * @param id       ID of the cluster in whose working directory the file is located
      * @param filename relative filename in the working directory
      * @return file content, empty if not resolvable.
      */
     private Optional<String> getFileContent(UUID id, String filename) {
-        Path file = this.fileService.workingDirectory(id).resolve(filename);
-        try {
-            return Optional.of(FileUtils.readFileToString(file.toFile(), StandardCharsets.UTF_8));
-        } catch (IOException e) {
-            LOGGER.warn("{file} could not be read.", e);
-            return Optional.empty();
+        return this.fileService.readWorkingDirectoryFile(id, filename);
+    }
+
+    /**
+     * A cluster along with its sort key, which is taken once per listing as it might change concurrently.
+     */
+    private static class SortEntry {
+
+        private final LocalDateTime key;
+        private final UUID id;
+        private final Cluster cluster;
+
+        private SortEntry(LocalDateTime key, UUID id, Cluster cluster) {
+            this.key = key;
+            this.id = id;
+            this.cluster = cluster;
+        }
+
+        /**
+         * @return cursor (opaque to clients) pointing behind this entry
+         */
+        private String toCursor() {
+            String position = this.key + CURSOR_SEPARATOR + this.id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+        }
+
+        /**
+         * Creates an entry (without cluster) for the position a cursor points to.
+         * 
+         * @param cursor cursor
+         * @return entry with the key and ID of the cursor
+         * @throws InvalidCursorException if the cursor is not valid
+         */
+        private static SortEntry ofCursor(String cursor) {
+            try {
+                String position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = position.indexOf(CURSOR_SEPARATOR);
+                LocalDateTime key = LocalDateTime.parse(position.substring(0, separator));
+                return new SortEntry(key, UUID.fromString(position.substring(separator + 1)), null);
+            } catch (IllegalArgumentException | DateTimeParseException | StringIndexOutOfBoundsException e) {
+                throw new InvalidCursorException(String.format("Invalid cursor '%s'.", cursor), e);
+            }
+        }
+    }
+
+    /**
+     * Result of a stage of a launch
+     */
+    private static class StageRun {
+
+        private final boolean successful;
+        private final int tries;
+
+        private StageRun(boolean successful, int tries) {
+            this.successful = successful;
+            this.tries = tries;
+        }
+    }
+
+    /**
+     * Signals that a stage of a launch has failed and has been cleaned up, the following stages are skipped.
+     */
+    private static class StageFailedException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        private StageFailedException() {
+            super(null, null, false, false);
         }
     }
 }
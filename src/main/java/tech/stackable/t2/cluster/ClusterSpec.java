@@ -0,0 +1,67 @@
+package tech.stackable.t2.cluster;
+
+import java.text.MessageFormat;
+import java.time.Duration;
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+
+import tech.stackable.t2.api.MalformedClusterDefinitionException;
+
+/**
+ * The options in the <code>spec</code> of a cluster definition which control the launch.
+ *
+ * All other entries of the spec are passed on to the template and are ignored here.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ClusterSpec {
+
+    private static final ObjectMapper MAPPER = JsonMapper.builder()
+            .disable(MapperFeature.ALLOW_COERCION_OF_SCALARS)
+            .disable(DeserializationFeature.ACCEPT_FLOAT_AS_INT)
+            .build();
+
+    /**
+     * Waiting time after Terraform apply (minutes)
+     */
+    private int waitAfterTerraform;
+
+    /**
+     * Reads the spec of the given cluster definition.
+     *
+     * @param clusterDefinition cluster definition
+     * @return spec
+     * @throws MalformedClusterDefinitionException if the cluster definition has no spec or an option has an invalid value
+     */
+    public static ClusterSpec of(Map<String, Object> clusterDefinition) {
+        Object spec = clusterDefinition != null ? clusterDefinition.get("spec") : null;
+        if (!(spec instanceof Map)) {
+            throw new MalformedClusterDefinitionException("The cluster definition does not contain a spec.");
+        }
+        ClusterSpec result;
+        try {
+            result = MAPPER.convertValue(spec, ClusterSpec.class);
+        } catch (IllegalArgumentException e) {
+            throw new MalformedClusterDefinitionException("The spec of the cluster definition is not valid.", e);
+        }
+        if (result.waitAfterTerraform < 0) {
+            throw new MalformedClusterDefinitionException(MessageFormat.format("waitAfterTerraform must not be negative, but is {0}.", result.waitAfterTerraform));
+        }
+        return result;
+    }
+
+    public void setWaitAfterTerraform(int waitAfterTerraform) {
+        this.waitAfterTerraform = waitAfterTerraform;
+    }
+
+    /**
+     * @return waiting time after Terraform apply, zero if not specified
+     */
+    public Duration getWaitAfterTerraform() {
+        return Duration.ofMinutes(this.waitAfterTerraform);
+    }
+}
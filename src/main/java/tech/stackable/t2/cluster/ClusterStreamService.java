@@ -0,0 +1,409 @@
+package tech.stackable.t2.cluster;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import tech.stackable.t2.domain.Cluster;
+import tech.stackable.t2.domain.ClusterEvent;
+import tech.stackable.t2.domain.ClusterListener;
+import tech.stackable.t2.domain.Status;
+
+/**
+ * Pushes the status changes and events of clusters to clients as Server-Sent Events, so that clients do not have to
+ * poll.
+ *
+ * Every change is serialized once and put into a bounded queue per subscriber. The queues are drained by a small shared
+ * pool of threads, so idle subscribers cost no thread and a slow subscriber does not hold up the others or the
+ * cluster. A subscriber whose queue overflows is disconnected and resumes with the <code>Last-Event-ID</code> header.
+ *
+ * Streams of a single cluster use the positions of the cluster's events as IDs, so they can be resumed from the
+ * persisted events, even after a restart of T2. The stream of all clusters uses a global sequence number and keeps the
+ * last changes for resuming. If a client has missed more than that, it gets a <code>resync</code> event and has to
+ * reload the clusters.
+ */
+@Service
+public class ClusterStreamService implements ClusterListener {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ClusterStreamService.class);
+
+    public static final String STATUS_EVENT = "status";
+    public static final String CLUSTER_EVENT = "event";
+    public static final String RESYNC_EVENT = "resync";
+
+    @Autowired
+    private ClusterRegistry clusterRegistry;
+
+    private final ObjectMapper objectMapper;
+
+    private final long timeoutMs;
+
+    private final int subscriberBufferSize;
+
+    private final int replayBufferSize;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Latest messages for resuming the stream of all clusters (guarded by itself)
+     */
+    private final Deque<Message> history = new ArrayDeque<>();
+
+    /**
+     * Sequence number of the latest message (guarded by {@link #history}).
+     *
+     * Starts with the current time, so that the sequence numbers of a new run of T2 are above the ones of a previous
+     * run, and clients resuming from a previous run get a resync.
+     */
+    private long sequence = System.currentTimeMillis();
+
+    private final ExecutorService dispatcher;
+
+    public ClusterStreamService(
+            ObjectMapper objectMapper,
+            @Value("${t2.stream.timeout-ms:3600000}") long timeoutMs,
+            @Value("${t2.stream.subscriber-buffer-size:256}") int subscriberBufferSize,
+            @Value("${t2.stream.replay-buffer-size:1024}") int replayBufferSize,
+            @Value("${t2.stream.dispatcher-threads:2}") int dispatcherThreads) {
+        this.objectMapper = objectMapper;
+        this.timeoutMs = timeoutMs;
+        this.subscriberBufferSize = subscriberBufferSize;
+        this.replayBufferSize = replayBufferSize;
+        this.dispatcher = Executors.newFixedThreadPool(dispatcherThreads, new CustomizableThreadFactory("t2-stream-"));
+    }
+
+    @PostConstruct
+    public void init() {
+        this.clusterRegistry.addListener(this);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        this.dispatcher.shutdownNow();
+        this.subscribers.forEach(subscriber -> subscriber.emitter.complete());
+    }
+
+    /**
+     * Streams the status changes and events of the given cluster.
+     *
+     * The stream starts with the events after the given ID (all events if there is none) and the current status. The
+     * ID of an event is its position, the ID of a status is the position of the last event before it.
+     *
+     * @param cluster     cluster
+     * @param lastEventId ID of the last event the client has received, may be <code>null</code>
+     * @return emitter of the events
+     */
+    public SseEmitter subscribe(Cluster cluster, Long lastEventId) {
+        Subscriber subscriber = new Subscriber(cluster.getId());
+        try {
+            // events are read before the status, so the status sent is at least as new as the last event
+            int fromIndex = lastEventId != null ? (int) Math.max(0L, lastEventId + 1) : 0;
+            List<ClusterEvent> events = cluster.getEvents(fromIndex);
+            for (int i = 0; i < events.size(); i++) {
+                subscriber.send(eventMessage(0L, cluster, events.get(i), fromIndex + i));
+            }
+            subscriber.lastEventIndex = fromIndex + events.size() - 1;
+            subscriber.send(statusMessage(0L, cluster, cluster.getStatus(), subscriber.lastEventIndex));
+        } catch (IOException | IllegalStateException e) {
+            subscriber.close(e);
+            return subscriber.emitter;
+        }
+        subscriber.goLive();
+        return subscriber.emitter;
+    }
+
+    /**
+     * Streams the status changes and events of all clusters.
+     *
+     * Without an ID, the stream starts with the next change; clients subscribe first and load the clusters afterwards,
+     * so they do not miss anything.
+     *
+     * @param lastEventId ID of the last event the client has received, may be <code>null</code>
+     * @return emitter of the events
+     */
+    public SseEmitter subscribeAll(Long lastEventId) {
+        Subscriber subscriber = new Subscriber(null);
+        List<Message> replay = new ArrayList<>();
+        boolean resync;
+        synchronized (this.history) {
+            Message oldest = this.history.peekFirst();
+            long oldestAvailable = oldest != null ? oldest.sequence : this.sequence + 1;
+            resync = lastEventId != null && (lastEventId < oldestAvailable - 1 || lastEventId > this.sequence);
+            if (lastEventId != null && !resync) {
+                this.history.stream().filter(message -> message.sequence > lastEventId).forEach(replay::add);
+                subscriber.lastSequence = lastEventId;
+            } else {
+                subscriber.lastSequence = this.sequence;
+            }
+        }
+        try {
+            if (resync) {
+                subscriber.emitter.send(SseEmitter.event().id(Long.toString(subscriber.lastSequence)).name(RESYNC_EVENT).data("{}"));
+            }
+            for (Message message : replay) {
+                subscriber.send(message);
+            }
+        } catch (IOException | IllegalStateException e) {
+            subscriber.close(e);
+            return subscriber.emitter;
+        }
+        subscriber.goLive();
+        return subscriber.emitter;
+    }
+
+    @Override
+    public void statusChanged(Cluster cluster, Status status) {
+        // called while the cluster is locked, so the number of events matches the status
+        int lastEventIndex = cluster.getEventCount() - 1;
+        publish(sequence -> statusMessage(sequence, cluster, status, lastEventIndex));
+    }
+
+    @Override
+    public void eventAdded(Cluster cluster, ClusterEvent event, int index) {
+        publish(sequence -> eventMessage(sequence, cluster, event, index));
+    }
+
+    /**
+     * Sends a comment to all subscribers, so that idle connections are kept open and gone clients are detected.
+     */
+    @Scheduled(initialDelayString = "${t2.stream.heartbeat-interval-ms:15000}", fixedDelayString = "${t2.stream.heartbeat-interval-ms:15000}")
+    public void heartbeat() {
+        for (Subscriber subscriber : this.subscribers) {
+            try {
+                subscriber.emitter.send(SseEmitter.event().comment("keep-alive"));
+            } catch (IOException | IllegalStateException e) {
+                subscriber.close(e);
+            }
+        }
+    }
+
+    /**
+     * Assigns the next sequence number to a message and hands the message to the subscribers.
+     *
+     * @param factory creates the message for the sequence number
+     */
+    private void publish(MessageFactory factory) {
+        Message message;
+        try {
+            synchronized (this.history) {
+                message = factory.create(this.sequence + 1);
+                this.sequence = message.sequence;
+                this.history.addLast(message);
+                if (this.history.size() > this.replayBufferSize) {
+                    this.history.removeFirst();
+                }
+            }
+        } catch (JsonProcessingException e) {
+            LOGGER.warn("Change of cluster could not be serialized for the stream.", e);
+            return;
+        }
+        for (Subscriber subscriber : this.subscribers) {
+            if (subscriber.clusterId == null || subscriber.clusterId.equals(message.clusterId)) {
+                subscriber.offer(message);
+            }
+        }
+    }
+
+    private Message statusMessage(long sequence, Cluster cluster, Status status, int lastEventIndex) throws JsonProcessingException {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("clusterId", cluster.getId());
+        data.put("status", status);
+        return new Message(sequence, cluster.getId(), STATUS_EVENT, lastEventIndex, this.objectMapper.writeValueAsString(data));
+    }
+
+    private Message eventMessage(long sequence, Cluster cluster, ClusterEvent event, int index) throws JsonProcessingException {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("clusterId", cluster.getId());
+        data.put("index", index);
+        data.put("event", event);
+        return new Message(sequence, cluster.getId(), CLUSTER_EVENT, index, this.objectMapper.writeValueAsString(data));
+    }
+
+    @FunctionalInterface
+    private interface MessageFactory {
+        Message create(long sequence) throws JsonProcessingException;
+    }
+
+    /**
+     * A serialized change of a cluster
+     */
+    private static class Message {
+
+        private final long sequence;
+        private final UUID clusterId;
+        private final String name;
+
+        /**
+         * Position of the event, or of the last event before the status change
+         */
+        private final int eventIndex;
+
+        private final String data;
+
+        private Message(long sequence, UUID clusterId, String name, int eventIndex, String data) {
+            this.sequence = sequence;
+            this.clusterId = clusterId;
+            this.name = name;
+            this.eventIndex = eventIndex;
+            this.data = data;
+        }
+    }
+
+    /**
+     * A client subscribed to the stream of one or all clusters.
+     *
+     * Messages are queued from the start, but only dispatched when the subscriber is live, i.e. when the replay has been
+     * sent. Messages which have already been sent with the replay are skipped.
+     */
+    private class Subscriber implements Runnable {
+
+        /**
+         * ID of the cluster, <code>null</code> for all clusters
+         */
+        private final UUID clusterId;
+
+        private final SseEmitter emitter = new SseEmitter(ClusterStreamService.this.timeoutMs);
+
+        private final Deque<Message> queue = new ArrayDeque<>();
+
+        // guarded by this
+        private boolean live = false;
+        private boolean scheduled = false;
+        private boolean overflowed = false;
+
+        // only accessed by the thread sending to the subscriber
+        private long lastSequence = Long.MIN_VALUE;
+        private int lastEventIndex = -1;
+
+        private Subscriber(UUID clusterId) {
+            this.clusterId = clusterId;
+            this.emitter.onCompletion(() -> ClusterStreamService.this.subscribers.remove(this));
+            this.emitter.onTimeout(() -> ClusterStreamService.this.subscribers.remove(this));
+            this.emitter.onError(e -> ClusterStreamService.this.subscribers.remove(this));
+            ClusterStreamService.this.subscribers.add(this);
+        }
+
+        /**
+         * Queues a message, drops the queue if it is full.
+         *
+         * @param message message
+         */
+        private void offer(Message message) {
+            synchronized (this) {
+                if (this.overflowed) {
+                    return;
+                }
+                if (this.queue.size() >= ClusterStreamService.this.subscriberBufferSize) {
+                    this.overflowed = true;
+                    this.queue.clear();
+                } else {
+                    this.queue.addLast(message);
+                }
+                if (!this.live || this.scheduled) {
+                    return;
+                }
+                this.scheduled = true;
+            }
+            ClusterStreamService.this.dispatcher.execute(this);
+        }
+
+        /**
+         * Starts dispatching the queued messages after the replay has been sent.
+         */
+        private void goLive() {
+            synchronized (this) {
+                this.live = true;
+                if (this.queue.isEmpty() && !this.overflowed) {
+                    return;
+                }
+                this.scheduled = true;
+            }
+            ClusterStreamService.this.dispatcher.execute(this);
+        }
+
+        /**
+         * Sends the queued messages (on a thread of the dispatcher).
+         */
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    Message message;
+                    synchronized (this) {
+                        if (this.overflowed) {
+                            // the client resumes from the last message it has received
+                            LOGGER.debug("Subscriber of cluster stream ({}) disconnected, too many pending messages.", this.clusterId != null ? this.clusterId : "all");
+                            ClusterStreamService.this.subscribers.remove(this);
+                            this.emitter.complete();
+                            return;
+                        }
+                        message = this.queue.pollFirst();
+                        if (message == null) {
+                            this.scheduled = false;
+                            return;
+                        }
+                    }
+                    send(message);
+                }
+            } catch (IOException | IllegalStateException e) {
+                close(e);
+            }
+        }
+
+        /**
+         * Sends the given message unless the client has already received it.
+         *
+         * @param message message
+         * @throws IOException if the client has gone
+         */
+        private void send(Message message) throws IOException {
+            String id;
+            if (this.clusterId == null) {
+                if (message.sequence <= this.lastSequence) {
+                    return;
+                }
+                this.lastSequence = message.sequence;
+                id = Long.toString(message.sequence);
+            } else {
+                if (CLUSTER_EVENT.equals(message.name)) {
+                    if (message.eventIndex <= this.lastEventIndex) {
+                        return;
+                    }
+                    this.lastEventIndex = message.eventIndex;
+                }
+                id = Integer.toString(message.eventIndex);
+            }
+            this.emitter.send(SseEmitter.event().id(id).name(message.name).data(message.data));
+        }
+
+        private void close(Exception e) {
+            LOGGER.debug("Subscriber of cluster stream ({}) removed.", this.clusterId != null ? this.clusterId : "all", e);
+            ClusterStreamService.this.subscribers.remove(this);
+            this.emitter.completeWithError(e);
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package tech.stackable.t2.cluster;
+
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import tech.stackable.t2.domain.Provider;
+
+/**
+ * Runs the long-running jobs of T2 (cluster launch, cleanup and termination) with bounded concurrency.
+ *
+ * Jobs are queued in FIFO order. A job is started as soon as the global limit and the limit of its provider allow it.
+ * Jobs waiting for a saturated provider do not block jobs of other providers queued behind them.
+ */
+@Component
+public class LaunchScheduler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LaunchScheduler.class);
+
+    private final int maxConcurrentJobs;
+
+    private final Map<Provider, Integer> maxConcurrentJobsPerProvider = new EnumMap<>(Provider.class);
+
+    /**
+     * Jobs waiting for a free slot (guarded by <code>this</code>).
+     */
+    private final LinkedList<Job> queue = new LinkedList<>();
+
+    /**
+     * Number of running jobs per provider (guarded by <code>this</code>).
+     */
+    private final Map<Provider, Integer> runningJobs = new EnumMap<>(Provider.class);
+
+    /**
+     * Total number of running jobs (guarded by <code>this</code>).
+     */
+    private int runningJobsTotal = 0;
+
+    private final ExecutorService executor;
+
+    public LaunchScheduler(@Value("${t2.scheduler.max-concurrent-jobs:8}") int maxConcurrentJobs, Environment environment) {
+        if (maxConcurrentJobs < 1) {
+            throw new IllegalArgumentException("t2.scheduler.max-concurrent-jobs must be at least 1.");
+        }
+        this.maxConcurrentJobs = maxConcurrentJobs;
+        for (Provider provider : Provider.values()) {
+            int limit = environment.getProperty(
+                    "t2.scheduler.max-concurrent-jobs-per-provider." + provider.getKey(),
+                    Integer.class,
+                    maxConcurrentJobs);
+            this.maxConcurrentJobsPerProvider.put(provider, Math.max(1, Math.min(limit, maxConcurrentJobs)));
+            this.runningJobs.put(provider, 0);
+        }
+        // The executor never queues: jobs are only handed over if a slot is free, and the stages of a job which run
+        // concurrently get a thread each, so a job never waits for a thread behind other jobs.
+        this.executor = Executors.newCachedThreadPool(new CustomizableThreadFactory("t2-job-"));
+        LOGGER.info("Launch scheduler started with {} slots, limits per provider: {}", maxConcurrentJobs, this.maxConcurrentJobsPerProvider);
+    }
+
+    /**
+     * Queues a job for execution.
+     *
+     * The given callback is informed about the position of the job in the queue (starting at 1) whenever it changes.
+     * When the job is started, the callback receives <code>0</code>.
+     *
+     * @param provider                provider the job works on
+     * @param task                    the job itself
+     * @param onQueuePositionChanged  callback for changes of the queue position
+     * @return future which is completed when the job has finished (exceptionally if it has failed)
+     */
+    public CompletableFuture<Void> submit(Provider provider, Runnable task, IntConsumer onQueuePositionChanged) {
+        Objects.requireNonNull(task);
+        return submitAsync(provider, () -> {
+            task.run();
+            return CompletableFuture.completedFuture(null);
+        }, onQueuePositionChanged);
+    }
+
+    /**
+     * Queues an asynchronous job for execution.
+     *
+     * The job is started on a thread of the scheduler and keeps its slot until the future it returns is completed. While
+     * it waits (e.g. for a retry), it occupies no thread. The continuations of the job should be run on
+     * {@link #getExecutor()}.
+     *
+     * @param provider                provider the job works on
+     * @param task                    the job itself, returns a future which is completed when the job has finished
+     * @param onQueuePositionChanged  callback for changes of the queue position
+     * @return future which is completed when the job has finished (exceptionally if it has failed)
+     */
+    public CompletableFuture<Void> submitAsync(Provider provider, Supplier<CompletableFuture<?>> task, IntConsumer onQueuePositionChanged) {
+        Objects.requireNonNull(provider);
+        Objects.requireNonNull(task);
+        Objects.requireNonNull(onQueuePositionChanged);
+
+        Job job = new Job(provider, task, onQueuePositionChanged);
+        synchronized (this) {
+            this.queue.add(job);
+            dispatch();
+        }
+        return job.completion;
+    }
+
+    /**
+     * Executor of the scheduler's threads, for the continuations of asynchronous jobs.
+     *
+     * Threads are created as needed, so a continuation never waits for a thread. A job may occupy several threads at a
+     * time (e.g. a launch running Ansible stages concurrently), the number of threads is bounded by the number of slots
+     * times the number of stages running concurrently.
+     *
+     * @return executor
+     */
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Number of jobs waiting for a free slot.
+     *
+     * @return number of queued jobs
+     */
+    public synchronized int getQueueLength() {
+        return this.queue.size();
+    }
+
+    /**
+     * Number of jobs currently running.
+     *
+     * @return number of running jobs
+     */
+    public synchronized int getRunningJobs() {
+        return this.runningJobsTotal;
+    }
+
+    public int getMaxConcurrentJobs() {
+        return maxConcurrentJobs;
+    }
+
+    /**
+     * Number of jobs currently running on the given provider.
+     *
+     * @param provider provider
+     * @return number of running jobs
+     */
+    public synchronized int getRunningJobs(Provider provider) {
+        return this.runningJobs.get(provider);
+    }
+
+    /**
+     * Maximum number of jobs running concurrently on the given provider.
+     *
+     * @param provider provider
+     * @return limit of the provider
+     */
+    public int getMaxConcurrentJobs(Provider provider) {
+        return this.maxConcurrentJobsPerProvider.get(provider);
+    }
+
+    /**
+     * Starts as many queued jobs as the limits allow and updates the queue positions of the remaining ones.
+     *
+     * Must be called while holding the lock on <code>this</code>.
+     */
+    private void dispatch() {
+        Iterator<Job> iterator = this.queue.iterator();
+        int position = 1;
+        while (iterator.hasNext()) {
+            Job job = iterator.next();
+            if (this.runningJobsTotal < this.maxConcurrentJobs && this.runningJobs.get(job.provider) < this.maxConcurrentJobsPerProvider.get(job.provider)) {
+                iterator.remove();
+                this.runningJobsTotal++;
+                this.runningJobs.merge(job.provider, 1, Integer::sum);
+                job.onQueuePositionChanged.accept(0);
+                this.executor.execute(() -> run(job));
+            } else {
+                if (job.queuePosition != position) {
+                    job.queuePosition = position;
+                    job.onQueuePositionChanged.accept(position);
+                }
+                position++;
+            }
+        }
+    }
+
+    /**
+     * Runs the given job and frees its slot when it has finished.
+     *
+     * @param job job to run
+     */
+    private void run(Job job) {
+        CompletableFuture<?> task;
+        try {
+            task = job.task.get();
+        } catch (RuntimeException e) {
+            task = CompletableFuture.failedFuture(e);
+        }
+        task.whenComplete((result, e) -> {
+            if (e != null) {
+                LOGGER.error("Job on provider {} failed.", job.provider, e);
+            }
+            synchronized (this) {
+                this.runningJobsTotal--;
+                this.runningJobs.merge(job.provider, -1, Integer::sum);
+                dispatch();
+            }
+            // completed after the slot has been freed, so that dependent jobs can be submitted right away
+            if (e != null) {
+                job.completion.completeExceptionally(e);
+            } else {
+                job.completion.complete(null);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        this.executor.shutdownNow();
+    }
+
+    /**
+     * A queued job
+     */
+    private static class Job {
+
+        private final Provider provider;
+        private final Supplier<CompletableFuture<?>> task;
+        private final IntConsumer onQueuePositionChanged;
+        private final CompletableFuture<Void> completion = new CompletableFuture<>();
+
+        /**
+         * Last reported queue position (guarded by the scheduler).
+         */
+        private int queuePosition = 0;
+
+        private Job(Provider provider, Supplier<CompletableFuture<?>> task, IntConsumer onQueuePositionChanged) {
+            this.provider = provider;
+            this.task = task;
+            this.onQueuePositionChanged = onQueuePositionChanged;
+        }
+    }
+}
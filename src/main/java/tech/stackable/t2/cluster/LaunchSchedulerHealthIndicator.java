@@ -0,0 +1,51 @@
+package tech.stackable.t2.cluster;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.stereotype.Component;
+
+import tech.stackable.t2.domain.Provider;
+
+/**
+ * Reports the saturation of the {@link LaunchScheduler}: the status is {@link #SATURATED} if jobs are waiting for a slot
+ * (globally or of their provider), i.e. more concurrency would help, {@link Status#UP} otherwise.
+ *
+ * Saturation is no failure, so it is mapped to HTTP 200 in the configuration.
+ */
+@Component
+public class LaunchSchedulerHealthIndicator implements HealthIndicator {
+
+    /**
+     * Jobs are waiting for a free slot
+     */
+    public static final Status SATURATED = new Status("SATURATED", "Jobs are waiting for a free launch slot.");
+
+    @Autowired
+    private LaunchScheduler launchScheduler;
+
+    @Override
+    public Health health() {
+        int running = this.launchScheduler.getRunningJobs();
+        int slots = this.launchScheduler.getMaxConcurrentJobs();
+        int queued = this.launchScheduler.getQueueLength();
+
+        Map<String, String> providers = new LinkedHashMap<>();
+        for (Provider provider : Provider.values()) {
+            providers.put(provider.getKey(), this.launchScheduler.getRunningJobs(provider) + "/" + this.launchScheduler.getMaxConcurrentJobs(provider));
+        }
+
+        return Health.status(queued > 0 ? SATURATED : Status.UP)
+                .withDetail("running", running)
+                .withDetail("slots", slots)
+                .withDetail("queued", queued)
+                .withDetail("saturation", String.format(Locale.ROOT, "%.2f", (double) running / slots))
+                .withDetail("providers", providers)
+                .build();
+    }
+}
@@ -0,0 +1,176 @@
+package tech.stackable.t2.cluster;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import tech.stackable.t2.domain.Cluster;
+import tech.stackable.t2.domain.ClusterEvent;
+import tech.stackable.t2.domain.Status;
+
+/**
+ * Compact JSON format of the {@link ClusterRegistry}'s snapshot and journal.
+ *
+ * The format is written and read with the streaming API of Jackson. Timestamps are stored as nanoseconds since the
+ * epoch, so that tens of thousands of clusters with their events can be restored in a fraction of a second.
+ *
+ * <ul>
+ * <li>cluster: <code>{"id":"...","template":"...","status":"RUNNING","created":123,"stage":"apply","stageAt":123,"events":[event,...]}</code>
+ * (the last completed launch stage is optional)</li>
+ * <li>event: <code>[timestamp,"description"]</code></li>
+ * </ul>
+ *
+ * The time since the cluster launch of an event is not stored, it is derived from the timestamps.
+ */
+final class RegistryCodec {
+
+    private RegistryCodec() {
+    }
+
+    /**
+     * Writes the given cluster with all its events.
+     *
+     * @param generator JSON generator
+     * @param cluster   cluster
+     * @throws IOException on write errors
+     */
+    static void writeCluster(JsonGenerator generator, Cluster cluster) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("id", cluster.getId().toString());
+        if (cluster.getTemplate() != null) {
+            generator.writeStringField("template", cluster.getTemplate());
+        }
+        generator.writeStringField("status", cluster.getStatus().name());
+        generator.writeNumberField("created", toNanos(cluster.getDateTimeCreated()));
+        String stage = cluster.getLaunchStage();
+        LocalDateTime stageCompletedAt = cluster.getLaunchStageCompletedAt();
+        if (stage != null && stageCompletedAt != null) {
+            generator.writeStringField("stage", stage);
+            generator.writeNumberField("stageAt", toNanos(stageCompletedAt));
+        }
+        generator.writeArrayFieldStart("events");
+        for (ClusterEvent event : cluster.getEvents(0)) {
+            writeEvent(generator, event);
+        }
+        generator.writeEndArray();
+        generator.writeEndObject();
+    }
+
+    /**
+     * Reads a cluster, the parser must point at the start of the cluster object.
+     *
+     * @param parser JSON parser
+     * @return restored cluster
+     * @throws IOException on read errors
+     */
+    static Cluster readCluster(JsonParser parser) throws IOException {
+        expect(parser, parser.currentToken(), JsonToken.START_OBJECT);
+
+        UUID id = null;
+        String template = null;
+        Status status = null;
+        long createdNanos = 0;
+        String stage = null;
+        long stageNanos = 0;
+        Cluster cluster = null;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            switch (field) {
+            case "id":
+                id = UUID.fromString(parser.getText());
+                break;
+            case "template":
+                template = parser.getText();
+                break;
+            case "status":
+                status = Status.valueOf(parser.getText());
+                break;
+            case "created":
+                createdNanos = parser.getLongValue();
+                break;
+            case "stage":
+                stage = parser.getText();
+                break;
+            case "stageAt":
+                stageNanos = parser.getLongValue();
+                break;
+            case "events":
+                // events are always written last, so the cluster itself can be created here
+                cluster = restore(id, template, createdNanos, status, stage, stageNanos);
+                while (parser.nextToken() == JsonToken.START_ARRAY) {
+                    cluster.restoreEvent(readEvent(parser, createdNanos));
+                }
+                break;
+            default:
+                parser.skipChildren();
+            }
+        }
+
+        return cluster != null ? cluster : restore(id, template, createdNanos, status, stage, stageNanos);
+    }
+
+    private static Cluster restore(UUID id, String template, long createdNanos, Status status, String stage, long stageNanos) {
+        Cluster cluster = Cluster.restore(id, template, fromNanos(createdNanos), status);
+        if (stage != null) {
+            cluster.restoreLaunchStage(stage, fromNanos(stageNanos));
+        }
+        return cluster;
+    }
+
+    /**
+     * Writes the given event.
+     *
+     * @param generator JSON generator
+     * @param event     event
+     * @throws IOException on write errors
+     */
+    static void writeEvent(JsonGenerator generator, ClusterEvent event) throws IOException {
+        generator.writeStartArray();
+        generator.writeNumber(toNanos(event.getTimestamp()));
+        generator.writeString(event.getDescription());
+        generator.writeEndArray();
+    }
+
+    /**
+     * Reads an event, the parser must point at the start of the event array.
+     *
+     * @param parser              JSON parser
+     * @param clusterCreatedNanos timestamp of the creation of the event's cluster (nanoseconds since the epoch)
+     * @return restored event
+     * @throws IOException on read errors
+     */
+    static ClusterEvent readEvent(JsonParser parser, long clusterCreatedNanos) throws IOException {
+        expect(parser, parser.currentToken(), JsonToken.START_ARRAY);
+        expect(parser, parser.nextToken(), JsonToken.VALUE_NUMBER_INT);
+        long timestampNanos = parser.getLongValue();
+        LocalDateTime timestamp = fromNanos(timestampNanos);
+        Duration timeSinceClusterLaunch = Duration.ofNanos(timestampNanos - clusterCreatedNanos);
+        expect(parser, parser.nextToken(), JsonToken.VALUE_STRING);
+        String description = parser.getText();
+        expect(parser, parser.nextToken(), JsonToken.END_ARRAY);
+        return new ClusterEvent(timestamp, timeSinceClusterLaunch, description);
+    }
+
+    private static void expect(JsonParser parser, JsonToken actual, JsonToken expected) throws JsonParseException {
+        if (actual != expected) {
+            throw new JsonParseException(parser, String.format("Expected %s but found %s", expected, actual));
+        }
+    }
+
+    static long toNanos(LocalDateTime timestamp) {
+        return timestamp.toEpochSecond(ZoneOffset.UTC) * 1_000_000_000L + timestamp.getNano();
+    }
+
+    static LocalDateTime fromNanos(long nanos) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(nanos, 1_000_000_000L), (int) Math.floorMod(nanos, 1_000_000_000L), ZoneOffset.UTC);
+    }
+}
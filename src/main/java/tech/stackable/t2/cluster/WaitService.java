@@ -0,0 +1,124 @@
+package tech.stackable.t2.cluster;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import tech.stackable.t2.domain.Cluster;
+
+/**
+ * Waits of clusters during their launch, e.g. after Terraform apply.
+ *
+ * A waiting cluster occupies no thread: its launch continues when the wait has elapsed on a shared timer, or when the
+ * wait is skipped.
+ */
+@Component
+public class WaitService {
+
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("t2-wait-"));
+
+    /**
+     * Current waits by cluster ID (a cluster may run several wait stages concurrently)
+     */
+    private final Map<UUID, Set<Wait>> waits = new ConcurrentHashMap<>();
+
+    @Autowired
+    private ClusterRegistry clusterRegistry;
+
+    @PreDestroy
+    public void shutdown() {
+        this.timer.shutdownNow();
+    }
+
+    /**
+     * Lets the given cluster wait.
+     *
+     * @param cluster  cluster
+     * @param duration duration of the wait
+     * @return future which is completed with <code>true</code> when the wait has elapsed, with <code>false</code> when
+     *         it has been skipped
+     */
+    public CompletableFuture<Boolean> wait(Cluster cluster, Duration duration) {
+        Wait wait = new Wait(cluster, LocalDateTime.now().plus(duration));
+        this.waits.compute(cluster.getId(), (id, waits) -> {
+            Set<Wait> result = waits != null ? waits : new HashSet<>();
+            result.add(wait);
+            updateWaitingUntil(cluster, result);
+            return result;
+        });
+        wait.timeout = this.timer.schedule(() -> finish(wait, true), duration.toMillis(), TimeUnit.MILLISECONDS);
+        return wait.result;
+    }
+
+    /**
+     * Ends the current waits of the given cluster early.
+     *
+     * @param id ID of the cluster
+     * @return <code>true</code> if the cluster was waiting, <code>false</code> otherwise
+     */
+    public boolean skip(UUID id) {
+        Set<Wait> skipped = this.waits.remove(id);
+        if (skipped == null) {
+            return false;
+        }
+        for (Wait wait : skipped) {
+            wait.cluster.setWaitingUntil(null);
+            // the timeout is not set yet if the wait is skipped right after it has been started, it finds the wait finished then
+            if (wait.timeout != null) {
+                wait.timeout.cancel(false);
+            }
+            wait.result.complete(false);
+        }
+        this.clusterRegistry.markChanged();
+        return true;
+    }
+
+    private void finish(Wait wait, boolean elapsed) {
+        boolean[] removed = { false };
+        this.waits.computeIfPresent(wait.cluster.getId(), (id, waits) -> {
+            removed[0] = waits.remove(wait);
+            updateWaitingUntil(wait.cluster, waits);
+            return waits.isEmpty() ? null : waits;
+        });
+        if (removed[0]) {
+            wait.result.complete(elapsed);
+        }
+    }
+
+    private void updateWaitingUntil(Cluster cluster, Set<Wait> waits) {
+        cluster.setWaitingUntil(waits.stream().map(wait -> wait.until).max(Comparator.naturalOrder()).orElse(null));
+        this.clusterRegistry.markChanged();
+    }
+
+    /**
+     * Wait of a cluster
+     */
+    private static class Wait {
+
+        private final Cluster cluster;
+        private final LocalDateTime until;
+        private final CompletableFuture<Boolean> result = new CompletableFuture<>();
+        private volatile ScheduledFuture<?> timeout;
+
+        private Wait(Cluster cluster, LocalDateTime until) {
+            this.cluster = cluster;
+            this.until = until;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package tech.stackable.t2.cluster;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import tech.stackable.t2.domain.Cluster;
+import tech.stackable.t2.domain.Status;
+import tech.stackable.t2.files.FileService;
+
+/**
+ * Garbage collection of the workspace.
+ *
+ * The working directories of terminated clusters are packed into archives (one zip file per cluster) once the
+ * termination is older than the configured retention, and the expanded working directories are deleted. The logs and
+ * the files of the clusters can still be read from the archives (see {@link FileService}). Snapshots of the common
+ * template files which are no longer linked by a working directory are deleted.
+ */
+@Component
+public class WorkspaceCollector {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(WorkspaceCollector.class);
+
+    /**
+     * Statuses of clusters whose working directories can be archived
+     */
+    private static final Set<Status> COLLECTABLE_STATUSES = EnumSet.of(Status.TERMINATED, Status.TERMINATED_MANUALLY);
+
+    @Autowired
+    private FileService fileService;
+
+    @Autowired
+    private ClusterRegistry clusterRegistry;
+
+    @Autowired
+    private ClusterArchive clusterArchive;
+
+    private final boolean enabled;
+
+    private final Duration retention;
+
+    private final long maxBytesPerSecond;
+
+    private final Duration unpackedRetention;
+
+    public WorkspaceCollector(
+            @Value("${t2.workspace.gc.enabled:true}") boolean enabled,
+            @Value("${t2.workspace.gc.retention-hours:24}") long retentionHours,
+            @Value("${t2.workspace.gc.max-bytes-per-second:10485760}") long maxBytesPerSecond,
+            @Value("${t2.workspace.gc.unpacked-retention-minutes:60}") long unpackedRetentionMinutes) {
+        this.enabled = enabled;
+        this.retention = Duration.ofHours(retentionHours);
+        this.maxBytesPerSecond = maxBytesPerSecond;
+        this.unpackedRetention = Duration.ofMinutes(unpackedRetentionMinutes);
+    }
+
+    /**
+     * Archives the working directories of the clusters terminated before the retention.
+     */
+    @Scheduled(initialDelayString = "${t2.workspace.gc.interval-ms:3600000}", fixedDelayString = "${t2.workspace.gc.interval-ms:3600000}")
+    public void collect() {
+        this.fileService.cleanUpUnpackedArchives(this.unpackedRetention);
+        this.fileService.cleanUpSnapshots();
+        if (!this.enabled) {
+            return;
+        }
+
+        LocalDateTime threshold = LocalDateTime.now().minus(this.retention);
+        int archived = 0;
+        for (UUID clusterId : this.fileService.workingDirectoryIds()) {
+            Optional<Cluster> cluster = this.clusterRegistry.get(clusterId).or(() -> this.clusterArchive.get(clusterId));
+            if (cluster.isEmpty() || !isCollectable(cluster.get(), threshold)) {
+                continue;
+            }
+            try {
+                this.fileService.archiveWorkingDirectory(clusterId, this.maxBytesPerSecond);
+                archived++;
+            } catch (IOException e) {
+                LOGGER.warn("Working directory of cluster {} could not be archived.", clusterId, e);
+            }
+        }
+        if (archived > 0) {
+            LOGGER.info("Archived the working directories of {} terminated clusters.", archived);
+        }
+    }
+
+    private static boolean isCollectable(Cluster cluster, LocalDateTime threshold) {
+        if (!COLLECTABLE_STATUSES.contains(cluster.getStatus())) {
+            return false;
+        }
+        LocalDateTime lastChangedAt = Optional.ofNullable(cluster.getLastChangedAt()).orElse(cluster.getDateTimeCreated());
+        return lastChangedAt.isBefore(threshold);
+    }
+}
@@ -0,0 +1,268 @@
+package tech.stackable.t2.cluster;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.annotation.PostConstruct;
+
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.info.Info;
+import org.springframework.boot.actuate.info.InfoContributor;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import tech.stackable.t2.domain.Provider;
+import tech.stackable.t2.files.FileService;
+import tech.stackable.t2.terraform.TerraformProviderCache;
+import tech.stackable.t2.terraform.TerraformResult;
+import tech.stackable.t2.terraform.TerraformService;
+
+/**
+ * Pool of working directories per template which have been materialized and initialized (<code>terraform init</code>)
+ * in advance.
+ *
+ * The size of the pool of a template is configured with <code>t2.pool.size.&lt;template&gt;</code> (default 0, i.e. no
+ * pool). The pools are refilled in the background by jobs of the {@link LaunchScheduler}. A pooled directory is claimed
+ * by moving it to the working directory of the new cluster, which is atomic, so every pooled directory is claimed only
+ * once.
+ *
+ * Every pooled directory is named after the fingerprint of the template files it was built from. Directories of a
+ * template which has changed since are not claimed anymore and are replaced by the next refill, so a pooled launch
+ * gets the same template files as a launch without pool. The pools are rebuilt on every start of T2.
+ */
+@Component
+public class WorkspacePool implements InfoContributor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(WorkspacePool.class);
+
+    /**
+     * Prefix of directories which are still being built
+     */
+    private static final String BUILDING_PREFIX = ".building-";
+
+    /**
+     * Length of the prefix of the template fingerprint in the names of pooled directories
+     */
+    private static final int FINGERPRINT_LENGTH = 16;
+
+    @Autowired
+    private FileService fileService;
+
+    @Autowired
+    private TerraformService terraformService;
+
+    @Autowired
+    private TerraformProviderCache terraformProviderCache;
+
+    @Autowired
+    private LaunchScheduler launchScheduler;
+
+    private final Environment environment;
+
+    /**
+     * Configured pool sizes by template (only templates with a pool).
+     */
+    private final Map<String, Integer> poolSizes = new LinkedHashMap<>();
+
+    /**
+     * Number of directories being built by template.
+     */
+    private final Map<String, AtomicInteger> building = new ConcurrentHashMap<>();
+
+    private final Map<String, AtomicLong> hits = new ConcurrentHashMap<>();
+
+    private final Map<String, AtomicLong> misses = new ConcurrentHashMap<>();
+
+    public WorkspacePool(Environment environment) {
+        this.environment = environment;
+    }
+
+    /**
+     * Reads the pool sizes and discards pooled directories of a previous run.
+     */
+    @PostConstruct
+    public void init() {
+        for (String templateName : this.fileService.templateNames()) {
+            int size = this.environment.getProperty("t2.pool.size." + templateName, Integer.class, 0);
+            if (size > 0) {
+                this.poolSizes.put(templateName, size);
+                this.building.put(templateName, new AtomicInteger());
+            }
+        }
+        try {
+            FileUtils.deleteDirectory(this.fileService.stateDirectory("pool").toFile());
+        } catch (IOException e) {
+            LOGGER.warn("Pooled working directories of the previous run could not be deleted.", e);
+        }
+        if (!this.poolSizes.isEmpty()) {
+            LOGGER.info("Workspace pool sizes: {}", this.poolSizes);
+        }
+    }
+
+    /**
+     * Claims a pooled working directory for the given template and moves it to the given location.
+     *
+     * @param templateName     name of the template
+     * @param workingDirectory location of the new working directory, must not exist
+     * @return <code>true</code> if a pooled directory was claimed, <code>false</code> if the pool is empty
+     */
+    public boolean claim(String templateName, Path workingDirectory) {
+        if (!this.poolSizes.containsKey(templateName)) {
+            return false;
+        }
+        for (Path pooledDirectory : pooledDirectories(templateName, fingerprint(templateName))) {
+            try {
+                // the move fails if another request has claimed the directory in the meantime
+                this.fileService.moveDirectory(pooledDirectory, workingDirectory);
+                counter(this.hits, templateName).incrementAndGet();
+                return true;
+            } catch (IOException e) {
+                LOGGER.debug("Pooled directory {} could not be claimed.", pooledDirectory, e);
+            }
+        }
+        counter(this.misses, templateName).incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Submits jobs to refill the pools, after discarding the directories of templates which have changed.
+     *
+     * At most one directory per template is built at a time, so the pool does not crowd out the launches.
+     */
+    @Scheduled(initialDelayString = "${t2.pool.refill-interval-ms:10000}", fixedDelayString = "${t2.pool.refill-interval-ms:10000}")
+    public void refill() {
+        this.poolSizes.forEach((templateName, size) -> {
+            AtomicInteger buildingDirectories = this.building.get(templateName);
+            discardOutdated(templateName);
+            if (buildingDirectories.get() == 0 && pooledDirectories(templateName, fingerprint(templateName)).size() < size) {
+                buildingDirectories.incrementAndGet();
+                this.launchScheduler.submit(Provider.ofTemplate(templateName), () -> {
+                    try {
+                        build(templateName);
+                    } finally {
+                        buildingDirectories.decrementAndGet();
+                    }
+                }, queuePosition -> {
+                });
+            }
+        });
+    }
+
+    @Override
+    public void contribute(Info.Builder builder) {
+        Map<String, Object> pools = new LinkedHashMap<>();
+        this.poolSizes.forEach((templateName, size) -> {
+            Map<String, Object> details = new LinkedHashMap<>();
+            details.put("size", size);
+            details.put("available", pooledDirectories(templateName, fingerprint(templateName)).size());
+            details.put("hits", counter(this.hits, templateName).get());
+            details.put("misses", counter(this.misses, templateName).get());
+            pools.put(templateName, details);
+        });
+        builder.withDetail("workspacePool", pools);
+    }
+
+    /**
+     * Builds a new pooled directory for the given template.
+     *
+     * The directory is built under a temporary name and only becomes available when it is complete.
+     *
+     * @param templateName name of the template
+     */
+    private void build(String templateName) {
+        Path poolDirectory = poolDirectory(templateName);
+        Path directory = poolDirectory.resolve(BUILDING_PREFIX + UUID.randomUUID());
+        try {
+            // taken before the template is materialized, so a change during the build makes the directory outdated
+            String name = fingerprint(templateName) + "-" + UUID.randomUUID();
+            this.fileService.materializeTemplate(directory, templateName);
+            this.terraformProviderCache.prepareWorkingDirectory(templateName, directory);
+            TerraformResult result = this.terraformService.init(directory, directory.resolve("cluster.log"));
+            if (result != TerraformResult.SUCCESS) {
+                LOGGER.warn("Terraform init failed for pooled directory of template {}, see {}.", templateName, directory.resolve("cluster.log"));
+                FileUtils.deleteDirectory(directory.toFile());
+                return;
+            }
+            this.fileService.moveDirectory(directory, poolDirectory.resolve(name));
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Pooled directory of template {} could not be built.", templateName, e);
+            FileUtils.deleteQuietly(directory.toFile());
+        }
+    }
+
+    /**
+     * Deletes the pooled directories of the given template which have been built from outdated template files.
+     *
+     * @param templateName name of the template
+     */
+    private void discardOutdated(String templateName) {
+        String fingerprint = fingerprint(templateName);
+        for (Path directory : pooledDirectories(templateName, null)) {
+            if (directory.getFileName().toString().startsWith(fingerprint + "-")) {
+                continue;
+            }
+            // renamed first, so that the directory cannot be claimed while it is deleted
+            Path discarded = directory.resolveSibling(BUILDING_PREFIX + directory.getFileName());
+            try {
+                Files.move(directory, discarded, ATOMIC_MOVE);
+                LOGGER.info("Pooled directory {} discarded, template {} has changed.", directory, templateName);
+                FileUtils.deleteDirectory(discarded.toFile());
+            } catch (IOException e) {
+                LOGGER.debug("Outdated pooled directory {} could not be discarded.", directory, e);
+            }
+        }
+    }
+
+    /**
+     * Lists the available pooled directories of the given template.
+     *
+     * @param templateName name of the template
+     * @param fingerprint  fingerprint of the template files the directories must have been built from, <code>null</code>
+     *                     for all directories
+     * @return available pooled directories
+     */
+    private List<Path> pooledDirectories(String templateName, String fingerprint) {
+        try (Stream<Path> directories = Files.list(poolDirectory(templateName))) {
+            return directories
+                    .filter(directory -> !directory.getFileName().toString().startsWith(BUILDING_PREFIX))
+                    .filter(directory -> fingerprint == null || directory.getFileName().toString().startsWith(fingerprint + "-"))
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            LOGGER.warn("Pool of template {} could not be listed.", templateName, e);
+            return List.of();
+        }
+    }
+
+    private String fingerprint(String templateName) {
+        return this.fileService.templateFingerprint(templateName).substring(0, FINGERPRINT_LENGTH);
+    }
+
+    private Path poolDirectory(String templateName) {
+        Path poolDirectory = this.fileService.stateDirectory("pool").resolve(templateName);
+        try {
+            return Files.createDirectories(poolDirectory);
+        } catch (IOException e) {
+            throw new RuntimeException(String.format("Pool directory %s could not be created.", poolDirectory), e);
+        }
+    }
+
+    private static AtomicLong counter(Map<String, AtomicLong> counters, String templateName) {
+        return counters.computeIfAbsent(templateName, key -> new AtomicLong());
+    }
+}
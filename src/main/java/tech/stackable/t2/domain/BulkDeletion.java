@@ -0,0 +1,164 @@
+package tech.stackable.t2.domain;
+
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Termination of a set of clusters")
+public class BulkDeletion {
+
+    @Schema(description = "ID of the bulk deletion", required = true)
+    private final UUID id;
+
+    @Schema(description = "Timestamp of the request", required = true)
+    private final LocalDateTime dateTimeCreated;
+
+    @Schema(description = "Maximum number of clusters terminated at the same time", required = true)
+    private final int maxParallel;
+
+    @Schema(description = "Clusters to be terminated and their progress", required = true)
+    private final List<Item> items;
+
+    private volatile LocalDateTime dateTimeFinished;
+
+    public BulkDeletion(UUID id, int maxParallel, List<Item> items) {
+        this.id = id;
+        this.dateTimeCreated = LocalDateTime.now();
+        this.maxParallel = maxParallel;
+        this.items = List.copyOf(items);
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public LocalDateTime getDateTimeCreated() {
+        return dateTimeCreated;
+    }
+
+    @Schema(description = "Timestamp when all clusters were processed, only present when the bulk deletion has finished", required = false)
+    public LocalDateTime getDateTimeFinished() {
+        return dateTimeFinished;
+    }
+
+    public void setDateTimeFinished(LocalDateTime dateTimeFinished) {
+        this.dateTimeFinished = dateTimeFinished;
+    }
+
+    public int getMaxParallel() {
+        return maxParallel;
+    }
+
+    public List<Item> getItems() {
+        return items;
+    }
+
+    @Schema(description = "Number of clusters in each state", required = true)
+    public Map<State, Long> getSummary() {
+        Map<State, Long> summary = new EnumMap<>(State.class);
+        for (State state : State.values()) {
+            summary.put(state, 0L);
+        }
+        for (Item item : this.items) {
+            summary.merge(item.getState(), 1L, Long::sum);
+        }
+        return summary;
+    }
+
+    /**
+     * State of a cluster in a bulk deletion
+     */
+    @Schema(description = "State of a cluster in a bulk deletion")
+    public enum State {
+
+        /**
+         * waiting to be terminated
+         */
+        PENDING,
+
+        /**
+         * termination queued or running
+         */
+        TERMINATING,
+
+        TERMINATED,
+
+        FAILED,
+
+        /**
+         * not terminated (e.g. not running)
+         */
+        SKIPPED
+    }
+
+    @Schema(description = "Cluster in a bulk deletion")
+    public static class Item {
+
+        @Schema(description = "ID of the cluster", required = true)
+        private final UUID clusterId;
+
+        private final Cluster cluster;
+
+        private volatile State state;
+
+        private volatile String message;
+
+        public Item(UUID clusterId, Cluster cluster) {
+            this.clusterId = clusterId;
+            this.cluster = cluster;
+            this.state = State.PENDING;
+        }
+
+        public UUID getClusterId() {
+            return clusterId;
+        }
+
+        @Schema(description = "State of the cluster in the bulk deletion", required = true)
+        public State getState() {
+            State currentState = this.state;
+            if (currentState != State.TERMINATING) {
+                return currentState;
+            }
+            switch (this.cluster.getStatus()) {
+            case TERMINATED:
+                return State.TERMINATED;
+            case TERMINATION_FAILED:
+                return State.FAILED;
+            default:
+                return State.TERMINATING;
+            }
+        }
+
+        public void setState(State state) {
+            this.state = state;
+        }
+
+        @Schema(description = "Position of the termination in the launch queue, only present while it is waiting for a free slot", required = false)
+        public Integer getQueuePosition() {
+            return this.state == State.TERMINATING ? this.cluster.getQueuePosition() : null;
+        }
+
+        @Schema(description = "Reason why the cluster was skipped or failed", required = false)
+        public String getMessage() {
+            return message;
+        }
+
+        public void setMessage(String message) {
+            this.message = message;
+        }
+
+        /**
+         * @return the cluster, <code>null</code> if there is no cluster with the ID
+         */
+        @JsonIgnore
+        public Cluster getCluster() {
+            return cluster;
+        }
+    }
+}
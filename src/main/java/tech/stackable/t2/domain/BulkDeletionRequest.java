@@ -0,0 +1,44 @@
+package tech.stackable.t2.domain;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.UUID;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Selection of the clusters to be terminated, either by ID or by status and age")
+public class BulkDeletionRequest {
+
+    @Schema(description = "IDs of the clusters to be terminated", required = false)
+    private Set<UUID> ids;
+
+    @Schema(description = "Statuses of the clusters to be terminated (if no IDs are given), only running clusters can be terminated", required = false)
+    private Set<Status> status;
+
+    @Schema(description = "Only clusters created before this timestamp are terminated (if no IDs are given)", required = false)
+    private LocalDateTime createdBefore;
+
+    public Set<UUID> getIds() {
+        return ids;
+    }
+
+    public void setIds(Set<UUID> ids) {
+        this.ids = ids;
+    }
+
+    public Set<Status> getStatus() {
+        return status;
+    }
+
+    public void setStatus(Set<Status> status) {
+        this.status = status;
+    }
+
+    public LocalDateTime getCreatedBefore() {
+        return createdBefore;
+    }
+
+    public void setCreatedBefore(LocalDateTime createdBefore) {
+        this.createdBefore = createdBefore;
+    }
+}
@@ -1,10 +1,11 @@
 package tech.stackable.t2.domain;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.commons.lang3.StringUtils;
 
@@ -17,24 +18,74 @@ public class Cluster {
     private UUID id;
 
     @Schema(description = "Status", required = true)
-    private Status status;
+    private final AtomicReference<Status> status;
+
+    @Schema(description = "Template the cluster is launched from", required = false)
+    private String template;
+
+    @Schema(description = "Position in the launch queue (1 = next to be started), only present while the cluster is waiting for a free slot", required = false)
+    private volatile Integer queuePosition;
+
+    @Schema(description = "End of the current wait of the launch (e.g. after Terraform apply), only present while the cluster is waiting", required = false)
+    private volatile LocalDateTime waitingUntil;
+
+    @Schema(description = "Name of the last completed stage of the launch", required = false)
+    private volatile String launchStage;
+
+    @Schema(description = "Timestamp of the completion of the last stage of the launch", required = false)
+    private volatile LocalDateTime launchStageCompletedAt;
+
+    @Schema(description = "Timing of the stages of the launch which have been run since T2 was started", required = false)
+    private final CopyOnWriteArrayList<StageTiming> stageTimings = new CopyOnWriteArrayList<>();
 
     @Schema(description = "Timestamp of cluster creation", required = true)
     private LocalDateTime dateTimeCreated;
 
     @Schema(description = "Events in the cluster's lifecycle", required = false)
-    private List<ClusterEvent> events;
+    private final EventLog events = new EventLog();
+
+    private final CopyOnWriteArrayList<ClusterListener> listeners = new CopyOnWriteArrayList<>();
 
     public Cluster() {
         this(UUID.randomUUID());
     }
 
     public Cluster(UUID id) {
+        this(id, LocalDateTime.now());
+        this.events.append(new ClusterEvent("Cluster creation started.", this.dateTimeCreated));
+    }
+
+    private Cluster(UUID id, LocalDateTime dateTimeCreated) {
         this.id = id;
-        this.status = Status.NEW;
-        this.dateTimeCreated = LocalDateTime.now();
-        this.events = new ArrayList<>();
-        this.events.add(new ClusterEvent("Cluster creation started.", this.dateTimeCreated));
+        this.status = new AtomicReference<>(Status.NEW);
+        this.dateTimeCreated = dateTimeCreated;
+    }
+
+    /**
+     * Restores a cluster (e.g. from persistent storage).
+     * 
+     * The restored cluster has no events, they have to be restored with {@link #restoreEvent(ClusterEvent)}.
+     * 
+     * @param id              ID of the cluster
+     * @param template        template the cluster was launched from
+     * @param dateTimeCreated timestamp of cluster creation
+     * @param status          status of the cluster
+     * @return restored cluster
+     */
+    public static Cluster restore(UUID id, String template, LocalDateTime dateTimeCreated, Status status) {
+        Cluster cluster = new Cluster(id, dateTimeCreated);
+        cluster.template = template;
+        cluster.status.set(status);
+        return cluster;
+    }
+
+    /**
+     * Registers a listener which is informed about all further changes of this cluster (once, even if registered again).
+     * 
+     * @param listener listener
+     */
+    public void addListener(ClusterListener listener) {
+        this.listeners.addIfAbsent(listener);
     }
 
     public UUID getId() {
@@ -46,38 +97,182 @@ public class Cluster {
     }
 
     public Status getStatus() {
-        return status;
+        return status.get();
     }
 
     public void setStatus(Status status) {
-        this.status = status;
+        this.status.set(status);
+        notifyStatusChanged();
     }
 
-    public void addEvent(String description) {
+    /**
+     * Changes the status of this cluster if it currently has the expected status (compare-and-set).
+     * 
+     * @param expected expected current status
+     * @param status   new status
+     * @return <code>true</code> if the status was changed, <code>false</code> if the cluster did not have the expected status
+     */
+    public boolean transition(Status expected, Status status) {
+        if (!this.status.compareAndSet(expected, status)) {
+            return false;
+        }
+        notifyStatusChanged();
+        return true;
+    }
+
+    /**
+     * Informs the listeners about a status change.
+     * 
+     * The listeners always get the latest status, so if concurrent changes are reported in a different order than they
+     * happened, the last status reported is still the current one.
+     */
+    private void notifyStatusChanged() {
         synchronized (this.events) {
-            this.events.add(new ClusterEvent(description, this.dateTimeCreated));
+            Status currentStatus = this.status.get();
+            for (ClusterListener listener : this.listeners) {
+                listener.statusChanged(this, currentStatus);
+            }
         }
     }
 
-    public LocalDateTime getDateTimeCreated() {
-        return dateTimeCreated;
+    public String getTemplate() {
+        return template;
     }
 
-    public List<ClusterEvent> getEvents() {
+    public void setTemplate(String template) {
+        this.template = template;
+    }
+
+    public Integer getQueuePosition() {
+        return queuePosition;
+    }
+
+    public void setQueuePosition(Integer queuePosition) {
+        this.queuePosition = queuePosition;
+    }
+
+    public LocalDateTime getWaitingUntil() {
+        return waitingUntil;
+    }
+
+    public void setWaitingUntil(LocalDateTime waitingUntil) {
+        this.waitingUntil = waitingUntil;
+    }
+
+    /**
+     * Remaining time of the current wait of the launch.
+     * 
+     * @return remaining seconds, <code>null</code> if the cluster is not waiting
+     */
+    @Schema(description = "Remaining seconds of the current wait of the launch, only present while the cluster is waiting", required = false)
+    public Long getRemainingWaitSeconds() {
+        LocalDateTime until = this.waitingUntil;
+        return until != null ? Math.max(0, Duration.between(LocalDateTime.now(), until).toSeconds()) : null;
+    }
+
+    public String getLaunchStage() {
+        return launchStage;
+    }
+
+    public LocalDateTime getLaunchStageCompletedAt() {
+        return launchStageCompletedAt;
+    }
+
+    /**
+     * Records the completion of a stage of the launch and informs the listeners, so that the stage is checkpointed.
+     * 
+     * @param stage name of the completed stage
+     */
+    public void completeLaunchStage(String stage) {
         synchronized (this.events) {
-            return Collections.unmodifiableList(this.events);
+            this.launchStage = stage;
+            this.launchStageCompletedAt = LocalDateTime.now();
+            for (ClusterListener listener : this.listeners) {
+                listener.launchStageCompleted(this, stage, this.launchStageCompletedAt);
+            }
         }
     }
 
-    public LocalDateTime getLastChangedAt() {
-        if (this.events.isEmpty()) {
-            return null;
+    /**
+     * Restores the last completed stage of the launch (e.g. from persistent storage) without informing the listeners.
+     * 
+     * @param stage       name of the last completed stage
+     * @param completedAt timestamp of its completion
+     */
+    public void restoreLaunchStage(String stage, LocalDateTime completedAt) {
+        synchronized (this.events) {
+            this.launchStage = stage;
+            this.launchStageCompletedAt = completedAt;
+        }
+    }
+
+    public List<StageTiming> getStageTimings() {
+        return List.copyOf(this.stageTimings);
+    }
+
+    public void addStageTiming(StageTiming timing) {
+        this.stageTimings.add(timing);
+    }
+
+    public void addEvent(String description) {
+        synchronized (this.events) {
+            ClusterEvent event = new ClusterEvent(description, this.dateTimeCreated);
+            int sequence = this.events.append(event);
+            for (ClusterListener listener : this.listeners) {
+                listener.eventAdded(this, event, sequence);
+            }
         }
+    }
+
+    /**
+     * Appends an existing event (e.g. from persistent storage) without informing the listeners.
+     * 
+     * @param event event to be restored
+     */
+    public void restoreEvent(ClusterEvent event) {
         synchronized (this.events) {
-            return this.events.get(this.events.size() - 1).getTimestamp();
+            this.events.append(event);
         }
     }
 
+    public LocalDateTime getDateTimeCreated() {
+        return dateTimeCreated;
+    }
+
+    /**
+     * The events of this cluster, as far as they have been added at the time of the call.
+     * 
+     * @return immutable list of the events
+     */
+    public List<ClusterEvent> getEvents() {
+        return this.events.from(0);
+    }
+
+    /**
+     * The events of this cluster starting at the given position (sequence number), as far as they have been added at
+     * the time of the call.
+     * 
+     * @param fromIndex position of the first event
+     * @return immutable list of the events, empty if there are no events at or after the given position
+     */
+    public List<ClusterEvent> getEvents(int fromIndex) {
+        return this.events.from(fromIndex);
+    }
+
+    /**
+     * Number of events of this cluster, i.e. the index of the next event.
+     * 
+     * @return number of events
+     */
+    public int getEventCount() {
+        return this.events.size();
+    }
+
+    public LocalDateTime getLastChangedAt() {
+        ClusterEvent lastEvent = this.events.last();
+        return lastEvent != null ? lastEvent.getTimestamp() : null;
+    }
+
     @Override
     public int hashCode() {
         final int prime = 31;
@@ -105,6 +300,6 @@ public class Cluster {
 
     @Override
     public String toString() {
-        return "Cluster [id=" + id + ", status=" + status + ", dateTimeCreated=" + dateTimeCreated + ", events=" + events + "]";
+        return "Cluster [id=" + id + ", status=" + status + ", template=" + template + ", dateTimeCreated=" + dateTimeCreated + ", events=" + getEvents() + "]";
     }
 }
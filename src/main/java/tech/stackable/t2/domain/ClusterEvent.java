@@ -17,12 +17,21 @@ public class ClusterEvent {
     @Schema(description = "description", required = true)
     private String description;
 
+    @Schema(description = "Sequence number (position in the cluster's list of events, starting with 0)", required = true)
+    private int sequence = -1;
+
     public ClusterEvent(String description, LocalDateTime clusterLaunchTimestamp) {
         this.timestamp = LocalDateTime.now();
         this.timeSinceClusterLaunch = Duration.between(clusterLaunchTimestamp, this.timestamp);
         this.description = description;
     }
 
+    public ClusterEvent(LocalDateTime timestamp, Duration timeSinceClusterLaunch, String description) {
+        this.timestamp = timestamp;
+        this.timeSinceClusterLaunch = timeSinceClusterLaunch;
+        this.description = description;
+    }
+
     public LocalDateTime getTimestamp() {
         return timestamp;
     }
@@ -34,4 +43,15 @@ public class ClusterEvent {
     public Duration getTimeSinceClusterLaunch() {
         return timeSinceClusterLaunch;
     }
+
+    public int getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Sets the sequence number when the event is appended to the {@link EventLog}.
+     */
+    void setSequence(int sequence) {
+        this.sequence = sequence;
+    }
 }
@@ -0,0 +1,84 @@
+package tech.stackable.t2.domain;
+
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Group of clusters launched from one definition")
+public class ClusterGroup {
+
+    @Schema(description = "ID of the group", required = true)
+    private final UUID id;
+
+    @Schema(description = "Timestamp of the request", required = true)
+    private final LocalDateTime dateTimeCreated;
+
+    @Schema(description = "Template the clusters are launched from", required = true)
+    private final String template;
+
+    @Schema(description = "Maximum number of clusters of the group launched at the same time", required = true)
+    private final int maxParallel;
+
+    private final List<Cluster> clusters;
+
+    public ClusterGroup(UUID id, LocalDateTime dateTimeCreated, String template, int maxParallel, List<Cluster> clusters) {
+        this.id = id;
+        this.dateTimeCreated = dateTimeCreated;
+        this.template = template;
+        this.maxParallel = maxParallel;
+        this.clusters = List.copyOf(clusters);
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public LocalDateTime getDateTimeCreated() {
+        return dateTimeCreated;
+    }
+
+    public String getTemplate() {
+        return template;
+    }
+
+    public int getMaxParallel() {
+        return maxParallel;
+    }
+
+    @Schema(description = "Current state of the clusters of the group", required = true)
+    public List<ClusterSummary> getClusters() {
+        return this.clusters.stream().map(ClusterSummary::of).collect(Collectors.toList());
+    }
+
+    @Schema(description = "Number of clusters of the group in each status (only statuses which occur)", required = true)
+    public Map<Status, Long> getSummary() {
+        Map<Status, Long> summary = new EnumMap<>(Status.class);
+        for (Cluster cluster : this.clusters) {
+            summary.merge(cluster.getStatus(), 1L, Long::sum);
+        }
+        return summary;
+    }
+
+    /**
+     * @return IDs of the clusters of the group
+     */
+    @JsonIgnore
+    public List<UUID> getClusterIds() {
+        return this.clusters.stream().map(Cluster::getId).collect(Collectors.toList());
+    }
+
+    /**
+     * @return the clusters of the group
+     */
+    @JsonIgnore
+    public List<Cluster> getMembers() {
+        return clusters;
+    }
+}
@@ -0,0 +1,39 @@
+package tech.stackable.t2.domain;
+
+import java.time.LocalDateTime;
+
+/**
+ * Listener for changes of a {@link Cluster}.
+ * 
+ * Listeners are called synchronously while the cluster is locked, so the calls for one cluster arrive in the order of
+ * the changes. Implementations must return quickly.
+ */
+public interface ClusterListener {
+
+    /**
+     * The status of the cluster has changed.
+     * 
+     * @param cluster cluster
+     * @param status  new status
+     */
+    void statusChanged(Cluster cluster, Status status);
+
+    /**
+     * An event was added to the cluster.
+     * 
+     * @param cluster cluster
+     * @param event   new event
+     * @param index   position of the new event in the cluster's list of events
+     */
+    void eventAdded(Cluster cluster, ClusterEvent event, int index);
+
+    /**
+     * A stage of the cluster's launch has been completed.
+     * 
+     * @param cluster     cluster
+     * @param stage       name of the completed stage
+     * @param completedAt timestamp of the completion
+     */
+    default void launchStageCompleted(Cluster cluster, String stage, LocalDateTime completedAt) {
+    }
+}
@@ -0,0 +1,35 @@
+package tech.stackable.t2.domain;
+
+import java.time.LocalDateTime;
+
+/**
+ * Orders in which lists of clusters can be sorted.
+ */
+public enum ClusterSort {
+
+    /**
+     * by the timestamp of cluster creation
+     */
+    CREATED,
+
+    /**
+     * by the timestamp of the last event of the cluster
+     */
+    LAST_CHANGED;
+
+    /**
+     * Sort key of the given cluster.
+     * 
+     * @param cluster cluster
+     * @return timestamp the cluster is sorted by
+     */
+    public LocalDateTime key(Cluster cluster) {
+        if (this == LAST_CHANGED) {
+            LocalDateTime lastChangedAt = cluster.getLastChangedAt();
+            if (lastChangedAt != null) {
+                return lastChangedAt;
+            }
+        }
+        return cluster.getDateTimeCreated();
+    }
+}
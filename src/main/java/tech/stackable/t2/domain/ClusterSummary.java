@@ -0,0 +1,95 @@
+package tech.stackable.t2.domain;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Cluster without its events")
+public class ClusterSummary {
+
+    @Schema(description = "ID", required = true)
+    private final UUID id;
+
+    @Schema(description = "Status", required = true)
+    private final Status status;
+
+    @Schema(description = "Template the cluster is launched from", required = false)
+    private final String template;
+
+    @Schema(description = "Position in the launch queue (1 = next to be started), only present while the cluster is waiting for a free slot", required = false)
+    private final Integer queuePosition;
+
+    @Schema(description = "End of the current wait of the launch (e.g. after Terraform apply), only present while the cluster is waiting", required = false)
+    private final LocalDateTime waitingUntil;
+
+    @Schema(description = "Remaining seconds of the current wait of the launch, only present while the cluster is waiting", required = false)
+    private final Long remainingWaitSeconds;
+
+    @Schema(description = "Timestamp of cluster creation", required = true)
+    private final LocalDateTime dateTimeCreated;
+
+    @Schema(description = "Timestamp of the last event in the cluster's lifecycle", required = false)
+    private final LocalDateTime lastChangedAt;
+
+    @Schema(description = "Number of events in the cluster's lifecycle", required = true)
+    private final int eventCount;
+
+    private ClusterSummary(Cluster cluster) {
+        this.id = cluster.getId();
+        this.status = cluster.getStatus();
+        this.template = cluster.getTemplate();
+        this.queuePosition = cluster.getQueuePosition();
+        this.waitingUntil = cluster.getWaitingUntil();
+        this.remainingWaitSeconds = cluster.getRemainingWaitSeconds();
+        this.dateTimeCreated = cluster.getDateTimeCreated();
+        this.lastChangedAt = cluster.getLastChangedAt();
+        this.eventCount = cluster.getEventCount();
+    }
+
+    /**
+     * Creates the summary of the given cluster.
+     * 
+     * @param cluster cluster
+     * @return summary of the current state of the cluster
+     */
+    public static ClusterSummary of(Cluster cluster) {
+        return new ClusterSummary(cluster);
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public String getTemplate() {
+        return template;
+    }
+
+    public Integer getQueuePosition() {
+        return queuePosition;
+    }
+
+    public LocalDateTime getWaitingUntil() {
+        return waitingUntil;
+    }
+
+    public Long getRemainingWaitSeconds() {
+        return remainingWaitSeconds;
+    }
+
+    public LocalDateTime getDateTimeCreated() {
+        return dateTimeCreated;
+    }
+
+    public LocalDateTime getLastChangedAt() {
+        return lastChangedAt;
+    }
+
+    public int getEventCount() {
+        return eventCount;
+    }
+}
@@ -0,0 +1,120 @@
+package tech.stackable.t2.domain;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Append-only log of the events of a cluster.
+ *
+ * Each event gets the next sequence number (its position in the log, starting with 0). Events are stored in chunks of
+ * fixed size which are never moved or changed once an event has been published, so readers need neither a lock nor a
+ * copy: they read the published size and can then access all events below it. Appending has to be serialized by the
+ * caller (see {@link Cluster}).
+ */
+public class EventLog {
+
+    private static final int CHUNK_SIZE = 64;
+
+    /**
+     * Chunks of events, replaced by a larger copy when it is full. Written before {@link #size}, so readers which have
+     * read the size see all chunks up to it.
+     */
+    private volatile ClusterEvent[][] chunks = new ClusterEvent[1][];
+
+    /**
+     * Number of published events.
+     */
+    private volatile int size = 0;
+
+    /**
+     * Appends an event and publishes it to readers (not thread-safe, appends must be serialized).
+     *
+     * @param event event
+     * @return sequence number of the event
+     */
+    int append(ClusterEvent event) {
+        int sequence = this.size;
+        int chunkIndex = sequence / CHUNK_SIZE;
+        ClusterEvent[][] currentChunks = this.chunks;
+        if (chunkIndex == currentChunks.length) {
+            currentChunks = Arrays.copyOf(currentChunks, currentChunks.length * 2);
+        }
+        if (currentChunks[chunkIndex] == null) {
+            currentChunks[chunkIndex] = new ClusterEvent[CHUNK_SIZE];
+        }
+        event.setSequence(sequence);
+        currentChunks[chunkIndex][sequence % CHUNK_SIZE] = event;
+        this.chunks = currentChunks;
+        this.size = sequence + 1;
+        return sequence;
+    }
+
+    /**
+     * @return number of events, i.e. the sequence number of the next event
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * @return the last event, <code>null</code> if there are no events
+     */
+    public ClusterEvent last() {
+        int currentSize = this.size;
+        return currentSize > 0 ? get(this.chunks, currentSize - 1) : null;
+    }
+
+    /**
+     * Reads the events from the given sequence number on, as they are published at the time of the call.
+     *
+     * The returned list is an immutable view, it does not change when further events are appended.
+     *
+     * @param fromSequence sequence number of the first event
+     * @return events, empty if there are no events at or after the given sequence number
+     */
+    public List<ClusterEvent> from(int fromSequence) {
+        int currentSize = this.size;
+        ClusterEvent[][] currentChunks = this.chunks;
+        int start = Math.max(0, fromSequence);
+        if (start >= currentSize) {
+            return Collections.emptyList();
+        }
+        return new EventList(currentChunks, start, currentSize);
+    }
+
+    private static ClusterEvent get(ClusterEvent[][] chunks, int sequence) {
+        return chunks[sequence / CHUNK_SIZE][sequence % CHUNK_SIZE];
+    }
+
+    /**
+     * Immutable view of a range of published events
+     */
+    private static class EventList extends AbstractList<ClusterEvent> implements RandomAccess {
+
+        private final ClusterEvent[][] chunks;
+        private final int start;
+        private final int end;
+
+        private EventList(ClusterEvent[][] chunks, int start, int end) {
+            this.chunks = chunks;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public ClusterEvent get(int index) {
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return EventLog.get(this.chunks, this.start + index);
+        }
+
+        @Override
+        public int size() {
+            return this.end - this.start;
+        }
+    }
+}
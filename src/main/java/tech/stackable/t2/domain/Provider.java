@@ -0,0 +1,52 @@
+package tech.stackable.t2.domain;
+
+import org.apache.commons.lang3.StringUtils;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * Cloud provider a cluster is launched on.
+ * 
+ * The provider is derived from the name of the template, e.g. <code>hcloud-debian-11</code> is launched on
+ * {@link #HCLOUD}.
+ */
+@Schema(description = "Cloud provider of a cluster")
+public enum Provider {
+
+    HCLOUD("hcloud"),
+    IONOS("ionos"),
+    AWS_EKS("aws-eks"),
+    GKE("gke"),
+    AZURE_AKS("azure-aks"),
+    OTHER("other");
+
+    private String key;
+
+    private Provider(String key) {
+        this.key = key;
+    }
+
+    /**
+     * Key of the provider as used in template names and configuration properties.
+     * 
+     * @return key of the provider
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * Derives the provider from the name of a template.
+     * 
+     * @param templateName name of the template
+     * @return provider of the template, {@link #OTHER} if the template cannot be assigned to a known provider
+     */
+    public static Provider ofTemplate(String templateName) {
+        for (Provider provider : values()) {
+            if (provider != OTHER && (StringUtils.equals(templateName, provider.key) || StringUtils.startsWith(templateName, provider.key + "-"))) {
+                return provider;
+            }
+        }
+        return OTHER;
+    }
+}
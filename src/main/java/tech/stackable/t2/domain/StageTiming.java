@@ -0,0 +1,53 @@
+package tech.stackable.t2.domain;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Timing of a stage of a cluster launch")
+public class StageTiming {
+
+    @Schema(description = "Name of the stage", required = true)
+    private final String stage;
+
+    @Schema(description = "Timestamp of the start of the stage", required = true)
+    private final LocalDateTime startedAt;
+
+    @Schema(description = "Duration of the stage including the delays between its tries", required = true)
+    private final Duration duration;
+
+    @Schema(description = "Number of tries", required = true)
+    private final int tries;
+
+    @Schema(description = "Was the stage successful?", required = true)
+    private final boolean successful;
+
+    public StageTiming(String stage, LocalDateTime startedAt, Duration duration, int tries, boolean successful) {
+        this.stage = stage;
+        this.startedAt = startedAt;
+        this.duration = duration;
+        this.tries = tries;
+        this.successful = successful;
+    }
+
+    public String getStage() {
+        return stage;
+    }
+
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+
+    public Duration getDuration() {
+        return duration;
+    }
+
+    public int getTries() {
+        return tries;
+    }
+
+    public boolean isSuccessful() {
+        return successful;
+    }
+}
@@ -6,6 +6,7 @@ import io.swagger.v3.oas.annotations.media.Schema;
 public enum Status {
 
     NEW,
+    QUEUED,
     LAUNCHING,
     LAUNCH_FAILED,
     RUNNING,
@@ -13,4 +14,13 @@ public enum Status {
     TERMINATION_FAILED,
     TERMINATED,
     TERMINATED_MANUALLY;
+
+    /**
+     * Is T2 working on a cluster with this status (i.e. the cluster will change without further requests)?
+     * 
+     * @return <code>true</code> if a launch or termination is pending or running
+     */
+    public boolean isInProgress() {
+        return this == NEW || this == QUEUED || this == LAUNCHING || this == TERMINATING;
+    }
 }
@@ -4,14 +4,39 @@ import static java.nio.file.Files.createDirectories;
 import static java.nio.file.Files.exists;
 import static java.nio.file.Files.isDirectory;
 import static java.nio.file.Files.isWritable;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
 import java.text.MessageFormat;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -20,11 +45,17 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.BeanCreationException;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.zeroturnaround.zip.FileSource;
+import org.zeroturnaround.zip.ZipEntrySource;
+import org.zeroturnaround.zip.ZipException;
+import org.zeroturnaround.zip.ZipUtil;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
 
 import tech.stackable.t2.api.MalformedClusterDefinitionException;
+import tech.stackable.t2.util.FingerprintUtil;
+import tech.stackable.t2.util.ThrottledInputStream;
 
 /**
  * This service deals with the working directory of a cluster and the template directory.
@@ -34,12 +65,62 @@ public class FileService {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(FileService.class);
 
+    private static final int UUID_LENGTH = 36;
+
+    /**
+     * Depth up to which the workspace is searched for links to snapshots of the common template files (e.g.
+     * <code>.t2/pool/&lt;template&gt;/&lt;directory&gt;/&lt;link&gt;</code>)
+     */
+    private static final int SNAPSHOT_LINK_MAX_DEPTH = 5;
+
     private Path templateDirectory;
     private Path workspaceDirectory;
 
-    public FileService(@Value("${t2.workspace.directory}") String workspaceDirectory, @Value("${t2.templates.directory}") String templateDirectory) {
+    private final Materialization materialization;
+
+    /**
+     * Snapshot of the common template files which is linked by the working directories (guarded by <code>this</code>).
+     */
+    private Path commonSnapshot;
+
+    /**
+     * Last modification of the common template files when the snapshot was taken (guarded by <code>this</code>).
+     */
+    private long commonSnapshotLastModified;
+
+    /**
+     * Held while snapshots are linked (read) and while unreferenced snapshots are deleted (write).
+     */
+    private final ReadWriteLock snapshotLock = new ReentrantReadWriteLock();
+
+    /**
+     * Interval in which the template files are checked for modifications
+     */
+    private final long checkIntervalMs;
+
+    /**
+     * Last modification of the template directories by directory, with the time it was checked.
+     */
+    private final Map<Path, LastModified> lastModified = new ConcurrentHashMap<>();
+
+    /**
+     * Fingerprints of the templates by name, with the last modification of their files.
+     */
+    private final Map<String, TemplateFingerprint> templateFingerprints = new ConcurrentHashMap<>();
+
+    public FileService(
+            @Value("${t2.workspace.directory}") String workspaceDirectory,
+            @Value("${t2.templates.directory}") String templateDirectory,
+            @Value("${t2.workspace.materialization:copy}") String materialization,
+            @Value("${t2.templates.check-interval-ms:10000}") long checkIntervalMs) {
         this.templateDirectory = assertIsDirectory(templateDirectory);
         this.workspaceDirectory = assertIsDirectory(workspaceDirectory);
+        this.checkIntervalMs = checkIntervalMs;
+        try {
+            this.materialization = Materialization.valueOf(materialization.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new BeanCreationException(String.format("Unknown working directory materialization '%s', must be 'copy' or 'link'.", materialization));
+        }
     }
 
     /**
@@ -55,16 +136,75 @@ public class FileService {
     }
 
     /**
-     * Creates a working directory using the given cluster definition (YAML).
+     * Resolves the directory of the given template.
      * 
-     * The creation includes the copying of the template files.
+     * @param templateName name of the template
+     * @return template directory
+     */
+    public Path templateDirectory(String templateName) {
+        Objects.requireNonNull(templateName);
+
+        return this.templateDirectory.resolve(templateName);
+    }
+
+    /**
+     * Lists the names of all available templates (templates prefixed with '_' are not available).
      * 
-     * @param workingDirectory  working directory location, must not be <code>null</code>
-     * @param clusterDefinition cluster definition
+     * @return names of the templates
+     */
+    public List<String> templateNames() {
+        try (Stream<Path> templates = Files.list(this.templateDirectory)) {
+            return templates
+                    .filter(Files::isDirectory)
+                    .map(template -> template.getFileName().toString())
+                    .filter(templateName -> !StringUtils.startsWith(templateName, "_"))
+                    .sorted()
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            LOGGER.error("Templates in {} could not be listed.", this.templateDirectory, e);
+            throw new RuntimeException(String.format("Templates in %s could not be listed.", this.templateDirectory));
+        }
+    }
+
+    /**
+     * Resolves a directory for T2's own state (e.g. the cluster registry) inside the workspace and creates it if needed.
+     * 
+     * @param name name of the state directory
+     * @return state directory
+     */
+    public Path stateDirectory(String name) {
+        Objects.requireNonNull(name);
+
+        return assertIsDirectory(this.workspaceDirectory.resolve(".t2").resolve(name).toString());
+    }
+
+    /**
+     * Reads the cluster definition which was written to the given working directory on its creation.
+     * 
+     * @param workingDirectory working directory location
+     * @return cluster definition, empty if not readable
      */
     @SuppressWarnings("unchecked")
-    public void createWorkingDirectory(Path workingDirectory, Map<String, Object> clusterDefinition) {
+    public Optional<Map<String, Object>> readClusterDefinition(Path workingDirectory) {
         Objects.requireNonNull(workingDirectory);
+
+        try {
+            return Optional.of(new ObjectMapper(new YAMLFactory()).readValue(workingDirectory.resolve("cluster.yaml").toFile(), Map.class));
+        } catch (IOException e) {
+            LOGGER.warn("Cluster definition in working directory {} could not be read.", workingDirectory, e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Reads the name of the template from the given cluster definition and checks if the template exists.
+     * 
+     * @param clusterDefinition cluster definition
+     * @return name of the template
+     * @throws MalformedClusterDefinitionException if the cluster definition does not reference an existing template
+     */
+    @SuppressWarnings("unchecked")
+    public String templateName(Map<String, Object> clusterDefinition) {
         Objects.requireNonNull(clusterDefinition);
 
         // Check if spec.template exists and is a String
@@ -87,25 +227,352 @@ public class FileService {
             throw new MalformedClusterDefinitionException(MessageFormat.format("The template {0} does not exist.", templateName));
         }
 
+        return templateName;
+    }
+
+    /**
+     * Creates a working directory using the given cluster definition (YAML).
+     * 
+     * The creation includes the copying of the template files.
+     * 
+     * @param workingDirectory  working directory location, must not be <code>null</code>
+     * @param clusterDefinition cluster definition
+     */
+    public void createWorkingDirectory(Path workingDirectory, Map<String, Object> clusterDefinition) {
+        Objects.requireNonNull(workingDirectory);
+        Objects.requireNonNull(clusterDefinition);
+
+        String templateName = templateName(clusterDefinition);
+
+        materializeTemplate(workingDirectory, templateName);
+        writeClusterDefinition(workingDirectory, clusterDefinition);
+    }
+
+    /**
+     * Creates the given directory (if needed) and copies the files of the given template into it.
+     * 
+     * In materialization mode <code>link</code>, the subdirectories of the common template files (Ansible roles,
+     * Terraform modules) are not copied but linked to an immutable snapshot. Only the files of the template itself are
+     * copied, as Terraform and Ansible write their output to the top level of the working directory.
+     * 
+     * @param directory    directory location, must not be <code>null</code>
+     * @param templateName name of the template
+     */
+    public void materializeTemplate(Path directory, String templateName) {
+        Objects.requireNonNull(directory);
+        Objects.requireNonNull(templateName);
+
+        Path templatePath = this.templateDirectory.resolve(templateName);
+
         try {
 
-            if (!Files.exists(workingDirectory)) {
-                Files.createDirectory(workingDirectory);
+            if (!Files.exists(directory)) {
+                Files.createDirectory(directory);
             }
 
-            // Write cluster definition to working directory
-            new ObjectMapper(new YAMLFactory()).writeValue(workingDirectory.resolve("cluster.yaml").toFile(), clusterDefinition);
+            // Copy (or link) files of the needed template to the directory
+            if (this.materialization == Materialization.LINK) {
+                this.snapshotLock.readLock().lock();
+                try {
+                    linkCommonFiles(directory, templatePath);
+                } finally {
+                    this.snapshotLock.readLock().unlock();
+                }
+            } else {
+                FileUtils.copyDirectory(templateDirectory.resolve("_common").toFile(), directory.toFile());
+            }
+            FileUtils.copyDirectory(templatePath.toFile(), directory.toFile());
 
-            // Copy files of the needed template to the working directory
-            FileUtils.copyDirectory(templateDirectory.resolve("_common").toFile(), workingDirectory.toFile());
-            FileUtils.copyDirectory(templatePath.toFile(), workingDirectory.toFile());
+        } catch (IOException e) {
+            LOGGER.error("Working directory {} could not be created.", directory, e);
+            throw new RuntimeException(String.format("Working directory %s could not be created.", directory));
+        }
+    }
 
+    /**
+     * Links the subdirectories of the common template files into the given directory, other files are copied.
+     * 
+     * Subdirectories which also exist in the template are copied, as the template's files are merged into them.
+     * 
+     * @param directory    directory location
+     * @param templatePath directory of the template
+     * @throws IOException on file system errors
+     */
+    private void linkCommonFiles(Path directory, Path templatePath) throws IOException {
+        Path snapshot = commonSnapshot();
+        try (Stream<Path> entries = Files.list(snapshot)) {
+            for (Path entry : entries.collect(Collectors.toList())) {
+                Path target = directory.resolve(entry.getFileName().toString());
+                if (Files.isDirectory(entry) && !Files.exists(templatePath.resolve(entry.getFileName().toString()))) {
+                    Files.createSymbolicLink(target, entry.toAbsolutePath());
+                } else if (Files.isDirectory(entry)) {
+                    FileUtils.copyDirectory(entry.toFile(), target.toFile());
+                } else {
+                    // not Files.copy, which would take over the permissions of the read-only snapshot
+                    FileUtils.copyFile(entry.toFile(), target.toFile());
+                }
+            }
+        }
+    }
+
+    /**
+     * Provides a snapshot of the common template files (<code>.t2/templates/&lt;fingerprint&gt;</code> in the workspace).
+     * 
+     * Linked working directories must not see changes of the common template files, e.g. the destruction of a cluster
+     * must use the Terraform modules it was launched with. A new snapshot is taken when the files have changed. The
+     * snapshot is read-only, so that it cannot be changed through one of the working directories linking it. Snapshots
+     * which are no longer linked are deleted by {@link #cleanUpSnapshots()}.
+     * 
+     * @return snapshot directory
+     * @throws IOException on file system errors
+     */
+    private synchronized Path commonSnapshot() throws IOException {
+        Path common = this.templateDirectory.resolve("_common");
+        long lastModified = lastModified(common);
+        if (this.commonSnapshot != null && lastModified == this.commonSnapshotLastModified) {
+            return this.commonSnapshot;
+        }
+
+        String fingerprint = FingerprintUtil.fingerprint(path -> true, common).substring(0, 16);
+        Path snapshot = stateDirectory("templates").resolve(fingerprint);
+        if (!Files.exists(snapshot)) {
+            Path temporarySnapshot = stateDirectory("templates").resolve(".building-" + fingerprint);
+            deleteSnapshot(temporarySnapshot);
+            FileUtils.copyDirectory(common.toFile(), temporarySnapshot.toFile());
+            setWritable(temporarySnapshot, false);
+            Files.move(temporarySnapshot, snapshot, ATOMIC_MOVE);
+            LOGGER.info("Created snapshot {} of the common template files.", snapshot);
+        }
+
+        this.commonSnapshot = snapshot;
+        this.commonSnapshotLastModified = lastModified;
+        return snapshot;
+    }
+
+    /**
+     * Deletes the snapshots of the common template files which are neither the current one nor linked by a directory in
+     * the workspace (working directories, pooled and prepared directories).
+     * 
+     * Archived working directories do not contain the links, so they do not keep snapshots.
+     */
+    public void cleanUpSnapshots() {
+        Path snapshots = stateDirectory("templates");
+        this.snapshotLock.writeLock().lock();
+        try {
+            Path current;
+            synchronized (this) {
+                current = this.commonSnapshot;
+            }
+            Set<Path> linked = linkedSnapshots(snapshots.toAbsolutePath().normalize());
+            try (Stream<Path> directories = Files.list(snapshots)) {
+                for (Path snapshot : directories.collect(Collectors.toList())) {
+                    if (snapshot.getFileName().toString().startsWith(".") || snapshot.equals(current)
+                            || linked.contains(snapshot.toAbsolutePath().normalize())) {
+                        continue;
+                    }
+                    deleteSnapshot(snapshot);
+                    LOGGER.info("Deleted snapshot {} of the common template files, it is no longer used.", snapshot);
+                }
+            }
         } catch (IOException e) {
-            LOGGER.error("Working directory {} could not be created.", workingDirectory, e);
+            LOGGER.warn("Snapshots in {} could not be cleaned up.", snapshots, e);
+        } finally {
+            this.snapshotLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the snapshots which are linked by the directories in the workspace.
+     * 
+     * @param snapshots directory of the snapshots (absolute)
+     * @return linked snapshots (absolute)
+     * @throws IOException on file system errors
+     */
+    private Set<Path> linkedSnapshots(Path snapshots) throws IOException {
+        Set<Path> linked = new HashSet<>();
+        Files.walkFileTree(this.workspaceDirectory, EnumSet.noneOf(FileVisitOption.class), SNAPSHOT_LINK_MAX_DEPTH, new SimpleFileVisitor<Path>() {
+
+            @Override
+            public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes) {
+                // the links are at the top of the directories, the Terraform directories do not contain any
+                String name = directory.getFileName().toString();
+                return name.equals(".terraform") || directory.toAbsolutePath().normalize().equals(snapshots) ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                if (attributes.isSymbolicLink()) {
+                    Path target = file.getParent().resolve(Files.readSymbolicLink(file)).toAbsolutePath().normalize();
+                    if (target.startsWith(snapshots) && !target.equals(snapshots)) {
+                        linked.add(snapshots.resolve(snapshots.relativize(target).getName(0)));
+                    }
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+                // e.g. a directory which has been deleted in the meantime
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return linked;
+    }
+
+    /**
+     * Deletes a (read-only) snapshot.
+     * 
+     * @param snapshot snapshot directory, might not exist
+     * @throws IOException on file system errors
+     */
+    private static void deleteSnapshot(Path snapshot) throws IOException {
+        if (Files.exists(snapshot)) {
+            setWritable(snapshot, true);
+            FileUtils.deleteDirectory(snapshot.toFile());
+        }
+    }
+
+    /**
+     * Makes the files and directories in the given directory (not) writable, for everyone.
+     * 
+     * @param directory directory
+     * @param writable  <code>true</code> to make them writable
+     * @throws IOException on file system errors
+     */
+    private static void setWritable(Path directory, boolean writable) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.collect(Collectors.toList())) {
+                if (!path.toFile().setWritable(writable, false)) {
+                    throw new IOException(String.format("Permissions of %s could not be changed.", path));
+                }
+            }
+        }
+    }
+
+    /**
+     * Calculates a fingerprint of the files a working directory of the given template is materialized from, i.e. the
+     * common template files and the files of the template.
+     * 
+     * The fingerprint is only calculated again when the files have been modified (see {@link #lastModified(Path)}).
+     * 
+     * @param templateName name of the template
+     * @return fingerprint (hex)
+     */
+    public String templateFingerprint(String templateName) {
+        Path common = this.templateDirectory.resolve("_common");
+        Path template = templateDirectory(templateName);
+        try {
+            long lastModified = Math.max(lastModified(common), lastModified(template));
+            TemplateFingerprint fingerprint = this.templateFingerprints.get(templateName);
+            if (fingerprint == null || fingerprint.lastModified != lastModified) {
+                fingerprint = new TemplateFingerprint(FingerprintUtil.fingerprint(path -> true, common, template), lastModified);
+                this.templateFingerprints.put(templateName, fingerprint);
+            }
+            return fingerprint.fingerprint;
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Fingerprint of template %s could not be calculated.", templateName), e);
+        }
+    }
+
+    /**
+     * Latest modification time of a file or directory in the given template directory.
+     * 
+     * The directory is walked at most once per check interval (<code>t2.templates.check-interval-ms</code>), so a
+     * modification of the template files is noticed with a delay of up to the interval.
+     * 
+     * @param directory directory
+     * @return latest modification time (millis since the epoch)
+     * @throws IOException on file system errors
+     */
+    private long lastModified(Path directory) throws IOException {
+        long now = System.currentTimeMillis();
+        LastModified cached = this.lastModified.get(directory);
+        if (cached != null && now - cached.checkedAt < this.checkIntervalMs) {
+            return cached.lastModified;
+        }
+        try (Stream<Path> paths = Files.walk(directory)) {
+            long lastModified = paths.mapToLong(path -> path.toFile().lastModified()).max().orElse(0L);
+            this.lastModified.put(directory, new LastModified(lastModified, now));
+            return lastModified;
+        }
+    }
+
+    /**
+     * Writes the cluster definition (YAML) to the given working directory.
+     * 
+     * @param workingDirectory  working directory location, must exist
+     * @param clusterDefinition cluster definition
+     */
+    public void writeClusterDefinition(Path workingDirectory, Map<String, Object> clusterDefinition) {
+        Objects.requireNonNull(workingDirectory);
+        Objects.requireNonNull(clusterDefinition);
+
+        try {
+            new ObjectMapper(new YAMLFactory()).writeValue(workingDirectory.resolve("cluster.yaml").toFile(), clusterDefinition);
+        } catch (IOException e) {
+            LOGGER.error("Cluster definition could not be written to working directory {}.", workingDirectory, e);
             throw new RuntimeException(String.format("Working directory %s could not be created.", workingDirectory));
         }
     }
 
+    /**
+     * Copies a directory, e.g. a working directory which has been prepared for a group of clusters.
+     *
+     * Symbolic links (to the common template files or into the Terraform plugin cache) are copied as links, so the
+     * files they point to are shared. Relative links pointing out of the directory are made absolute.
+     *
+     * @param source directory to be copied
+     * @param target location of the copy, must not exist
+     */
+    public void copyDirectory(Path source, Path target) {
+        Objects.requireNonNull(source);
+        Objects.requireNonNull(target);
+
+        Path sourceDirectory = source.toAbsolutePath().normalize();
+        // the snapshots linked by the source must not be deleted before the copy links them, too
+        this.snapshotLock.readLock().lock();
+        try (Stream<Path> paths = Files.walk(sourceDirectory)) {
+            for (Path path : (Iterable<Path>) paths::iterator) {
+                Path copy = target.resolve(sourceDirectory.relativize(path).toString());
+                if (Files.isSymbolicLink(path)) {
+                    Path link = Files.readSymbolicLink(path);
+                    if (!link.isAbsolute() && !path.getParent().resolve(link).normalize().startsWith(sourceDirectory)) {
+                        link = path.getParent().resolve(link).normalize();
+                    }
+                    Files.createSymbolicLink(copy, link);
+                } else if (Files.isDirectory(path)) {
+                    Files.createDirectories(copy);
+                } else {
+                    Files.copy(path, copy, StandardCopyOption.COPY_ATTRIBUTES);
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.error("Directory {} could not be copied to {}.", source, target, e);
+            throw new RuntimeException(String.format("Directory %s could not be copied to %s.", source, target));
+        } finally {
+            this.snapshotLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Moves a directory within the workspace atomically, e.g. a pooled directory to the working directory of a cluster.
+     *
+     * The snapshots linked by the directory are not deleted while it is moved, although it might be seen at neither
+     * location in the meantime.
+     *
+     * @param source directory to be moved
+     * @param target new location, must not exist
+     * @throws IOException if the directory cannot be moved
+     */
+    public void moveDirectory(Path source, Path target) throws IOException {
+        this.snapshotLock.readLock().lock();
+        try {
+            Files.move(source, target, ATOMIC_MOVE);
+        } finally {
+            this.snapshotLock.readLock().unlock();
+        }
+    }
+
     /**
      * Cleans up the working directory for the given cluster
      * 
@@ -127,6 +594,198 @@ public class FileService {
         }
     }
 
+    /**
+     * Lists the IDs of the clusters which have a working directory (which has not been archived).
+     * 
+     * @return IDs of the clusters
+     */
+    public List<UUID> workingDirectoryIds() {
+        try (Stream<Path> directories = Files.list(this.workspaceDirectory)) {
+            return directories
+                    .filter(Files::isDirectory)
+                    .map(directory -> directory.getFileName().toString())
+                    .filter(name -> name.length() == UUID_LENGTH)
+                    .flatMap(name -> {
+                        try {
+                            return Stream.of(UUID.fromString(name));
+                        } catch (IllegalArgumentException e) {
+                            return Stream.empty();
+                        }
+                    })
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            LOGGER.error("Workspace directory {} could not be listed.", this.workspaceDirectory, e);
+            return List.of();
+        }
+    }
+
+    /**
+     * Resolves the archive of the working directory of the given cluster.
+     * 
+     * @param clusterId ID of the cluster
+     * @return archive (zip file, might not exist)
+     */
+    public Path workingDirectoryArchive(UUID clusterId) {
+        Objects.requireNonNull(clusterId);
+
+        return stateDirectory("workspaces").resolve(clusterId + ".zip");
+    }
+
+    /**
+     * Packs the working directory of the given cluster into its archive and deletes the working directory.
+     * 
+     * Symbolic links (to the common template files) are not archived. The files are read with the given maximum rate,
+     * so that archiving does not compete with running clusters.
+     * 
+     * @param clusterId      ID of the cluster
+     * @param bytesPerSecond maximum rate of reading the files, no limit if &lt;= 0
+     * @throws IOException if the working directory cannot be archived, it is left untouched then
+     */
+    public void archiveWorkingDirectory(UUID clusterId, long bytesPerSecond) throws IOException {
+        Path workingDirectory = workingDirectory(clusterId);
+        Path archive = workingDirectoryArchive(clusterId);
+        Path temporaryArchive = archive.resolveSibling(archive.getFileName() + ".tmp");
+
+        List<Path> files;
+        try (Stream<Path> stream = Files.walk(workingDirectory)) {
+            files = stream.filter(file -> Files.isRegularFile(file, LinkOption.NOFOLLOW_LINKS)).collect(Collectors.toList());
+        }
+        ThrottledInputStream.Throttle throttle = new ThrottledInputStream.Throttle(bytesPerSecond);
+        ZipEntrySource[] entries = files.stream()
+                .map(file -> new ThrottledFileSource(workingDirectory.relativize(file).toString().replace(File.separatorChar, '/'), file.toFile(), throttle))
+                .toArray(ZipEntrySource[]::new);
+        try {
+            ZipUtil.pack(entries, temporaryArchive.toFile());
+        } catch (ZipException e) {
+            Files.deleteIfExists(temporaryArchive);
+            throw new IOException(String.format("Working directory %s could not be archived.", workingDirectory), e);
+        }
+        Files.move(temporaryArchive, archive, ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        FileUtils.deleteDirectory(workingDirectory.toFile());
+    }
+
+    /**
+     * Reads a file of the working directory of the given cluster, from the archive if the working directory has been
+     * archived.
+     * 
+     * @param clusterId ID of the cluster
+     * @param filename  relative filename in the working directory
+     * @return file content, empty if not readable
+     */
+    public Optional<String> readWorkingDirectoryFile(UUID clusterId, String filename) {
+        Path file = workingDirectory(clusterId).resolve(filename);
+        Path archive = workingDirectoryArchive(clusterId);
+        try {
+            if (!Files.exists(workingDirectory(clusterId)) && Files.exists(archive)) {
+                byte[] content = ZipUtil.unpackEntry(archive.toFile(), filename);
+                return Optional.ofNullable(content).map(bytes -> new String(bytes, StandardCharsets.UTF_8));
+            }
+            return Optional.of(Files.readString(file, StandardCharsets.UTF_8));
+        } catch (IOException | ZipException e) {
+            LOGGER.warn("{} could not be read.", file, e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Unpacks the files of an archived working directory whose names start with the given prefix (e.g. the log files),
+     * so that they can be read like the files of a working directory.
+     * 
+     * The files are unpacked to a cache directory once, which is removed by {@link #cleanUpUnpackedArchives(Duration)}
+     * when it has not been used for a while.
+     * 
+     * @param clusterId ID of the cluster
+     * @param prefix    prefix of the names of the files (relative to the working directory)
+     * @return directory containing the unpacked files, empty if the working directory is not archived
+     */
+    public synchronized Optional<Path> unpackArchivedFiles(UUID clusterId, String prefix) {
+        Path archive = workingDirectoryArchive(clusterId);
+        if (!Files.exists(archive)) {
+            return Optional.empty();
+        }
+        Path directory = stateDirectory("unpacked").resolve(clusterId + "-" + prefix);
+        Path temporaryDirectory = directory.resolveSibling(directory.getFileName() + ".tmp");
+        try {
+            if (Files.exists(directory)) {
+                // the files are kept as long as they are used
+                Files.setLastModifiedTime(directory, FileTime.from(Instant.now()));
+                return Optional.of(directory);
+            }
+            FileUtils.deleteDirectory(temporaryDirectory.toFile());
+            ZipUtil.unpack(archive.toFile(), temporaryDirectory.toFile(), name -> name.startsWith(prefix) ? name : null);
+            Files.createDirectories(temporaryDirectory);
+            Files.move(temporaryDirectory, directory, ATOMIC_MOVE);
+            return Optional.of(directory);
+        } catch (IOException | ZipException e) {
+            LOGGER.warn("Files {}* of archive {} could not be unpacked.", prefix, archive, e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Removes the files unpacked from archived working directories which have not been used recently.
+     * 
+     * @param maxAge maximum age of the unpacked files
+     */
+    public synchronized void cleanUpUnpackedArchives(Duration maxAge) {
+        Path unpacked = stateDirectory("unpacked");
+        FileTime threshold = FileTime.from(Instant.now().minus(maxAge));
+        try (Stream<Path> directories = Files.list(unpacked)) {
+            for (Path directory : directories.collect(Collectors.toList())) {
+                if (Files.getLastModifiedTime(directory).compareTo(threshold) < 0) {
+                    FileUtils.deleteDirectory(directory.toFile());
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Unpacked archives in {} could not be cleaned up.", unpacked, e);
+        }
+    }
+
+    /**
+     * File in a zip archive, read with a limited rate
+     */
+    private static class ThrottledFileSource implements ZipEntrySource {
+
+        private final FileSource source;
+        private final ThrottledInputStream.Throttle throttle;
+
+        private ThrottledFileSource(String path, File file, ThrottledInputStream.Throttle throttle) {
+            this.source = new FileSource(path, file);
+            this.throttle = throttle;
+        }
+
+        @Override
+        public String getPath() {
+            return this.source.getPath();
+        }
+
+        @Override
+        public ZipEntry getEntry() {
+            return this.source.getEntry();
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return new ThrottledInputStream(this.source.getInputStream(), this.throttle);
+        }
+    }
+
+    /**
+     * How the template files get into the working directories
+     */
+    private enum Materialization {
+
+        /**
+         * copy all files
+         */
+        COPY,
+
+        /**
+         * link the immutable common template files, copy the rest
+         */
+        LINK
+    }
+
     /**
      * Makes sure that the given directory exists.
      * 
@@ -155,4 +814,32 @@ public class FileService {
             throw new BeanCreationException(String.format("The directory '%s' cannot be created.", directoryName), ioe);
         }
     }
+
+    /**
+     * Last modification of the files of a template directory and when it was checked
+     */
+    private static class LastModified {
+
+        private final long lastModified;
+        private final long checkedAt;
+
+        private LastModified(long lastModified, long checkedAt) {
+            this.lastModified = lastModified;
+            this.checkedAt = checkedAt;
+        }
+    }
+
+    /**
+     * Fingerprint of a template and the last modification of its files when it was calculated
+     */
+    private static class TemplateFingerprint {
+
+        private final String fingerprint;
+        private final long lastModified;
+
+        private TemplateFingerprint(String fingerprint, long lastModified) {
+            this.fingerprint = fingerprint;
+            this.lastModified = lastModified;
+        }
+    }
 }
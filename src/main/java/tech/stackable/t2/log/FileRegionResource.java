@@ -0,0 +1,116 @@
+package tech.stackable.t2.log;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.apache.commons.io.input.BoundedInputStream;
+import org.springframework.core.io.AbstractResource;
+
+/**
+ * A region of a file as resource, so that it can be streamed (and range-requested) like a whole file.
+ *
+ * Regions up to {@link #MAX_MAPPED_SIZE} are read from a memory-mapped buffer, so only the pages of the region are
+ * touched and no copies are made on the way into the response.
+ */
+public class FileRegionResource extends AbstractResource {
+
+    private static final long MAX_MAPPED_SIZE = 64L * 1024 * 1024;
+
+    private final Path file;
+    private final long position;
+    private final long count;
+
+    /**
+     * Creates a resource for a region of a file.
+     *
+     * @param file     file
+     * @param position start of the region (bytes)
+     * @param count    length of the region (bytes)
+     */
+    public FileRegionResource(Path file, long position, long count) {
+        this.file = file;
+        this.position = position;
+        this.count = count;
+    }
+
+    public long getPosition() {
+        return position;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        FileChannel channel = FileChannel.open(this.file, StandardOpenOption.READ);
+        if (this.count <= MAX_MAPPED_SIZE) {
+            try (channel) {
+                // the mapping stays valid after the channel has been closed
+                return new ByteBufferInputStream(channel.map(FileChannel.MapMode.READ_ONLY, this.position, this.count));
+            }
+        }
+        channel.position(this.position);
+        return new BoundedInputStream(Channels.newInputStream(channel), this.count);
+    }
+
+    @Override
+    public boolean exists() {
+        return this.file.toFile().exists();
+    }
+
+    @Override
+    public long contentLength() {
+        return this.count;
+    }
+
+    @Override
+    public String getFilename() {
+        return this.file.getFileName().toString();
+    }
+
+    @Override
+    public String getDescription() {
+        return "region [" + this.position + ", " + (this.position + this.count) + ") of file [" + this.file + "]";
+    }
+
+    /**
+     * Stream reading a buffer
+     */
+    private static class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return this.buffer.hasRemaining() ? this.buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!this.buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, this.buffer.remaining());
+            this.buffer.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return this.buffer.remaining();
+        }
+    }
+}
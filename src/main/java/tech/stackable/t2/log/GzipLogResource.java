@@ -0,0 +1,146 @@
+package tech.stackable.t2.log;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.file.Files;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.io.input.BoundedInputStream;
+import org.springframework.core.io.AbstractResource;
+
+/**
+ * A whole (segmented) cluster log as gzip stream, to be sent with <code>Content-Encoding: gzip</code>.
+ *
+ * A log consisting of one compressed segment is sent as it is. Otherwise the segments are compressed into one gzip
+ * member while they are streamed, as not all clients decode gzip streams consisting of several members.
+ */
+public class GzipLogResource extends AbstractResource {
+
+    private final List<LogSegments.Segment> segments;
+
+    /**
+     * Creates the resource for the given log.
+     *
+     * @param segments segments of the log
+     */
+    public GzipLogResource(List<LogSegments.Segment> segments) {
+        this.segments = segments;
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        if (this.segments.size() == 1 && this.segments.get(0).isCompressed()) {
+            return Files.newInputStream(this.segments.get(0).getFile());
+        }
+        Iterator<LogSegments.Segment> iterator = this.segments.iterator();
+        // the segments are opened one after another while the stream is read
+        return new GzipCompressingInputStream(new SequenceInputStream(new Enumeration<InputStream>() {
+
+            @Override
+            public boolean hasMoreElements() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public InputStream nextElement() {
+                if (!iterator.hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                LogSegments.Segment segment = iterator.next();
+                try {
+                    // the length at the time of listing, the active segment might have grown since
+                    return new BoundedInputStream(segment.open(0L), segment.getLength());
+                } catch (IOException e) {
+                    // the log is not available (anymore), nothing more to be sent
+                    return InputStream.nullInputStream();
+                }
+            }
+        }));
+    }
+
+    @Override
+    public boolean exists() {
+        return !this.segments.isEmpty();
+    }
+
+    @Override
+    public long contentLength() {
+        // unknown, the response is streamed
+        return -1L;
+    }
+
+    @Override
+    public String getDescription() {
+        return "gzip of log " + this.segments.stream().map(segment -> segment.getFile().toString()).reduce((first, second) -> first + ", " + second).orElse("");
+    }
+
+    /**
+     * Compresses a stream while it is read.
+     */
+    private static class GzipCompressingInputStream extends InputStream {
+
+        private final InputStream source;
+        private final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        private final GZIPOutputStream gzip;
+        private final byte[] readBuffer = new byte[65536];
+
+        private byte[] chunk = new byte[0];
+        private int chunkPosition = 0;
+        private boolean finished = false;
+
+        private GzipCompressingInputStream(InputStream source) throws IOException {
+            this.source = source;
+            this.gzip = new GZIPOutputStream(this.compressed, 65536);
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            while (this.chunkPosition >= this.chunk.length) {
+                if (this.finished) {
+                    return -1;
+                }
+                fill();
+            }
+            int count = Math.min(length, this.chunk.length - this.chunkPosition);
+            System.arraycopy(this.chunk, this.chunkPosition, bytes, offset, count);
+            this.chunkPosition += count;
+            return count;
+        }
+
+        /**
+         * Compresses the next part of the source.
+         */
+        private void fill() throws IOException {
+            int length = this.source.read(this.readBuffer);
+            if (length < 0) {
+                this.gzip.finish();
+                this.finished = true;
+            } else {
+                this.gzip.write(this.readBuffer, 0, length);
+            }
+            this.chunk = this.compressed.toByteArray();
+            this.chunkPosition = 0;
+            this.compressed.reset();
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.source.close();
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package tech.stackable.t2.log;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * Index of the sections of a cluster log: where each run (try) of a phase (e.g. <code>ansible-launch</code>) and each
+ * Ansible play and role starts.
+ *
+ * The index is a file next to the log, which is appended to whenever lines are written to the log (see
+ * {@link ProcessLogService}). Each line of the index marks the start of a section:
+ * <code>offset TAB kind TAB phase TAB try TAB name</code>. A run of a phase ends with an <code>end</code> marker. An
+ * <code>open</code> marker is written whenever the log is opened while no process is logging into it, it ends all runs
+ * which have not ended properly (e.g. because T2 was killed).
+ *
+ * Runs of different phases may overlap, when stages of a launch run concurrently. Their sections overlap then, too:
+ * the section of a run contains the interleaved lines of the other runs, which are told apart by their prefix.
+ */
+public class LogIndex {
+
+    /**
+     * Suffix of the index file (appended to the name of the log file)
+     */
+    public static final String INDEX_FILE_SUFFIX = ".index";
+
+    static final String KIND_PHASE = "phase";
+    static final String KIND_PLAY = "play";
+    static final String KIND_ROLE = "role";
+    static final String KIND_END = "end";
+    static final String KIND_OPEN = "open";
+
+    private LogIndex() {
+    }
+
+    /**
+     * Resolves the index file of the given log file.
+     *
+     * @param logFile log file
+     * @return index file (might not exist)
+     */
+    public static Path indexFile(Path logFile) {
+        return logFile.resolveSibling(logFile.getFileName() + INDEX_FILE_SUFFIX);
+    }
+
+    /**
+     * Formats an entry of the index.
+     *
+     * @param offset    offset in the log where the section starts
+     * @param kind      kind of section
+     * @param phase     phase the section belongs to
+     * @param tryNumber run of the phase (starting with 1)
+     * @param name      name of the play or role, empty for phases
+     * @return line of the index file (including the line break)
+     */
+    static String entry(long offset, String kind, String phase, int tryNumber, String name) {
+        return offset + "\t" + kind + "\t" + phase + "\t" + tryNumber + "\t" + name.replace('\t', ' ').replace('\n', ' ') + "\n";
+    }
+
+    /**
+     * Counts the runs of the given phase recorded in the index of the given log.
+     *
+     * @param logFile log file
+     * @param phase   phase
+     * @return number of runs
+     * @throws IOException if the index cannot be read
+     */
+    static int countRuns(Path logFile, String phase) throws IOException {
+        int runs = 0;
+        for (String[] fields : read(logFile)) {
+            if (KIND_PHASE.equals(fields[1]) && phase.equals(fields[2])) {
+                runs++;
+            }
+        }
+        return runs;
+    }
+
+    /**
+     * Reads the sections of the given log.
+     *
+     * A section ends where the next section of the same run with the same or a higher level (phase, play, role) starts.
+     * Sections of runs which are still running end at the given size of the log.
+     *
+     * @param logFile log file
+     * @param logSize current size of the log
+     * @return sections in the order of the log, empty if there is no index
+     * @throws IOException if the index cannot be read
+     */
+    public static List<Section> sections(Path logFile, long logSize) throws IOException {
+        List<Section> sections = new ArrayList<>();
+        Map<String, OpenRun> runs = new HashMap<>();
+        for (String[] fields : read(logFile)) {
+            long offset = Long.parseLong(fields[0]);
+            String kind = fields[1];
+            if (KIND_OPEN.equals(kind)) {
+                runs.values().forEach(run -> run.end(offset, KIND_PHASE));
+                runs.clear();
+                continue;
+            }
+            String runKey = fields[2] + "\t" + fields[3];
+            OpenRun run = runs.computeIfAbsent(runKey, key -> new OpenRun());
+            run.end(offset, kind);
+            if (KIND_END.equals(kind)) {
+                runs.remove(runKey);
+                continue;
+            }
+            Section section = new Section(kind, fields[2], Integer.parseInt(fields[3]), fields[4], offset);
+            sections.add(section);
+            switch (kind) {
+            case KIND_PHASE:
+                run.phase = section;
+                break;
+            case KIND_PLAY:
+                run.play = section;
+                break;
+            default:
+                run.role = section;
+            }
+        }
+        for (Section section : sections) {
+            if (section.end < 0) {
+                section.end = Math.max(section.start, logSize);
+            }
+        }
+        return sections;
+    }
+
+    /**
+     * Sections of a run which have not ended yet
+     */
+    private static class OpenRun {
+
+        private Section phase;
+        private Section play;
+        private Section role;
+
+        /**
+         * Ends the sections which end where a section of the given kind starts.
+         *
+         * @param offset offset of the new section
+         * @param kind   kind of the new section (or end marker)
+         */
+        private void end(long offset, String kind) {
+            if (this.role != null) {
+                this.role.end = offset;
+                this.role = null;
+            }
+            if (this.play != null && !KIND_ROLE.equals(kind)) {
+                this.play.end = offset;
+                this.play = null;
+            }
+            if (this.phase != null && (KIND_PHASE.equals(kind) || KIND_END.equals(kind))) {
+                this.phase.end = offset;
+                this.phase = null;
+            }
+        }
+    }
+
+    private static List<String[]> read(Path logFile) throws IOException {
+        List<String[]> entries = new ArrayList<>();
+        try {
+            for (String line : Files.readAllLines(indexFile(logFile), StandardCharsets.UTF_8)) {
+                String[] fields = line.split("\t", 5);
+                // a partially written last line is ignored
+                if (fields.length == 5) {
+                    entries.add(fields);
+                }
+            }
+        } catch (NoSuchFileException e) {
+            // no index (yet)
+        }
+        return entries;
+    }
+
+    /**
+     * Section of a log
+     */
+    @Schema(description = "Section of a cluster log")
+    public static class Section {
+
+        @Schema(description = "kind of section (phase, play or role)", required = true)
+        private final String kind;
+
+        @Schema(description = "phase the section belongs to, e.g. terraform-apply or ansible-launch", required = true)
+        private final String phase;
+
+        @Schema(description = "run of the phase (starting with 1)", required = true)
+        private final int tryNumber;
+
+        @Schema(description = "name of the Ansible play or role")
+        private final String name;
+
+        @Schema(description = "offset (bytes) where the section starts", required = true)
+        private final long start;
+
+        @Schema(description = "offset (bytes) where the section ends (exclusive)", required = true)
+        private long end = -1L;
+
+        private Section(String kind, String phase, int tryNumber, String name, long start) {
+            this.kind = kind;
+            this.phase = phase;
+            this.tryNumber = tryNumber;
+            this.name = name;
+            this.start = start;
+        }
+
+        public String getKind() {
+            return kind;
+        }
+
+        public String getPhase() {
+            return phase;
+        }
+
+        public int getTry() {
+            return tryNumber;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getStart() {
+            return start;
+        }
+
+        public long getEnd() {
+            return end;
+        }
+    }
+}
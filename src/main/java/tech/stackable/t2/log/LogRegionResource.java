@@ -0,0 +1,90 @@
+package tech.stackable.t2.log;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.apache.commons.io.input.BoundedInputStream;
+import org.springframework.core.io.AbstractResource;
+
+/**
+ * A region of a (segmented) cluster log as resource, so that it can be streamed (and range-requested) like a file.
+ *
+ * A region within one uncompressed segment is read like a {@link FileRegionResource}, regions in compressed segments
+ * are decompressed while they are streamed.
+ */
+public class LogRegionResource extends AbstractResource {
+
+    private final List<LogSegments.Segment> segments;
+    private final long position;
+    private final long count;
+
+    /**
+     * Creates a resource for a region of a log.
+     *
+     * @param segments segments of the log
+     * @param position start of the region (bytes)
+     * @param count    length of the region (bytes)
+     */
+    public LogRegionResource(List<LogSegments.Segment> segments, long position, long count) {
+        this.segments = segments.stream()
+                .filter(segment -> segment.getEnd() > position && segment.getStart() < position + count)
+                .collect(Collectors.toList());
+        this.position = position;
+        this.count = count;
+    }
+
+    public long getPosition() {
+        return position;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        if (this.segments.size() == 1 && !this.segments.get(0).isCompressed()) {
+            LogSegments.Segment segment = this.segments.get(0);
+            return new FileRegionResource(segment.getFile(), this.position - segment.getStart(), this.count).getInputStream();
+        }
+        List<InputStream> inputs = new ArrayList<>();
+        try {
+            for (LogSegments.Segment segment : this.segments) {
+                long offset = Math.max(0L, this.position - segment.getStart());
+                long length = Math.min(segment.getEnd(), this.position + this.count) - segment.getStart() - offset;
+                inputs.add(new BoundedInputStream(segment.open(offset), length));
+            }
+        } catch (IOException e) {
+            for (InputStream input : inputs) {
+                input.close();
+            }
+            throw e;
+        }
+        return new SequenceInputStream(Collections.enumeration(inputs));
+    }
+
+    @Override
+    public boolean exists() {
+        return true;
+    }
+
+    @Override
+    public long contentLength() {
+        return this.count;
+    }
+
+    @Override
+    public String getFilename() {
+        return this.segments.isEmpty() ? null : this.segments.get(this.segments.size() - 1).getFile().getFileName().toString();
+    }
+
+    @Override
+    public String getDescription() {
+        return "region [" + this.position + ", " + (this.position + this.count) + ") of log " + this.segments.stream().map(segment -> segment.getFile().toString()).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,349 @@
+package tech.stackable.t2.log;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * The segments of a cluster log.
+ *
+ * A log consists of completed segments (<code>cluster.log.1</code>, <code>cluster.log.2</code>, ...), which are
+ * compressed in the background (<code>cluster.log.1.gz</code>, ...), and the active segment (<code>cluster.log</code>)
+ * which is appended to. The active segment is rotated when a process starts logging while no other process does.
+ *
+ * To bound the size of a log, completed segments between its head and its tail can be replaced by placeholders
+ * (<code>cluster.log.1.omitted.gz</code>, ...): compressed segments of the same length, which consist of empty lines and
+ * a note. As the length stays the same, offsets in the log (e.g. in its index) stay valid.
+ *
+ * Offsets in the log are offsets in the concatenation of the uncompressed segments. The uncompressed size of a
+ * compressed segment is taken from the gzip trailer, so the segments never have to be decompressed to find a position.
+ */
+public class LogSegments {
+
+    static final String COMPRESSED_SUFFIX = ".gz";
+
+    static final String OMITTED_SUFFIX = ".omitted" + COMPRESSED_SUFFIX;
+
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private LogSegments() {
+    }
+
+    /**
+     * Lists the segments of the given log.
+     *
+     * @param logFile (active segment of the) log
+     * @return segments in the order of the log, the active segment (if it exists) last
+     * @throws IOException if the segments cannot be listed
+     */
+    public static List<Segment> list(Path logFile) throws IOException {
+        Pattern pattern = Pattern.compile(Pattern.quote(logFile.getFileName().toString()) + "\\.(\\d+)(" + Pattern.quote(OMITTED_SUFFIX) + "|" + Pattern.quote(COMPRESSED_SUFFIX) + ")?");
+        Map<Integer, Path> completed = new TreeMap<>();
+        try (Stream<Path> files = Files.list(logFile.getParent())) {
+            files.forEach(file -> {
+                Matcher matcher = pattern.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    // a compressed segment replaces its uncompressed version, a placeholder replaces both
+                    completed.merge(Integer.parseInt(matcher.group(1)), file, (first, second) -> rank(first) >= rank(second) ? first : second);
+                }
+            });
+        } catch (NoSuchFileException e) {
+            return List.of();
+        }
+
+        List<Segment> segments = new ArrayList<>();
+        long start = 0L;
+        for (Map.Entry<Integer, Path> entry : completed.entrySet()) {
+            Segment segment = completedSegment(logFile, entry.getKey(), entry.getValue(), start);
+            segments.add(segment);
+            start += segment.length;
+        }
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(logFile, BasicFileAttributes.class);
+            segments.add(new Segment(logFile, -1, start, attributes.size(), attributes.fileKey()));
+        } catch (NoSuchFileException e) {
+            // no active segment
+        }
+        return segments;
+    }
+
+    /**
+     * Reads a completed segment, or the version which has just replaced it.
+     */
+    private static Segment completedSegment(Path logFile, int number, Path file, long start) throws IOException {
+        Path base = logFile.resolveSibling(logFile.getFileName() + "." + number);
+        List<Path> candidates = List.of(file, base.resolveSibling(base.getFileName() + COMPRESSED_SUFFIX), base.resolveSibling(base.getFileName() + OMITTED_SUFFIX));
+        NoSuchFileException notFound = null;
+        for (Path candidate : candidates) {
+            if (rank(candidate) < rank(file)) {
+                continue;
+            }
+            try {
+                return new Segment(candidate, number, start, isCompressed(candidate) ? uncompressedSize(candidate) : Files.size(candidate), null);
+            } catch (NoSuchFileException e) {
+                notFound = e;
+            }
+        }
+        throw notFound;
+    }
+
+    private static int rank(Path file) {
+        return isOmitted(file) ? 2 : isCompressed(file) ? 1 : 0;
+    }
+
+    /**
+     * Total (uncompressed) size of the given segments.
+     *
+     * @param segments segments
+     * @return size in bytes
+     */
+    public static long size(List<Segment> segments) {
+        return segments.isEmpty() ? 0L : segments.get(segments.size() - 1).getEnd();
+    }
+
+    /**
+     * Completes the active segment of the given log, if it is not empty.
+     *
+     * @param logFile (active segment of the) log
+     * @return the completed segment, <code>null</code> if there was nothing to complete
+     * @throws IOException if the segment cannot be renamed
+     */
+    static Path rotate(Path logFile) throws IOException {
+        if (!Files.exists(logFile) || Files.size(logFile) == 0L) {
+            return null;
+        }
+        List<Segment> segments = list(logFile);
+        int number = segments.size();
+        Path segment = logFile.resolveSibling(logFile.getFileName() + "." + number);
+        Files.move(logFile, segment, ATOMIC_MOVE);
+        return segment;
+    }
+
+    /**
+     * Compresses the given completed segment.
+     *
+     * The compressed segment replaces the uncompressed one atomically, readers see either of them.
+     *
+     * @param segment completed segment
+     * @throws IOException if the segment cannot be compressed
+     */
+    static void compress(Path segment) throws IOException {
+        Path compressed = segment.resolveSibling(segment.getFileName() + COMPRESSED_SUFFIX);
+        Path temp = segment.resolveSibling(compressed.getFileName() + TEMP_SUFFIX);
+        try (InputStream input = Files.newInputStream(segment); OutputStream output = new GZIPOutputStream(Files.newOutputStream(temp), 65536)) {
+            input.transferTo(output);
+        }
+        Files.move(temp, compressed, ATOMIC_MOVE);
+        Files.delete(segment);
+    }
+
+    /**
+     * Replaces the completed segments of the given log which are neither part of its head nor of its tail by
+     * placeholders.
+     *
+     * The head consists of the segments which start within the first given bytes of the log, the tail of the last
+     * completed segments which fit into the given bytes (at least the last one).
+     *
+     * @param logFile   (active segment of the) log
+     * @param headBytes size of the head
+     * @param tailBytes size of the tail
+     * @return number of bytes omitted
+     * @throws IOException if a segment cannot be replaced
+     */
+    static long omitMiddle(Path logFile, long headBytes, long tailBytes) throws IOException {
+        List<Segment> completed = new ArrayList<>();
+        for (Segment segment : list(logFile)) {
+            if (!segment.isActive()) {
+                completed.add(segment);
+            }
+        }
+        int firstTailSegment = completed.size();
+        long tail = 0L;
+        while (firstTailSegment > 0 && (firstTailSegment == completed.size() || tail + completed.get(firstTailSegment - 1).length <= tailBytes)) {
+            firstTailSegment--;
+            tail += completed.get(firstTailSegment).length;
+        }
+        long omitted = 0L;
+        for (Segment segment : completed.subList(0, firstTailSegment)) {
+            if (segment.start >= headBytes && !isOmitted(segment.file) && omit(logFile, segment, headBytes, tailBytes)) {
+                omitted += segment.length;
+            }
+        }
+        return omitted;
+    }
+
+    /**
+     * Replaces the given segment by a placeholder of the same length.
+     *
+     * @return <code>false</code> if the segment is too short for the note
+     */
+    private static boolean omit(Path logFile, Segment segment, long headBytes, long tailBytes) throws IOException {
+        byte[] note = String.format("[T2] ... %s of the log omitted, the log of a cluster keeps the first %s and the last %s ...%n",
+                FileUtils.byteCountToDisplaySize(segment.length),
+                FileUtils.byteCountToDisplaySize(headBytes),
+                FileUtils.byteCountToDisplaySize(tailBytes)).getBytes(StandardCharsets.UTF_8);
+        if (segment.length < note.length) {
+            return false;
+        }
+        Path placeholder = logFile.resolveSibling(logFile.getFileName() + "." + segment.number + OMITTED_SUFFIX);
+        Path temp = placeholder.resolveSibling(placeholder.getFileName() + TEMP_SUFFIX);
+        // the note comes last, so it directly precedes the lines which have been kept
+        byte[] emptyLines = new byte[65536];
+        Arrays.fill(emptyLines, (byte) '\n');
+        try (OutputStream output = new GZIPOutputStream(Files.newOutputStream(temp), 65536)) {
+            for (long remaining = segment.length - note.length; remaining > 0; remaining -= emptyLines.length) {
+                output.write(emptyLines, 0, (int) Math.min(remaining, emptyLines.length));
+            }
+            output.write(note);
+        }
+        Files.move(temp, placeholder, ATOMIC_MOVE);
+        Files.delete(segment.file);
+        return true;
+    }
+
+    private static boolean isOmitted(Path file) {
+        return file.getFileName().toString().endsWith(OMITTED_SUFFIX);
+    }
+
+    private static boolean isCompressed(Path file) {
+        return file.getFileName().toString().endsWith(COMPRESSED_SUFFIX);
+    }
+
+    /**
+     * Reads the uncompressed size from the trailer of a gzip file (segments are far below 4 GB).
+     */
+    private static long uncompressedSize(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer trailer = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(trailer, channel.size() - 4);
+            return trailer.getInt(0) & 0xFFFFFFFFL;
+        }
+    }
+
+    /**
+     * Segment of a log
+     */
+    public static class Segment {
+
+        private final Path file;
+
+        /**
+         * Number of the completed segment, -1 for the active segment
+         */
+        private final int number;
+
+        private final long start;
+        private final long length;
+
+        /**
+         * Identity of the file of the active segment, which changes when the segment is rotated
+         */
+        private final Object fileKey;
+
+        private Segment(Path file, int number, long start, long length, Object fileKey) {
+            this.file = file;
+            this.number = number;
+            this.start = start;
+            this.length = length;
+            this.fileKey = fileKey;
+        }
+
+        public Path getFile() {
+            return file;
+        }
+
+        public boolean isCompressed() {
+            return LogSegments.isCompressed(this.file);
+        }
+
+        /**
+         * @return <code>true</code> if this is the active segment (at the time of listing)
+         */
+        public boolean isActive() {
+            return this.fileKey != null;
+        }
+
+        /**
+         * @return offset of the segment in the log
+         */
+        public long getStart() {
+            return start;
+        }
+
+        /**
+         * @return (uncompressed) length of the segment
+         */
+        public long getLength() {
+            return length;
+        }
+
+        /**
+         * @return offset of the end of the segment in the log (exclusive)
+         */
+        public long getEnd() {
+            return start + length;
+        }
+
+        /**
+         * Current length of the segment, which grows as long as it is the active segment.
+         *
+         * @return current length, -1 if the segment has been rotated or compressed in the meantime
+         * @throws IOException if the segment cannot be read
+         */
+        public long currentLength() throws IOException {
+            if (isCompressed()) {
+                return this.length;
+            }
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(this.file, BasicFileAttributes.class);
+                return this.fileKey == null || this.fileKey.equals(attributes.fileKey()) ? attributes.size() : -1L;
+            } catch (NoSuchFileException e) {
+                return -1L;
+            }
+        }
+
+        /**
+         * Opens the (uncompressed) content of the segment.
+         *
+         * @param offset offset within the segment
+         * @return stream of the content starting at the given offset
+         * @throws IOException if the segment cannot be read
+         */
+        public InputStream open(long offset) throws IOException {
+            if (isCompressed()) {
+                InputStream input = new GZIPInputStream(new BufferedInputStream(Files.newInputStream(this.file), 65536), 65536);
+                IOUtils.skipFully(input, offset);
+                return input;
+            }
+            FileChannel channel = FileChannel.open(this.file, StandardOpenOption.READ);
+            channel.position(offset);
+            return Channels.newInputStream(channel);
+        }
+    }
+}
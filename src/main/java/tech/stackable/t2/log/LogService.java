@@ -0,0 +1,474 @@
+package tech.stackable.t2.log;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import tech.stackable.t2.cluster.ClusterRegistry;
+import tech.stackable.t2.domain.Cluster;
+import tech.stackable.t2.domain.Status;
+import tech.stackable.t2.files.FileService;
+
+/**
+ * This service provides the logs of the clusters.
+ *
+ * Logs are never read into memory as a whole. They are served as (regions of) files, which are streamed from disk.
+ * Clients following a log are served by one shared poller thread, which sends only the new lines to each of them.
+ */
+@Service
+public class LogService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LogService.class);
+
+    /**
+     * Name of the log file in the working directory of a cluster
+     */
+    public static final String LOG_FILE = "cluster.log";
+
+    /**
+     * Block size for reading the log backwards (tail)
+     */
+    private static final int TAIL_BLOCK_SIZE = 8192;
+
+    /**
+     * Initial number of newline positions buffered while reading a compressed segment (tail)
+     */
+    private static final int TAIL_INITIAL_NEWLINES = 1024;
+
+    @Autowired
+    private FileService fileService;
+
+    @Autowired
+    private ClusterRegistry clusterRegistry;
+
+    private final long followIntervalMs;
+
+    private final long followTimeoutMs;
+
+    private final int followMaxChunkBytes;
+
+    private final Set<Follower> followers = ConcurrentHashMap.newKeySet();
+
+    private final ScheduledExecutorService poller = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("t2-log-follow-"));
+
+    public LogService(
+            @Value("${t2.log.follow.interval-ms:500}") long followIntervalMs,
+            @Value("${t2.log.follow.timeout-ms:3600000}") long followTimeoutMs,
+            @Value("${t2.log.follow.max-chunk-bytes:65536}") int followMaxChunkBytes) {
+        this.followIntervalMs = followIntervalMs;
+        this.followTimeoutMs = followTimeoutMs;
+        this.followMaxChunkBytes = followMaxChunkBytes;
+    }
+
+    @PostConstruct
+    public void startPoller() {
+        this.poller.scheduleWithFixedDelay(this::poll, this.followIntervalMs, this.followIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        this.poller.shutdownNow();
+        this.followers.forEach(follower -> follower.emitter.complete());
+    }
+
+    /**
+     * Resolves the log file of the given cluster.
+     *
+     * If the working directory of the cluster has been archived, the log is unpacked from the archive.
+     *
+     * @param clusterId ID of the cluster
+     * @return log file (might not exist yet)
+     */
+    public Path logFile(UUID clusterId) {
+        Path workingDirectory = this.fileService.workingDirectory(clusterId);
+        if (!Files.exists(workingDirectory)) {
+            Optional<Path> unpacked = this.fileService.unpackArchivedFiles(clusterId, LOG_FILE);
+            if (unpacked.isPresent()) {
+                return unpacked.get().resolve(LOG_FILE);
+            }
+        }
+        return workingDirectory.resolve(LOG_FILE);
+    }
+
+    /**
+     * Lists the segments of the log of the given cluster.
+     *
+     * @param clusterId ID of the cluster
+     * @return segments, empty if there is no log (yet)
+     */
+    public List<LogSegments.Segment> segments(UUID clusterId) {
+        try {
+            return LogSegments.list(logFile(clusterId));
+        } catch (IOException e) {
+            LOGGER.warn("Log of cluster {} could not be listed.", clusterId, e);
+            return List.of();
+        }
+    }
+
+    /**
+     * Current (uncompressed) size of the log of the given cluster.
+     *
+     * @param clusterId ID of the cluster
+     * @return size in bytes, 0 if there is no log (yet)
+     */
+    public long size(UUID clusterId) {
+        return LogSegments.size(segments(clusterId));
+    }
+
+    /**
+     * Provides the region of the log of the given cluster starting at the given offset up to the current end.
+     *
+     * @param clusterId ID of the cluster
+     * @param offset    offset in bytes
+     * @return region of the log, empty if the offset is at or behind the end
+     */
+    public LogRegionResource region(UUID clusterId, long offset) {
+        List<LogSegments.Segment> segments = segments(clusterId);
+        long size = LogSegments.size(segments);
+        long start = Math.max(0L, Math.min(offset, size));
+        return new LogRegionResource(segments, start, size - start);
+    }
+
+    /**
+     * Provides the whole log of the given cluster as gzip stream, which is made of the compressed segments as they are.
+     *
+     * @param clusterId ID of the cluster
+     * @return log as gzip stream
+     */
+    public GzipLogResource compressed(UUID clusterId) {
+        return new GzipLogResource(segments(clusterId));
+    }
+
+    /**
+     * Reads the index of the sections (phases, Ansible plays and roles) of the log of the given cluster.
+     *
+     * @param clusterId ID of the cluster
+     * @return sections in the order of the log, empty if there is no index
+     */
+    public List<LogIndex.Section> sections(UUID clusterId) {
+        try {
+            return LogIndex.sections(logFile(clusterId), size(clusterId));
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Log index of cluster {} could not be read.", clusterId, e);
+            return List.of();
+        }
+    }
+
+    /**
+     * Provides the region of the log of the given cluster which contains the given run of the given phase.
+     *
+     * @param clusterId ID of the cluster
+     * @param phase     phase, e.g. <code>ansible-launch</code>
+     * @param tryNumber run of the phase (starting with 1), the latest run if <code>null</code>
+     * @return region of the log, empty if the phase has not been run (that often)
+     */
+    public Optional<LogRegionResource> phaseRegion(UUID clusterId, String phase, Integer tryNumber) {
+        return sections(clusterId).stream()
+                .filter(section -> LogIndex.KIND_PHASE.equals(section.getKind()))
+                .filter(section -> section.getPhase().equals(phase))
+                .filter(section -> tryNumber == null || section.getTry() == tryNumber)
+                .reduce((first, second) -> second)
+                .map(section -> new LogRegionResource(segments(clusterId), section.getStart(), section.getEnd() - section.getStart()));
+    }
+
+    /**
+     * Finds the compressed segment which makes up exactly the given region, so it can be sent as it is.
+     *
+     * @param clusterId ID of the cluster
+     * @param region    region of the log
+     * @return compressed segment, empty if the region is not a compressed segment
+     */
+    public Optional<Path> compressedSegment(UUID clusterId, LogRegionResource region) {
+        return segments(clusterId).stream()
+                .filter(LogSegments.Segment::isCompressed)
+                .filter(segment -> segment.getStart() == region.getPosition() && segment.getLength() == region.getCount())
+                .map(LogSegments.Segment::getFile)
+                .findFirst();
+    }
+
+    /**
+     * Finds the offset of the given number of last lines of the log of the given cluster.
+     *
+     * The segments are read backwards, uncompressed segments in blocks, so usually only the tail of the active segment
+     * is touched.
+     *
+     * @param clusterId ID of the cluster
+     * @param lines     number of lines
+     * @return offset in bytes where the last lines start
+     */
+    public long tailOffset(UUID clusterId, int lines) {
+        List<LogSegments.Segment> segments = segments(clusterId);
+        long size = LogSegments.size(segments);
+        if (lines <= 0) {
+            return size;
+        }
+        // a trailing newline ends the last line, it does not start a new one
+        TailScan scan = new TailScan(lines, size - 1);
+        try {
+            for (int i = segments.size() - 1; i >= 0 && scan.offset < 0; i--) {
+                LogSegments.Segment segment = segments.get(i);
+                if (segment.isCompressed()) {
+                    scanCompressed(segment, scan);
+                } else {
+                    scanUncompressed(segment, scan);
+                }
+            }
+            return Math.max(0L, scan.offset);
+        } catch (IOException e) {
+            LOGGER.warn("Log of cluster {} could not be read.", clusterId, e);
+            return 0L;
+        }
+    }
+
+    private static void scanUncompressed(LogSegments.Segment segment, TailScan scan) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment.getFile(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(TAIL_BLOCK_SIZE);
+            long position = Math.min(channel.size(), segment.getLength());
+            while (position > 0) {
+                int length = (int) Math.min(TAIL_BLOCK_SIZE, position);
+                position -= length;
+                buffer.clear().limit(length);
+                while (buffer.hasRemaining() && channel.read(buffer, position + buffer.position()) >= 0) {
+                    // read the whole block
+                }
+                for (int i = length - 1; i >= 0; i--) {
+                    if (buffer.get(i) == '\n' && scan.newline(segment.getStart() + position + i)) {
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    private static void scanCompressed(LogSegments.Segment segment, TailScan scan) throws IOException {
+        // positions of the last newlines of the segment, the buffer grows with the newlines found, as the number of
+        // lines requested is not bounded by the size of the log
+        long[] newlines = new long[Math.min(scan.remaining, TAIL_INITIAL_NEWLINES)];
+        long count = 0;
+        try (InputStream input = segment.open(0L)) {
+            byte[] buffer = new byte[TAIL_BLOCK_SIZE];
+            long position = segment.getStart();
+            int length;
+            while ((length = input.read(buffer)) >= 0) {
+                for (int i = 0; i < length; i++) {
+                    if (buffer[i] == '\n' && position + i != scan.trailingNewline) {
+                        if (count == newlines.length && newlines.length < scan.remaining) {
+                            newlines = Arrays.copyOf(newlines, (int) Math.min(scan.remaining, 2L * newlines.length));
+                        }
+                        newlines[(int) (count++ % newlines.length)] = position + i;
+                    }
+                }
+                position += length;
+            }
+        }
+        for (long i = count - 1; i >= Math.max(0L, count - newlines.length); i--) {
+            if (scan.newline(newlines[(int) (i % newlines.length)])) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Follows the log of the given cluster, starting at the given offset.
+     *
+     * New lines are sent as Server-Sent Events, one line per data field. The ID of each event is the offset after the
+     * event, so a client can resume with the <code>Last-Event-ID</code> header. The stream is completed when no more
+     * output is expected, i.e. when T2 is not working on the cluster anymore.
+     *
+     * @param clusterId ID of the cluster
+     * @param offset    offset in bytes to start from
+     * @return emitter of the events
+     */
+    public SseEmitter follow(UUID clusterId, long offset) {
+        Objects.requireNonNull(clusterId);
+
+        SseEmitter emitter = new SseEmitter(this.followTimeoutMs);
+        Follower follower = new Follower(clusterId, emitter, Math.max(0L, offset));
+        emitter.onCompletion(() -> this.followers.remove(follower));
+        emitter.onTimeout(() -> this.followers.remove(follower));
+        emitter.onError(e -> this.followers.remove(follower));
+        this.followers.add(follower);
+        return emitter;
+    }
+
+    /**
+     * Sends new lines to all followers.
+     */
+    private void poll() {
+        for (Follower follower : this.followers) {
+            try {
+                if (!send(follower)) {
+                    // the cluster status has to be read before the log is checked for the last time
+                    boolean inProgress = this.clusterRegistry.get(follower.clusterId).map(Cluster::getStatus).map(Status::isInProgress).orElse(false);
+                    if (!inProgress && !send(follower)) {
+                        this.followers.remove(follower);
+                        follower.emitter.complete();
+                    }
+                }
+            } catch (IOException | IllegalStateException e) {
+                // client has gone
+                LOGGER.debug("Follower of log of cluster {} removed.", follower.clusterId, e);
+                this.followers.remove(follower);
+                follower.emitter.completeWithError(e);
+            } catch (RuntimeException e) {
+                LOGGER.warn("Error while following log of cluster {}.", follower.clusterId, e);
+            }
+        }
+    }
+
+    /**
+     * Sends the complete lines which have been added to the log since the last call to the given follower.
+     *
+     * @param follower follower
+     * @return <code>true</code> if lines have been sent
+     * @throws IOException if the log cannot be read or the client has gone
+     */
+    private boolean send(Follower follower) throws IOException {
+        if (follower.segment == null || !follower.segment.isActive() && follower.offset >= follower.segment.getEnd()) {
+            // the segments are only listed when the follower has reached the end of a completed segment
+            follower.segment = segments(follower.clusterId).stream()
+                    .filter(segment -> segment.getStart() <= follower.offset && segment.getEnd() > follower.offset)
+                    .findFirst()
+                    .orElse(null);
+            if (follower.segment == null) {
+                return false;
+            }
+        }
+        LogSegments.Segment segment = follower.segment;
+        long currentLength = segment.currentLength();
+        if (currentLength < 0) {
+            // the segment has been rotated or compressed in the meantime
+            follower.segment = null;
+            return send(follower);
+        }
+        long available = segment.getStart() + currentLength - follower.offset;
+        if (available <= 0) {
+            return false;
+        }
+        byte[] buffer = new byte[(int) Math.min(available, this.followMaxChunkBytes)];
+        int read;
+        try (InputStream input = segment.open(follower.offset - segment.getStart())) {
+            read = IOUtils.read(input, buffer);
+        } catch (NoSuchFileException e) {
+            follower.segment = null;
+            return false;
+        }
+
+        // only complete lines are sent, unless a single line exceeds the chunk size
+        int length = read;
+        while (length > 0 && buffer[length - 1] != '\n') {
+            length--;
+        }
+        if (length == 0) {
+            if (read < this.followMaxChunkBytes) {
+                return false;
+            }
+            length = read;
+        }
+
+        String text = new String(buffer, 0, length, StandardCharsets.UTF_8);
+        SseEmitter.SseEventBuilder event = SseEmitter.event().id(Long.toString(follower.offset + length));
+        for (String line : text.split("\n")) {
+            event.data(line);
+        }
+        follower.emitter.send(event);
+        follower.offset += length;
+        return true;
+    }
+
+    /**
+     * Progress of scanning the log backwards for the start of the last lines.
+     */
+    private static class TailScan {
+
+        /**
+         * Number of newlines still to be found
+         */
+        private int remaining;
+
+        /**
+         * Position of the newline at the end of the log, which does not count
+         */
+        private final long trailingNewline;
+
+        /**
+         * Offset where the last lines start, -1 until found
+         */
+        private long offset = -1L;
+
+        private TailScan(int lines, long trailingNewline) {
+            this.remaining = lines;
+            this.trailingNewline = trailingNewline;
+        }
+
+        /**
+         * Counts a newline found while scanning backwards.
+         *
+         * @param position position of the newline
+         * @return <code>true</code> if the start of the last lines has been found
+         */
+        private boolean newline(long position) {
+            if (position == this.trailingNewline) {
+                return false;
+            }
+            if (--this.remaining == 0) {
+                this.offset = position + 1;
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * A client following a log
+     */
+    private static class Follower {
+
+        private final UUID clusterId;
+        private final SseEmitter emitter;
+
+        /**
+         * Offset up to which the log has been sent (only accessed by the poller).
+         */
+        private long offset;
+
+        /**
+         * Segment which contains the offset (only accessed by the poller).
+         */
+        private LogSegments.Segment segment;
+
+        private Follower(UUID clusterId, SseEmitter emitter, long offset) {
+            this.clusterId = clusterId;
+            this.emitter = emitter;
+            this.offset = offset;
+        }
+    }
+}
@@ -0,0 +1,694 @@
+package tech.stackable.t2.log;
+
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Writes the output of processes (Terraform, Ansible) to the logs of the clusters.
+ *
+ * Every line is prepended with a timestamp and a prefix which helps identify the context of the logged line (e.g. step
+ * in the cluster creation).
+ *
+ * The output of all processes is collected by one shared pump thread, which only reads what is available, so no thread
+ * per process is needed. The lines are collected per log and written in batches, when the batch is large enough or
+ * has been waiting long enough. The output a process has left in the pipe when it ends is read by the thread which
+ * closes its {@link ProcessLog}, so the log is complete when the call of the process returns. (Only the output which
+ * is available is read, within a configured time, so a child process which outlives the process and keeps writing to
+ * the pipe cannot block the close.)
+ *
+ * Along with the lines, the {@link LogIndex} of the log is written, which records where each run of a process (phase)
+ * and each Ansible play and role starts.
+ *
+ * All processes which log into the same file share a {@link LogWriter}, so processes of a cluster may run concurrently:
+ * their lines are written in batches of complete lines, so they are interleaved but never torn apart, and every line
+ * tells by its prefix which process it belongs to. A new segment of the log (see {@link LogSegments}) is started when a
+ * process starts while no other process is logging into the file, the previous segment is compressed in the
+ * background.
+ *
+ * The output of a run is capped: if it exceeds the configured head size, only the configured amount of its last lines
+ * (the tail) is kept in addition, the lines in between are replaced by a note. The whole log of a cluster is capped in
+ * the same way, by replacing the completed segments between its head and its tail by placeholders (see
+ * {@link LogSegments#omitMiddle(Path, long, long)}). So a log takes at most the head and tail of the cluster plus the
+ * head and tail of each running process on disk.
+ *
+ * The number of bytes written to the logs is published as counter <code>t2.process.log.bytes</code>.
+ */
+@Service
+public class ProcessLogService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProcessLogService.class);
+
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ISO_INSTANT;
+
+    private static final int READ_BUFFER_SIZE = 8192;
+
+    /**
+     * Number of lines of the output which are kept to tell why a run has failed
+     */
+    private static final int LAST_LINES = 100;
+
+    private final long pumpIntervalMs;
+
+    private final int batchMaxBytes;
+
+    private final long batchMaxDelayMs;
+
+    private final long drainTimeoutMs;
+
+    private final boolean compression;
+
+    private final long headBytes;
+
+    private final long tailBytes;
+
+    private final long clusterHeadBytes;
+
+    private final long clusterTailBytes;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Counter bytesWritten;
+
+    private final Set<ProcessLog> processLogs = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Writers of the log files which processes are logging into (guarded by itself)
+     */
+    private final Map<Path, LogWriter> writers = new HashMap<>();
+
+    private final ScheduledExecutorService pump = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("t2-process-log-"));
+
+    private final ExecutorService compressor = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("t2-log-compress-"));
+
+    public ProcessLogService(
+            @Value("${t2.log.process.pump-interval-ms:20}") long pumpIntervalMs,
+            @Value("${t2.log.process.batch-max-bytes:65536}") int batchMaxBytes,
+            @Value("${t2.log.process.batch-max-delay-ms:200}") long batchMaxDelayMs,
+            @Value("${t2.log.process.drain-timeout-ms:5000}") long drainTimeoutMs,
+            @Value("${t2.log.compression.enabled:true}") boolean compression,
+            @Value("${t2.log.cap.head-bytes:8388608}") long headBytes,
+            @Value("${t2.log.cap.tail-bytes:8388608}") long tailBytes,
+            @Value("${t2.log.cap.cluster-head-bytes:16777216}") long clusterHeadBytes,
+            @Value("${t2.log.cap.cluster-tail-bytes:33554432}") long clusterTailBytes) {
+        this.pumpIntervalMs = pumpIntervalMs;
+        this.batchMaxBytes = batchMaxBytes;
+        this.batchMaxDelayMs = batchMaxDelayMs;
+        this.drainTimeoutMs = drainTimeoutMs;
+        this.compression = compression;
+        this.headBytes = headBytes;
+        this.tailBytes = tailBytes;
+        this.clusterHeadBytes = clusterHeadBytes;
+        this.clusterTailBytes = clusterTailBytes;
+    }
+
+    @PostConstruct
+    public void startPump() {
+        this.bytesWritten = Counter.builder("t2.process.log.bytes")
+                .description("Bytes of process output written to the cluster logs")
+                .baseUnit("bytes")
+                .register(this.meterRegistry);
+        this.pump.scheduleWithFixedDelay(this::pumpAll, this.pumpIntervalMs, this.pumpIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        this.pump.shutdownNow();
+        // segments which are not compressed yet stay readable as they are
+        this.compressor.shutdownNow();
+    }
+
+    /**
+     * Starts logging the output of the given process into the given log file.
+     *
+     * The returned log has to be closed when the process has ended, which completes the log.
+     *
+     * @param process process (with stderr redirected to stdout)
+     * @param logFile file to which the output should be appended
+     * @param prefix  prefix for each line to provide context for the logged line
+     * @return log of the process
+     * @throws IOException if the log file cannot be opened
+     */
+    public ProcessLog start(Process process, Path logFile, String prefix) throws IOException {
+        LogWriter writer = openWriter(logFile);
+        ProcessLog processLog;
+        try {
+            processLog = new ProcessLog(process, writer, prefix);
+        } catch (IOException | RuntimeException e) {
+            releaseWriter(writer);
+            throw e;
+        }
+        this.processLogs.add(processLog);
+        return processLog;
+    }
+
+    /**
+     * Provides the writer of the given log file.
+     *
+     * If no other process is logging into the file, the active segment is completed, so the segment is never rotated
+     * away from under a running process.
+     *
+     * @param logFile log file
+     * @return writer, to be released when the process has ended
+     * @throws IOException if the log file cannot be opened
+     */
+    private LogWriter openWriter(Path logFile) throws IOException {
+        Path key = logFile.toAbsolutePath().normalize();
+        synchronized (this.writers) {
+            LogWriter writer = this.writers.get(key);
+            if (writer == null) {
+                Path completedSegment = LogSegments.rotate(logFile);
+                if (completedSegment != null) {
+                    this.compressor.execute(() -> complete(logFile, completedSegment));
+                }
+                writer = new LogWriter(key);
+                this.writers.put(key, writer);
+            }
+            writer.users++;
+            return writer;
+        }
+    }
+
+    /**
+     * Releases the writer of a process which has ended, the last process closes the log file.
+     *
+     * @param writer writer
+     */
+    private void releaseWriter(LogWriter writer) {
+        synchronized (this.writers) {
+            if (--writer.users > 0) {
+                return;
+            }
+            this.writers.remove(writer.logFile);
+        }
+        writer.close();
+    }
+
+    /**
+     * Compresses a completed segment and caps the log.
+     *
+     * @param logFile log file
+     * @param segment completed segment
+     */
+    private void complete(Path logFile, Path segment) {
+        if (this.compression) {
+            try {
+                LogSegments.compress(segment);
+            } catch (IOException e) {
+                // the segment stays readable uncompressed
+                LOGGER.warn("Log segment {} could not be compressed.", segment, e);
+            }
+        }
+        if (this.clusterHeadBytes > 0) {
+            try {
+                long omitted = LogSegments.omitMiddle(logFile, this.clusterHeadBytes, this.clusterTailBytes);
+                if (omitted > 0) {
+                    LOGGER.info("{} of log {} omitted.", FileUtils.byteCountToDisplaySize(omitted), logFile);
+                }
+            } catch (IOException e) {
+                LOGGER.warn("Log {} could not be capped.", logFile, e);
+            }
+        }
+    }
+
+    /**
+     * Reads the available output of all processes and writes the batches which are due.
+     *
+     * The pump keeps going as long as there is output, and waits for the next interval when all processes are quiet.
+     */
+    private void pumpAll() {
+        boolean outputRead;
+        do {
+            outputRead = false;
+            for (ProcessLog processLog : this.processLogs) {
+                try {
+                    outputRead |= processLog.pump();
+                } catch (RuntimeException e) {
+                    LOGGER.warn("Error while logging output to {}.", processLog.logFile, e);
+                }
+            }
+        } while (outputRead);
+    }
+
+    /**
+     * The log of a running process.
+     */
+    public class ProcessLog implements AutoCloseable {
+
+        private final Process process;
+        private final InputStream input;
+        private final LogWriter writer;
+        private final Path logFile;
+        private final byte[] prefix;
+
+        /**
+         * Phase (the prefix) and run of the phase for the index
+         */
+        private final String phase;
+        private final int tryNumber;
+
+        /**
+         * Ansible output is scanned for plays and roles
+         */
+        private final boolean ansible;
+        private String currentRole = null;
+
+        private final byte[] readBuffer = new byte[READ_BUFFER_SIZE];
+
+        /**
+         * Output of the current line which has not been terminated yet
+         */
+        private final ByteArrayOutputStream pendingLine = new ByteArrayOutputStream();
+
+        /**
+         * Complete lines (with timestamp and prefix) which have not been written yet
+         */
+        private final ByteArrayOutputStream batch = new ByteArrayOutputStream();
+
+        /**
+         * Number of bytes of this run added to the batch so far (the head)
+         */
+        private long headSize = 0L;
+
+        /**
+         * Lines which are kept for the tail once the head is full
+         */
+        private final Deque<TailLine> tail = new ArrayDeque<>();
+        private long tailSize = 0L;
+        private long omittedLines = 0L;
+        private long omittedBytes = 0L;
+
+        /**
+         * Last lines of the output (without timestamp and prefix)
+         */
+        private final Deque<String> lastLines = new ArrayDeque<>();
+
+        /**
+         * Entries of the index which belong to the current batch, the offsets are relative to the batch
+         */
+        private final List<PendingIndexEntry> indexEntries = new ArrayList<>();
+
+        /**
+         * Time when the oldest line of the current batch was added
+         */
+        private long batchStartedAt;
+
+        /**
+         * Timestamp prefix of the lines of the current millisecond
+         */
+        private long timestampMillis = -1L;
+        private byte[] timestamp;
+
+        private boolean closed = false;
+
+        private ProcessLog(Process process, LogWriter writer, String prefix) throws IOException {
+            this.process = process;
+            this.input = process.getInputStream();
+            this.writer = writer;
+            this.logFile = writer.logFile;
+            this.prefix = ("[" + prefix + "] ").getBytes(StandardCharsets.UTF_8);
+            this.phase = prefix;
+            this.tryNumber = LogIndex.countRuns(this.logFile, prefix) + 1;
+            this.ansible = prefix.startsWith("ansible");
+            this.indexEntries.add(new PendingIndexEntry(0, LogIndex.KIND_PHASE, ""));
+        }
+
+        /**
+         * Reads the output which is available without blocking and writes the batch if it is due.
+         *
+         * @return <code>true</code> if output has been read
+         */
+        private synchronized boolean pump() {
+            if (this.closed) {
+                return false;
+            }
+            boolean outputRead = false;
+            try {
+                int available = this.input.available();
+                if (available > 0) {
+                    int length = this.input.read(this.readBuffer, 0, Math.min(available, this.readBuffer.length));
+                    if (length > 0) {
+                        append(length);
+                        outputRead = true;
+                    }
+                }
+            } catch (IOException e) {
+                // the stream has been closed, whatever is left is read when the log is closed
+                LOGGER.debug("Output for {} could not be read.", this.logFile, e);
+            }
+            if (this.batch.size() >= ProcessLogService.this.batchMaxBytes
+                    || (this.batch.size() > 0 && System.currentTimeMillis() - this.batchStartedAt >= ProcessLogService.this.batchMaxDelayMs)) {
+                write();
+            }
+            return outputRead;
+        }
+
+        /**
+         * Reads the rest of the output of the ended process and writes it to the log.
+         *
+         * Everything the process has written is in the pipe when it has ended, so only the output which is available is
+         * read, no read blocks. If more output keeps coming (e.g. from a child process which outlives the process), the
+         * output is truncated after the configured drain timeout. If the process is still running (e.g. because the
+         * thread waiting for it has been interrupted), the output available so far is logged.
+         */
+        @Override
+        public void close() {
+            ProcessLogService.this.processLogs.remove(this);
+            synchronized (this) {
+                if (this.closed) {
+                    return;
+                }
+                this.closed = true;
+                long deadline = System.currentTimeMillis() + ProcessLogService.this.drainTimeoutMs;
+                boolean truncated = false;
+                try {
+                    int available;
+                    while ((available = this.input.available()) > 0) {
+                        if (System.currentTimeMillis() >= deadline) {
+                            truncated = true;
+                            break;
+                        }
+                        int length = this.input.read(this.readBuffer, 0, Math.min(available, this.readBuffer.length));
+                        if (length < 0) {
+                            break;
+                        }
+                        append(length);
+                    }
+                } catch (IOException e) {
+                    LOGGER.warn("Rest of the output for {} could not be read.", this.logFile, e);
+                }
+                if (this.pendingLine.size() > 0) {
+                    completeLine(0, 0);
+                }
+                if (truncated) {
+                    LOGGER.warn("Output for {} truncated, it did not end within {} ms after the process.", this.logFile, ProcessLogService.this.drainTimeoutMs);
+                    this.pendingLine.writeBytes(String.format("[T2] ... output truncated, it did not end within %d ms after the process ...", ProcessLogService.this.drainTimeoutMs)
+                            .getBytes(StandardCharsets.UTF_8));
+                    completeLine(0, 0);
+                }
+                appendTail();
+                write();
+                this.indexEntries.add(new PendingIndexEntry(0, LogIndex.KIND_END, ""));
+                write();
+            }
+            releaseWriter(this.writer);
+        }
+
+        /**
+         * Last lines of the output, complete when the log has been closed.
+         *
+         * @return last lines (without timestamp and prefix), oldest first
+         */
+        public synchronized List<String> getLastLines() {
+            return List.copyOf(this.lastLines);
+        }
+
+        /**
+         * Splits the given amount of output from the read buffer into lines.
+         *
+         * @param length number of bytes in the read buffer
+         */
+        private void append(int length) {
+            int lineStart = 0;
+            for (int i = 0; i < length; i++) {
+                if (this.readBuffer[i] == '\n') {
+                    int lineEnd = i > lineStart && this.readBuffer[i - 1] == '\r' ? i - 1 : i;
+                    completeLine(lineStart, lineEnd - lineStart);
+                    lineStart = i + 1;
+                }
+            }
+            this.pendingLine.write(this.readBuffer, lineStart, length - lineStart);
+            // a line without end must not take up arbitrary memory
+            if (this.pendingLine.size() >= ProcessLogService.this.batchMaxBytes) {
+                completeLine(0, 0);
+            }
+        }
+
+        /**
+         * Adds a line to the batch, consisting of the pending output and the given part of the read buffer.
+         *
+         * When the head of the output is full, the line is kept for the tail instead.
+         *
+         * @param offset start of the rest of the line in the read buffer
+         * @param length length of the rest of the line
+         */
+        private void completeLine(int offset, int length) {
+            long now = System.currentTimeMillis();
+            if (now != this.timestampMillis) {
+                this.timestampMillis = now;
+                this.timestamp = ("[" + TIMESTAMP_FORMAT.format(Instant.ofEpochMilli(now)) + "]").getBytes(StandardCharsets.UTF_8);
+            }
+            boolean headFull = ProcessLogService.this.headBytes > 0 && this.headSize >= ProcessLogService.this.headBytes;
+            ByteArrayOutputStream target = headFull ? new ByteArrayOutputStream() : this.batch;
+            if (!headFull && this.batch.size() == 0) {
+                this.batchStartedAt = now;
+            }
+
+            int lineStart = target.size();
+            target.writeBytes(this.timestamp);
+            target.writeBytes(this.prefix);
+            byte[] pending = null;
+            if (this.pendingLine.size() > 0) {
+                pending = this.pendingLine.toByteArray();
+                target.writeBytes(pending);
+                this.pendingLine.reset();
+            }
+            target.write(this.readBuffer, offset, length);
+            target.write('\n');
+
+            String line = (pending != null ? new String(pending, StandardCharsets.UTF_8) : "") + new String(this.readBuffer, offset, length, StandardCharsets.UTF_8);
+            this.lastLines.addLast(line);
+            if (this.lastLines.size() > LAST_LINES) {
+                this.lastLines.removeFirst();
+            }
+
+            PendingIndexEntry indexEntry = null;
+            if (this.ansible && (line.startsWith("P") || line.startsWith("T"))) {
+                indexEntry = indexAnsibleLine(line, lineStart);
+            }
+
+            if (!headFull) {
+                this.headSize += target.size() - lineStart;
+                if (indexEntry != null) {
+                    this.indexEntries.add(indexEntry);
+                }
+                return;
+            }
+            TailLine tailLine = new TailLine(target.toByteArray(), indexEntry);
+            this.tail.addLast(tailLine);
+            this.tailSize += tailLine.bytes.length;
+            while (this.tailSize > ProcessLogService.this.tailBytes && !this.tail.isEmpty()) {
+                TailLine omitted = this.tail.removeFirst();
+                this.tailSize -= omitted.bytes.length;
+                this.omittedBytes += omitted.bytes.length;
+                this.omittedLines++;
+            }
+        }
+
+        /**
+         * Adds the tail to the batch, preceded by a note about the omitted lines (when the run has ended).
+         */
+        private void appendTail() {
+            if (this.omittedLines > 0) {
+                this.batch.writeBytes(this.timestamp);
+                this.batch.writeBytes(this.prefix);
+                this.batch.writeBytes(String.format("[T2] ... %d lines (%s) omitted, the log of a run keeps the first %s and the last %s ...%n",
+                        this.omittedLines,
+                        FileUtils.byteCountToDisplaySize(this.omittedBytes),
+                        FileUtils.byteCountToDisplaySize(ProcessLogService.this.headBytes),
+                        FileUtils.byteCountToDisplaySize(ProcessLogService.this.tailBytes)).getBytes(StandardCharsets.UTF_8));
+            }
+            for (TailLine line : this.tail) {
+                if (line.indexEntry != null) {
+                    this.indexEntries.add(new PendingIndexEntry(this.batch.size(), line.indexEntry.kind, line.indexEntry.name));
+                }
+                this.batch.writeBytes(line.bytes);
+            }
+            this.tail.clear();
+            this.tailSize = 0L;
+        }
+
+        /**
+         * Creates the entry of the index for the start of an Ansible play or role.
+         *
+         * @param line      line of the Ansible output
+         * @param lineStart offset of the line in the batch
+         * @return entry of the index, <code>null</code> if the line does not start a play or role
+         */
+        private PendingIndexEntry indexAnsibleLine(String line, int lineStart) {
+            int nameStart = line.indexOf('[');
+            int nameEnd = line.lastIndexOf(']');
+            if (nameStart < 0 || nameEnd < nameStart) {
+                return null;
+            }
+            String name = line.substring(nameStart + 1, nameEnd);
+            if (line.startsWith("PLAY [")) {
+                this.currentRole = null;
+                return new PendingIndexEntry(lineStart, LogIndex.KIND_PLAY, name);
+            }
+            if (line.startsWith("TASK [") && name.contains(" : ")) {
+                String role = name.substring(0, name.indexOf(" : "));
+                if (!role.equals(this.currentRole)) {
+                    this.currentRole = role;
+                    return new PendingIndexEntry(lineStart, LogIndex.KIND_ROLE, role);
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Writes the current batch to the log file and its entries to the index.
+         */
+        private void write() {
+            if (this.batch.size() == 0 && this.indexEntries.isEmpty()) {
+                return;
+            }
+            try {
+                this.writer.write(this.batch.toByteArray(), this.indexEntries, this.phase, this.tryNumber);
+                ProcessLogService.this.bytesWritten.increment(this.batch.size());
+            } catch (IOException e) {
+                LOGGER.error("Error while writing process log to {}", this.logFile, e);
+            }
+            this.batch.reset();
+            this.indexEntries.clear();
+        }
+    }
+
+    /**
+     * Writer of a log file which is shared by the processes logging into it.
+     */
+    private static class LogWriter {
+
+        private final Path logFile;
+        private final FileChannel channel;
+        private final FileChannel indexChannel;
+
+        /**
+         * Offset of the active segment in the log
+         */
+        private final long segmentStart;
+
+        /**
+         * Number of processes using the writer (guarded by the writers of the service)
+         */
+        private int users = 0;
+
+        private LogWriter(Path logFile) throws IOException {
+            this.logFile = logFile;
+            this.segmentStart = LogSegments.size(LogSegments.list(logFile));
+            this.channel = FileChannel.open(logFile, CREATE, WRITE, APPEND);
+            try {
+                this.indexChannel = FileChannel.open(LogIndex.indexFile(logFile), CREATE, WRITE, APPEND);
+                // no process is logging, so all runs before (e.g. of a T2 which was killed) have ended
+                writeFully(this.indexChannel, LogIndex.entry(this.segmentStart, LogIndex.KIND_OPEN, "", 0, "").getBytes(StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                this.channel.close();
+                throw e;
+            }
+        }
+
+        /**
+         * Appends complete lines of a process to the log and their entries to the index.
+         *
+         * @param lines     complete lines
+         * @param entries   entries of the index, the offsets are relative to the lines
+         * @param phase     phase of the process
+         * @param tryNumber run of the phase
+         * @throws IOException if the log cannot be written
+         */
+        private synchronized void write(byte[] lines, List<PendingIndexEntry> entries, String phase, int tryNumber) throws IOException {
+            long batchStart = this.segmentStart + this.channel.size();
+            writeFully(this.channel, lines);
+            if (!entries.isEmpty()) {
+                StringBuilder index = new StringBuilder();
+                for (PendingIndexEntry entry : entries) {
+                    index.append(LogIndex.entry(batchStart + entry.offset, entry.kind, phase, tryNumber, entry.name));
+                }
+                writeFully(this.indexChannel, index.toString().getBytes(StandardCharsets.UTF_8));
+            }
+        }
+
+        private synchronized void close() {
+            try {
+                this.channel.close();
+                this.indexChannel.close();
+            } catch (IOException e) {
+                LOGGER.warn("Log {} could not be closed.", this.logFile, e);
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel channel, byte[] bytes) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Line of the tail of a capped run
+     */
+    private static class TailLine {
+
+        private final byte[] bytes;
+        private final PendingIndexEntry indexEntry;
+
+        private TailLine(byte[] bytes, PendingIndexEntry indexEntry) {
+            this.bytes = bytes;
+            this.indexEntry = indexEntry;
+        }
+    }
+
+    /**
+     * Entry of the index which has not been written yet
+     */
+    private static class PendingIndexEntry {
+
+        private final int offset;
+        private final String kind;
+        private final String name;
+
+        private PendingIndexEntry(int offset, String kind, String name) {
+            this.offset = offset;
+            this.kind = kind;
+            this.name = name;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package tech.stackable.t2.pipeline;
+
+/**
+ * The pipeline manifest of a template is not valid.
+ */
+public class InvalidPipelineException extends RuntimeException {
+
+    public InvalidPipelineException(String msg) {
+        super(msg);
+    }
+
+    public InvalidPipelineException(String msg, Throwable t) {
+        super(msg, t);
+    }
+}
@@ -0,0 +1,148 @@
+package tech.stackable.t2.pipeline;
+
+import java.nio.file.Path;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * The stages of a cluster launch, declared by a template in its pipeline manifest.
+ * 
+ * Stages are run in the order they are declared. A stage marked as <code>concurrent</code> runs together with the
+ * stage before it, so consecutive stages form groups: a group starts when the previous group has been completed
+ * successfully.
+ */
+public class Pipeline {
+
+    /**
+     * Name of the checkpoint of a launch which has been started but has not completed any stage yet
+     */
+    public static final String STARTED = "started";
+
+    /**
+     * Name of the checkpoint of a launch which has failed or has been cancelled and is being cleaned up
+     */
+    public static final String CLEANUP = "cleanup";
+
+    private static final Pattern SAFE_FILE_NAME = Pattern.compile("[A-Za-z0-9._/-]+");
+
+    private List<StageDefinition> stages = new ArrayList<>();
+
+    /**
+     * The pipeline of templates without a manifest: Terraform init, plan and apply, the wait after Terraform apply
+     * (<code>spec.waitAfterTerraform</code>) and the Ansible launch playbook.
+     * 
+     * @return default pipeline
+     */
+    public static Pipeline defaultPipeline() {
+        Pipeline pipeline = new Pipeline();
+        pipeline.stages.add(new StageDefinition("init", StageType.TERRAFORM_INIT, null));
+        pipeline.stages.add(new StageDefinition("plan", StageType.TERRAFORM_PLAN, null));
+        pipeline.stages.add(new StageDefinition("apply", StageType.TERRAFORM_APPLY, null));
+        pipeline.stages.add(new StageDefinition("wait", StageType.WAIT, null));
+        pipeline.stages.add(new StageDefinition("ansible-launch", StageType.ANSIBLE, "launch.yaml"));
+        return pipeline;
+    }
+
+    public List<StageDefinition> getStages() {
+        return stages;
+    }
+
+    public void setStages(List<StageDefinition> stages) {
+        this.stages = stages;
+    }
+
+    /**
+     * The stages in groups of stages which run concurrently.
+     * 
+     * @return groups in the order they are run
+     */
+    public List<List<StageDefinition>> groups() {
+        List<List<StageDefinition>> groups = new ArrayList<>();
+        for (StageDefinition stage : this.stages) {
+            if (groups.isEmpty() || !stage.isConcurrent()) {
+                groups.add(new ArrayList<>());
+            }
+            groups.get(groups.size() - 1).add(stage);
+        }
+        return groups;
+    }
+
+    /**
+     * Position of the group which follows the given checkpoint.
+     * 
+     * @param checkpoint name of the last completed stage or {@link #STARTED}
+     * @return position of the next group (the number of groups if the checkpoint is the last group), <code>-1</code> if
+     *         the pipeline has no stage with the given name
+     */
+    public int groupAfter(String checkpoint) {
+        if (STARTED.equals(checkpoint)) {
+            return 0;
+        }
+        List<List<StageDefinition>> groups = groups();
+        for (int i = 0; i < groups.size(); i++) {
+            for (StageDefinition stage : groups.get(i)) {
+                if (stage.getName().equals(checkpoint)) {
+                    return i + 1;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Checks the declared stages.
+     * 
+     * @throws InvalidPipelineException if a stage is not valid
+     */
+    public void validate() {
+        if (this.stages == null || this.stages.isEmpty()) {
+            throw new InvalidPipelineException("The pipeline has no stages.");
+        }
+        Set<String> names = new HashSet<>();
+        for (StageDefinition stage : this.stages) {
+            if (StringUtils.isBlank(stage.getName()) || STARTED.equals(stage.getName()) || CLEANUP.equals(stage.getName())) {
+                throw new InvalidPipelineException(MessageFormat.format("Stage names must not be empty, ''{0}'' or ''{1}''.", STARTED, CLEANUP));
+            }
+            if (!names.add(stage.getName())) {
+                throw new InvalidPipelineException(MessageFormat.format("The stage name ''{0}'' is used twice.", stage.getName()));
+            }
+            if (stage.getType() == null) {
+                throw new InvalidPipelineException(MessageFormat.format("The stage ''{0}'' has no type.", stage.getName()));
+            }
+            if (stage.getType() == StageType.ANSIBLE && !isRelativeFile(stage.getPlaybook())) {
+                throw new InvalidPipelineException(MessageFormat.format("The stage ''{0}'' needs a playbook in the working directory.", stage.getName()));
+            }
+            if (isNegative(stage.getMinutes()) || isNegative(stage.getRetryDelaySeconds()) || isNegative(stage.getTimeoutMinutes())
+                    || (stage.getTries() != null && stage.getTries() < 1)) {
+                throw new InvalidPipelineException(MessageFormat.format("The stage ''{0}'' has an option out of range.", stage.getName()));
+            }
+        }
+        for (List<StageDefinition> group : groups()) {
+            if (group.stream().filter(stage -> stage.getType().isTerraform()).count() > 1) {
+                throw new InvalidPipelineException(MessageFormat.format("The Terraform stages {0} must not run concurrently.", group));
+            }
+        }
+    }
+
+    /**
+     * Is the given file name relative to the working directory? As it is passed to a shell, it must not contain
+     * anything but letters, digits and <code>._/-</code>.
+     */
+    private static boolean isRelativeFile(String file) {
+        if (StringUtils.isBlank(file) || !SAFE_FILE_NAME.matcher(file).matches()) {
+            return false;
+        }
+        Path path = Path.of(file).normalize();
+        return !path.isAbsolute() && !path.startsWith("..");
+    }
+
+    private static boolean isNegative(Integer value) {
+        return value != null && value < 0;
+    }
+}
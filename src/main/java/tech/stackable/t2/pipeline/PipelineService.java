@@ -0,0 +1,51 @@
+package tech.stackable.t2.pipeline;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+
+/**
+ * Reads the launch pipelines of clusters.
+ * 
+ * A template declares its pipeline in the manifest {@value #MANIFEST_FILE}, which is copied to the working directory
+ * of each cluster. Templates without a manifest use the {@link Pipeline#defaultPipeline() default pipeline}.
+ */
+@Service
+public class PipelineService {
+
+    public static final String MANIFEST_FILE = "pipeline.yaml";
+
+    private final ObjectMapper mapper = new ObjectMapper(new YAMLFactory())
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, true);
+
+    /**
+     * Reads the pipeline of the cluster with the given working directory.
+     * 
+     * @param workingDirectory working directory of the cluster
+     * @return pipeline
+     * @throws InvalidPipelineException if the manifest cannot be read or is not valid
+     */
+    public Pipeline read(Path workingDirectory) {
+        Path manifest = workingDirectory.resolve(MANIFEST_FILE);
+        if (!Files.exists(manifest)) {
+            return Pipeline.defaultPipeline();
+        }
+        Pipeline pipeline;
+        try {
+            pipeline = this.mapper.readValue(manifest.toFile(), Pipeline.class);
+        } catch (JsonProcessingException e) {
+            throw new InvalidPipelineException(String.format("The pipeline manifest is not valid: %s", e.getOriginalMessage()), e);
+        } catch (IOException e) {
+            throw new InvalidPipelineException(String.format("The pipeline manifest could not be read: %s", e.getMessage()), e);
+        }
+        pipeline.validate();
+        return pipeline;
+    }
+}
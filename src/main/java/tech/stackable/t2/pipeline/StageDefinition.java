@@ -0,0 +1,147 @@
+package tech.stackable.t2.pipeline;
+
+import java.time.Duration;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * A stage of a launch pipeline as declared in a pipeline manifest.
+ * 
+ * Options which are not set fall back to the defaults of T2 (e.g. the number of tries to <code>t2.retry.launch-tries</code>).
+ */
+public class StageDefinition {
+
+    private String name;
+
+    private StageType type;
+
+    /**
+     * Playbook of an {@link StageType#ANSIBLE} stage, relative to the working directory
+     */
+    private String playbook;
+
+    /**
+     * Duration of a {@link StageType#WAIT} stage (minutes), <code>spec.waitAfterTerraform</code> of the cluster definition
+     * if not set
+     */
+    private Integer minutes;
+
+    /**
+     * Maximum number of tries
+     */
+    private Integer tries;
+
+    /**
+     * Delay before the first retry (seconds)
+     */
+    private Integer retryDelaySeconds;
+
+    /**
+     * Time budget of the stage (minutes): no try is started after it has elapsed
+     */
+    private Integer timeoutMinutes;
+
+    /**
+     * Is the stage run concurrently with the previous stage?
+     */
+    private boolean concurrent;
+
+    /**
+     * Can the stage be run again if it was interrupted by a restart of T2? Defaults to the type of the stage.
+     */
+    private Boolean resumable;
+
+    public StageDefinition() {
+    }
+
+    StageDefinition(String name, StageType type, String playbook) {
+        this.name = name;
+        this.type = type;
+        this.playbook = playbook;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public StageType getType() {
+        return type;
+    }
+
+    public void setType(StageType type) {
+        this.type = type;
+    }
+
+    public String getPlaybook() {
+        return playbook;
+    }
+
+    public void setPlaybook(String playbook) {
+        this.playbook = playbook;
+    }
+
+    public Integer getMinutes() {
+        return minutes;
+    }
+
+    public void setMinutes(Integer minutes) {
+        this.minutes = minutes;
+    }
+
+    public Integer getTries() {
+        return tries;
+    }
+
+    public void setTries(Integer tries) {
+        this.tries = tries;
+    }
+
+    public Integer getRetryDelaySeconds() {
+        return retryDelaySeconds;
+    }
+
+    public void setRetryDelaySeconds(Integer retryDelaySeconds) {
+        this.retryDelaySeconds = retryDelaySeconds;
+    }
+
+    public Integer getTimeoutMinutes() {
+        return timeoutMinutes;
+    }
+
+    public void setTimeoutMinutes(Integer timeoutMinutes) {
+        this.timeoutMinutes = timeoutMinutes;
+    }
+
+    /**
+     * @return time budget of the stage, <code>null</code> if not set
+     */
+    @JsonIgnore
+    public Duration getTimeout() {
+        return this.timeoutMinutes != null ? Duration.ofMinutes(this.timeoutMinutes) : null;
+    }
+
+    public boolean isConcurrent() {
+        return concurrent;
+    }
+
+    public void setConcurrent(boolean concurrent) {
+        this.concurrent = concurrent;
+    }
+
+    public boolean isResumable() {
+        return this.resumable != null ? this.resumable : this.type.isResumable();
+    }
+
+    public void setResumable(Boolean resumable) {
+        this.resumable = resumable;
+    }
+
+    @Override
+    public String toString() {
+        return "StageDefinition [name=" + name + ", type=" + type + "]";
+    }
+}
@@ -0,0 +1,131 @@
+package tech.stackable.t2.pipeline;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * Durations of the stages of launches and teardowns per template and stage, since T2 was started.
+ *
+ * The durations are also published as histogram <code>t2.stage.duration</code> (tags <code>template</code>,
+ * <code>stage</code> and <code>outcome</code>).
+ */
+@Component
+public class StageStatistics {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Records a run of a stage.
+     * 
+     * @param template   template of the cluster
+     * @param stage      name of the stage
+     * @param duration   duration of the stage including its retries
+     * @param successful was the stage successful?
+     */
+    public void record(String template, String stage, Duration duration, boolean successful) {
+        this.entries.computeIfAbsent(template + "/" + stage, key -> new Entry(template, stage)).add(duration, successful);
+        Timer.builder("t2.stage.duration")
+                .description("Duration of the stages of launches and teardowns including their retries")
+                .tag("template", String.valueOf(template))
+                .tag("stage", stage)
+                .tag("outcome", successful ? "success" : "failure")
+                .publishPercentileHistogram()
+                .register(this.meterRegistry)
+                .record(duration);
+    }
+
+    /**
+     * The statistics of all stages which have been run.
+     * 
+     * @return statistics sorted by template and stage
+     */
+    public List<Entry> getEntries() {
+        List<Entry> result = new ArrayList<>(this.entries.values());
+        result.sort(Comparator.comparing(Entry::getTemplate).thenComparing(Entry::getStage));
+        return result;
+    }
+
+    @Schema(description = "Durations of a launch stage of a template")
+    public static class Entry {
+
+        @Schema(description = "Template", required = true)
+        private final String template;
+
+        @Schema(description = "Name of the stage", required = true)
+        private final String stage;
+
+        private long runs;
+
+        private long failures;
+
+        private Duration total = Duration.ZERO;
+
+        private Duration max = Duration.ZERO;
+
+        private Duration last = Duration.ZERO;
+
+        private Entry(String template, String stage) {
+            this.template = template;
+            this.stage = stage;
+        }
+
+        private synchronized void add(Duration duration, boolean successful) {
+            this.runs++;
+            if (!successful) {
+                this.failures++;
+            }
+            this.total = this.total.plus(duration);
+            if (duration.compareTo(this.max) > 0) {
+                this.max = duration;
+            }
+            this.last = duration;
+        }
+
+        public String getTemplate() {
+            return template;
+        }
+
+        public String getStage() {
+            return stage;
+        }
+
+        @Schema(description = "Number of runs of the stage", required = true)
+        public synchronized long getRuns() {
+            return runs;
+        }
+
+        @Schema(description = "Number of failed runs of the stage", required = true)
+        public synchronized long getFailures() {
+            return failures;
+        }
+
+        @Schema(description = "Average duration", required = true)
+        public synchronized Duration getAverage() {
+            return this.runs > 0 ? this.total.dividedBy(this.runs) : Duration.ZERO;
+        }
+
+        @Schema(description = "Maximum duration", required = true)
+        public synchronized Duration getMax() {
+            return max;
+        }
+
+        @Schema(description = "Duration of the last run", required = true)
+        public synchronized Duration getLast() {
+            return last;
+        }
+    }
+}
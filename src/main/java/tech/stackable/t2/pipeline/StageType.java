@@ -0,0 +1,88 @@
+package tech.stackable.t2.pipeline;
+
+import java.util.Arrays;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+/**
+ * Kinds of stages a launch pipeline can consist of.
+ */
+public enum StageType {
+
+    /**
+     * <code>terraform init</code>, skipped if the working directory has been initialized in advance
+     */
+    TERRAFORM_INIT("terraform-init", true, true),
+
+    /**
+     * <code>terraform plan</code>, the plan is saved and applied by the next {@link #TERRAFORM_APPLY}
+     */
+    TERRAFORM_PLAN("terraform-plan", true, true),
+
+    /**
+     * <code>terraform apply</code> of the saved plan, or without a plan if there is none
+     */
+    TERRAFORM_APPLY("terraform-apply", true, true),
+
+    /**
+     * wait for the given time without occupying a thread
+     */
+    WAIT("wait", false, true),
+
+    /**
+     * run an Ansible playbook of the template
+     */
+    ANSIBLE("ansible", false, false);
+
+    private final String key;
+
+    private final boolean terraform;
+
+    private final boolean resumable;
+
+    private StageType(String key, boolean terraform, boolean resumable) {
+        this.key = key;
+        this.terraform = terraform;
+        this.resumable = resumable;
+    }
+
+    /**
+     * Key of the type as used in pipeline manifests.
+     * 
+     * @return key
+     */
+    @JsonValue
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * Does a stage of this type work on the Terraform state? Such stages must not run concurrently.
+     * 
+     * @return <code>true</code> for Terraform stages
+     */
+    public boolean isTerraform() {
+        return terraform;
+    }
+
+    /**
+     * Can a stage of this type be run again if it was interrupted by a restart of T2?
+     * 
+     * Terraform converges to the planned state and waits have no side effects. Playbooks are not known to be
+     * idempotent.
+     * 
+     * @return <code>true</code> if the stage can be run again by default
+     */
+    public boolean isResumable() {
+        return resumable;
+    }
+
+    @JsonCreator
+    public static StageType ofKey(String key) {
+        return Arrays.stream(values())
+                .filter(type -> type.key.equals(key))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown stage type " + key));
+    }
+}
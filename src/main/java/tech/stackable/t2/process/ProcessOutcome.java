@@ -0,0 +1,114 @@
+package tech.stackable.t2.process;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Outcome of a run of an external process (Terraform, Ansible): its exit code and the last lines of its output, which
+ * tell why a run has failed.
+ */
+public class ProcessOutcome {
+
+    private final int exitCode;
+
+    private final boolean successful;
+
+    private final List<String> lastLines;
+
+    private final Termination termination;
+
+    /**
+     * Creates the outcome of a run.
+     *
+     * @param exitCode   exit code of the process
+     * @param successful <code>true</code> if the exit code means success for the command which was run
+     * @param lastLines  last lines of the output (without timestamp and prefix)
+     */
+    public ProcessOutcome(int exitCode, boolean successful, List<String> lastLines) {
+        this(exitCode, successful, lastLines, Termination.EXITED);
+    }
+
+    private ProcessOutcome(int exitCode, boolean successful, List<String> lastLines, Termination termination) {
+        this.exitCode = exitCode;
+        this.successful = successful;
+        this.lastLines = List.copyOf(lastLines);
+        this.termination = termination;
+    }
+
+    /**
+     * Creates the outcome of a run which has been killed because it has exceeded its timeout.
+     *
+     * @param exitCode  exit code of the killed process
+     * @param lastLines last lines of the output
+     * @return outcome
+     */
+    public static ProcessOutcome timedOut(int exitCode, List<String> lastLines) {
+        return new ProcessOutcome(exitCode, false, lastLines, Termination.TIMED_OUT);
+    }
+
+    /**
+     * Creates the outcome of a run which has been cancelled (killed or not started at all).
+     *
+     * @param exitCode  exit code of the killed process, <code>-1</code> if it has not been started
+     * @param lastLines last lines of the output
+     * @return outcome
+     */
+    public static ProcessOutcome cancelled(int exitCode, List<String> lastLines) {
+        return new ProcessOutcome(exitCode, false, lastLines, Termination.CANCELLED);
+    }
+
+    public int getExitCode() {
+        return exitCode;
+    }
+
+    public boolean isSuccessful() {
+        return successful;
+    }
+
+    public List<String> getLastLines() {
+        return lastLines;
+    }
+
+    /**
+     * @return <code>true</code> if the process has been killed because it has exceeded its timeout
+     */
+    public boolean isTimedOut() {
+        return this.termination == Termination.TIMED_OUT;
+    }
+
+    /**
+     * @return <code>true</code> if the run has been cancelled
+     */
+    public boolean isCancelled() {
+        return this.termination == Termination.CANCELLED;
+    }
+
+    /**
+     * Checks if one of the last lines of the output contains the given pattern.
+     *
+     * @param pattern pattern
+     * @return first line containing the pattern, <code>null</code> if there is none
+     */
+    public String find(Pattern pattern) {
+        for (String line : this.lastLines) {
+            if (pattern.matcher(line).find()) {
+                return line;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return "ProcessOutcome [exitCode=" + exitCode + ", successful=" + successful + ", termination=" + termination + "]";
+    }
+
+    /**
+     * How the process has ended
+     */
+    private enum Termination {
+        EXITED,
+        TIMED_OUT,
+        CANCELLED
+    }
+}
@@ -0,0 +1,239 @@
+package tech.stackable.t2.process;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import tech.stackable.t2.log.ProcessLogService;
+import tech.stackable.t2.log.ProcessLogService.ProcessLog;
+
+/**
+ * Runs the external processes of T2 (Terraform, Ansible) with a timeout per command, and cancels the processes of a
+ * cluster on request.
+ *
+ * A process which exceeds its timeout or is cancelled is killed with its whole process tree (the <code>sh -c</code>
+ * and all its descendants): first gracefully, so that e.g. Terraform can save its state, and forcibly after a grace
+ * period.
+ *
+ * The number of running processes is published as gauge <code>t2.process.active</code>, the durations of the processes
+ * as histogram <code>t2.process.duration</code> (tags <code>phase</code> and <code>outcome</code>).
+ */
+@Service
+public class ProcessService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProcessService.class);
+
+    @Autowired
+    private ProcessLogService processLogService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Environment environment;
+
+    private final Duration defaultTimeout;
+
+    private final Duration killGracePeriod;
+
+    private final ScheduledExecutorService killer = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("t2-kill-"));
+
+    /**
+     * Cancellable processes which are running, by the ID of their cluster
+     */
+    private final Map<UUID, Set<Process>> runningProcesses = new ConcurrentHashMap<>();
+
+    /**
+     * Clusters whose cancellable processes are cancelled
+     */
+    private final Set<UUID> cancelledClusters = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Number of running processes (cancellable or not)
+     */
+    private final AtomicInteger activeProcesses = new AtomicInteger();
+
+    public ProcessService(
+            @Value("${t2.process.default-timeout-minutes:60}") long defaultTimeoutMinutes,
+            @Value("${t2.process.kill-grace-seconds:30}") long killGraceSeconds,
+            Environment environment) {
+        this.defaultTimeout = Duration.ofMinutes(defaultTimeoutMinutes);
+        this.killGracePeriod = Duration.ofSeconds(killGraceSeconds);
+        this.environment = environment;
+    }
+
+    @PostConstruct
+    public void registerMetrics() {
+        Gauge.builder("t2.process.active", this.activeProcesses, AtomicInteger::get)
+                .description("Number of running Terraform and Ansible processes")
+                .register(this.meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        this.killer.shutdownNow();
+    }
+
+    /**
+     * Runs a process and waits until it has ended, it has exceeded its timeout or it has been cancelled.
+     *
+     * The timeout of a phase is configured with <code>t2.process.timeout-minutes.&lt;phase&gt;</code>, e.g.
+     * <code>t2.process.timeout-minutes.terraform-apply</code>.
+     *
+     * @param clusterId      cluster the process works on, <code>null</code> if it does not belong to a cluster
+     * @param cancellable    can the process be cancelled by {@link #cancel(UUID)}?
+     * @param processBuilder process to be started
+     * @param logFile        file to which the output is logged
+     * @param phase          phase, e.g. <code>terraform-apply</code>, used as prefix in the log
+     * @param successful     tells if an exit code means success
+     * @return outcome of the process
+     * @throws IOException          if the process cannot be started
+     * @throws InterruptedException if the calling thread is interrupted
+     */
+    public ProcessOutcome run(UUID clusterId, boolean cancellable, ProcessBuilder processBuilder, Path logFile, String phase, ExitCodeCheck successful)
+            throws IOException, InterruptedException {
+        boolean tracked = clusterId != null && cancellable;
+        if (tracked && isCancelled(clusterId)) {
+            return ProcessOutcome.cancelled(-1, List.of());
+        }
+
+        long start = System.nanoTime();
+        // stderr redirected to stdout
+        Process process = processBuilder.redirectErrorStream(true).start();
+        this.activeProcesses.incrementAndGet();
+        if (tracked) {
+            this.runningProcesses.computeIfAbsent(clusterId, id -> ConcurrentHashMap.newKeySet()).add(process);
+            // the cluster might have been cancelled while the process was started
+            if (isCancelled(clusterId)) {
+                killTree(process);
+            }
+        }
+
+        Duration timeout = timeout(phase);
+        boolean timedOut = false;
+        // Set up process logging, the log is complete when it is closed
+        ProcessLog processLog = this.processLogService.start(process, logFile, phase);
+        int exitCode;
+        try (processLog) {
+            if (!process.waitFor(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                timedOut = true;
+                LOGGER.warn("{} in {} has exceeded its timeout of {} minutes and is killed.", phase, processBuilder.directory(), timeout.toMinutes());
+                killTree(process);
+            }
+            exitCode = process.waitFor();
+        } finally {
+            this.activeProcesses.decrementAndGet();
+            if (tracked) {
+                this.runningProcesses.computeIfPresent(clusterId, (id, processes) -> {
+                    processes.remove(process);
+                    return processes.isEmpty() ? null : processes;
+                });
+            }
+        }
+
+        ProcessOutcome outcome;
+        String result;
+        if (tracked && isCancelled(clusterId) && !successful.test(exitCode)) {
+            outcome = ProcessOutcome.cancelled(exitCode, processLog.getLastLines());
+            result = "cancelled";
+        } else if (timedOut) {
+            outcome = ProcessOutcome.timedOut(exitCode, processLog.getLastLines());
+            result = "timeout";
+        } else {
+            outcome = new ProcessOutcome(exitCode, successful.test(exitCode), processLog.getLastLines());
+            result = outcome.isSuccessful() ? "success" : "failure";
+        }
+        Timer.builder("t2.process.duration")
+                .description("Duration of the Terraform and Ansible processes")
+                .tag("phase", phase)
+                .tag("outcome", result)
+                .publishPercentileHistogram()
+                .register(this.meterRegistry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return outcome;
+    }
+
+    /**
+     * Cancels the cancellable processes of the given cluster: the running ones are killed, further ones are not started
+     * until the cancellation is cleared.
+     *
+     * @param clusterId ID of the cluster
+     * @return <code>false</code> if the processes of the cluster have been cancelled already
+     */
+    public boolean cancel(UUID clusterId) {
+        if (!this.cancelledClusters.add(clusterId)) {
+            return false;
+        }
+        Set<Process> processes = this.runningProcesses.getOrDefault(clusterId, Set.of());
+        LOGGER.info("Processes of cluster {} cancelled, {} running processes are killed.", clusterId, processes.size());
+        processes.forEach(this::killTree);
+        return true;
+    }
+
+    /**
+     * @param clusterId ID of the cluster
+     * @return <code>true</code> if the processes of the cluster have been cancelled
+     */
+    public boolean isCancelled(UUID clusterId) {
+        return this.cancelledClusters.contains(clusterId);
+    }
+
+    /**
+     * Clears the cancellation of the given cluster, e.g. when its launch has ended.
+     *
+     * @param clusterId ID of the cluster
+     */
+    public void clearCancellation(UUID clusterId) {
+        this.cancelledClusters.remove(clusterId);
+    }
+
+    /**
+     * Kills the given process and all its descendants, first gracefully (SIGTERM), then forcibly (SIGKILL) after the
+     * grace period.
+     *
+     * @param process process
+     */
+    private void killTree(Process process) {
+        List<ProcessHandle> tree = process.descendants().collect(Collectors.toList());
+        tree.add(0, process.toHandle());
+        tree.forEach(ProcessHandle::destroy);
+        this.killer.schedule(() -> tree.stream().filter(ProcessHandle::isAlive).forEach(ProcessHandle::destroyForcibly),
+                this.killGracePeriod.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private Duration timeout(String phase) {
+        Long minutes = this.environment.getProperty("t2.process.timeout-minutes." + phase, Long.class);
+        return minutes != null ? Duration.ofMinutes(minutes) : this.defaultTimeout;
+    }
+
+    /**
+     * Tells if an exit code of a command means success
+     */
+    @FunctionalInterface
+    public interface ExitCodeCheck {
+        boolean test(int exitCode);
+    }
+}
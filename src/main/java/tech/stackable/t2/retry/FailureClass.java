@@ -0,0 +1,23 @@
+package tech.stackable.t2.retry;
+
+/**
+ * Class of a failed try, which decides whether and when the task is tried again.
+ */
+public enum FailureClass {
+
+    /**
+     * the failure might go away (network hiccup, API error, VM not reachable yet), the task is retried with backoff
+     */
+    TRANSIENT,
+
+    /**
+     * the provider throttles the requests, the task is retried with a longer backoff
+     */
+    RATE_LIMITED,
+
+    /**
+     * the failure does not go away by trying again (invalid credentials, quota, configuration error), the task fails
+     * immediately
+     */
+    PERMANENT
+}
@@ -0,0 +1,18 @@
+package tech.stackable.t2.retry;
+
+import tech.stackable.t2.process.ProcessOutcome;
+
+/**
+ * Classifies the failed run of a process.
+ */
+@FunctionalInterface
+public interface FailureClassifier {
+
+    /**
+     * Classifies the given failed run.
+     *
+     * @param outcome outcome of the run, not successful
+     * @return class of the failure
+     */
+    FailureClass classify(ProcessOutcome outcome);
+}
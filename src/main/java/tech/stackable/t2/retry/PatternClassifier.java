@@ -0,0 +1,83 @@
+package tech.stackable.t2.retry;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import tech.stackable.t2.process.ProcessOutcome;
+
+/**
+ * Classifies failures by the exit code and by known error messages in the last lines of the output.
+ *
+ * Permanent errors are checked first, then rate limiting. Failures which match nothing are considered transient.
+ */
+public class PatternClassifier implements FailureClassifier {
+
+    /**
+     * Exit code of the shell if the command has not been found
+     */
+    private static final int COMMAND_NOT_FOUND = 127;
+
+    private final Set<Integer> permanentExitCodes = new HashSet<>(Set.of(COMMAND_NOT_FOUND));
+
+    private final List<Pattern> permanentPatterns = new ArrayList<>();
+
+    private final List<Pattern> rateLimitedPatterns = new ArrayList<>();
+
+    /**
+     * Adds exit codes which denote permanent failures.
+     *
+     * @param exitCodes exit codes
+     * @return this classifier
+     */
+    public PatternClassifier permanentExitCodes(Integer... exitCodes) {
+        this.permanentExitCodes.addAll(Set.of(exitCodes));
+        return this;
+    }
+
+    /**
+     * Adds (case-insensitive) patterns of output lines which denote permanent failures.
+     *
+     * @param regexes regular expressions
+     * @return this classifier
+     */
+    public PatternClassifier permanent(String... regexes) {
+        for (String regex : regexes) {
+            this.permanentPatterns.add(Pattern.compile(regex, Pattern.CASE_INSENSITIVE));
+        }
+        return this;
+    }
+
+    /**
+     * Adds (case-insensitive) patterns of output lines which denote rate limiting.
+     *
+     * @param regexes regular expressions
+     * @return this classifier
+     */
+    public PatternClassifier rateLimited(String... regexes) {
+        for (String regex : regexes) {
+            this.rateLimitedPatterns.add(Pattern.compile(regex, Pattern.CASE_INSENSITIVE));
+        }
+        return this;
+    }
+
+    @Override
+    public FailureClass classify(ProcessOutcome outcome) {
+        if (this.permanentExitCodes.contains(outcome.getExitCode())) {
+            return FailureClass.PERMANENT;
+        }
+        for (Pattern pattern : this.permanentPatterns) {
+            if (outcome.find(pattern) != null) {
+                return FailureClass.PERMANENT;
+            }
+        }
+        for (Pattern pattern : this.rateLimitedPatterns) {
+            if (outcome.find(pattern) != null) {
+                return FailureClass.RATE_LIMITED;
+            }
+        }
+        return FailureClass.TRANSIENT;
+    }
+}
@@ -0,0 +1,293 @@
+package tech.stackable.t2.retry;
+
+import java.text.MessageFormat;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import tech.stackable.t2.process.ProcessOutcome;
+
+/**
+ * Runs tasks (calls of Terraform or Ansible) and retries them if they fail.
+ *
+ * No thread waits for a retry: the next try is scheduled on a shared timer, which hands it over to the executor of
+ * the caller when it is due. Whether a failed task is tried again is decided by
+ *
+ * <ul>
+ * <li>a {@link FailureClassifier}: permanent failures are not retried at all,</li>
+ * <li>the {@link RetryPolicy} of the task: number of tries, exponential backoff with jitter and a time budget,</li>
+ * <li>a retry budget shared by all tasks with the same key (e.g. the provider): a token bucket which limits the rate of
+ * retries, so that an outage of a provider does not multiply the load on its API.</li>
+ * </ul>
+ *
+ * A try whose outcome is cancelled is never retried. Scheduled retries can be started early with
+ * {@link #wakeUp(Object)}, e.g. so that a cancelled launch does not wait for its next try to end.
+ *
+ * Scheduled retries are counted in <code>t2.retry.scheduled</code> (tags <code>budget</code> and <code>failure</code>),
+ * tasks given up after a failure in <code>t2.retry.given-up</code> (tags <code>budget</code> and <code>cause</code>).
+ */
+@Component
+public class RetryEngine {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RetryEngine.class);
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("t2-retry-"));
+
+    private final RetryPolicy defaultPolicy;
+
+    private final int budgetCapacity;
+
+    private final double budgetRefillPerMinute;
+
+    private final Map<String, Budget> budgets = new ConcurrentHashMap<>();
+
+    /**
+     * Runs waiting for their next try, by owner
+     */
+    private final Map<Object, Set<Run>> waitingRuns = new ConcurrentHashMap<>();
+
+    public RetryEngine(
+            @Value("${t2.retry.initial-delay-ms:15000}") long initialDelayMs,
+            @Value("${t2.retry.max-delay-ms:300000}") long maxDelayMs,
+            @Value("${t2.retry.multiplier:2.0}") double multiplier,
+            @Value("${t2.retry.jitter:0.5}") double jitter,
+            @Value("${t2.retry.max-elapsed-minutes:60}") long maxElapsedMinutes,
+            @Value("${t2.retry.budget.capacity:20}") int budgetCapacity,
+            @Value("${t2.retry.budget.refill-per-minute:10}") double budgetRefillPerMinute) {
+        this.defaultPolicy = new RetryPolicy(1, Duration.ofMillis(initialDelayMs), Duration.ofMillis(maxDelayMs), multiplier, jitter, Duration.ofMinutes(maxElapsedMinutes));
+        this.budgetCapacity = Math.max(0, budgetCapacity);
+        this.budgetRefillPerMinute = Math.max(0.0, budgetRefillPerMinute);
+        LOGGER.info("Retry engine started with {}, retry budget {} (refill {} per minute)", this.defaultPolicy, this.budgetCapacity, this.budgetRefillPerMinute);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        this.timer.shutdownNow();
+    }
+
+    /**
+     * The configured retry policy with the given number of tries.
+     *
+     * @param maxTries total number of tries
+     * @return retry policy
+     */
+    public RetryPolicy policy(int maxTries) {
+        return this.defaultPolicy.withMaxTries(maxTries);
+    }
+
+    /**
+     * Runs the given task until it is successful or must not be tried again.
+     *
+     * @param owner      owner of the task (e.g. the ID of a cluster), whose scheduled retries are started by
+     *                   {@link #wakeUp(Object)}
+     * @param policy     retry policy
+     * @param budget     key of the retry budget the retries are taken from
+     * @param classifier classifier of failed tries
+     * @param executor   executor which runs the tries
+     * @param task       task, its outcome tells if it was successful
+     * @param listener   listener which is informed about the tries
+     * @return future of the result, completed exceptionally if a try has thrown an exception
+     */
+    public CompletableFuture<RetryResult> retry(Object owner, RetryPolicy policy, String budget, FailureClassifier classifier, Executor executor, Supplier<ProcessOutcome> task,
+            RetryListener listener) {
+        Run run = new Run(owner, policy, budget, classifier, executor, task, listener);
+        run.execute(1);
+        return run.result;
+    }
+
+    /**
+     * Starts the scheduled retries of the given owner immediately instead of waiting for their delay.
+     *
+     * @param owner owner of the tasks
+     */
+    public void wakeUp(Object owner) {
+        Set<Run> runs = this.waitingRuns.get(owner);
+        if (runs != null) {
+            Set.copyOf(runs).forEach(Run::retryNow);
+        }
+    }
+
+    private void count(String name, String description, String budget, String tag, String value) {
+        Counter.builder(name)
+                .description(description)
+                .tag("budget", budget)
+                .tag(tag, value)
+                .register(this.meterRegistry)
+                .increment();
+    }
+
+    private Budget budget(String key) {
+        return this.budgets.computeIfAbsent(key, k -> new Budget(this.budgetCapacity, this.budgetRefillPerMinute));
+    }
+
+    /**
+     * A task with its tries
+     */
+    private class Run {
+
+        private final Object owner;
+        private final RetryPolicy policy;
+        private final String budget;
+        private final FailureClassifier classifier;
+        private final Executor executor;
+        private final Supplier<ProcessOutcome> task;
+        private final RetryListener listener;
+        private final CompletableFuture<RetryResult> result = new CompletableFuture<>();
+        private final long start = System.nanoTime();
+        private int nextTry;
+        private ScheduledFuture<?> scheduledRetry;
+
+        private Run(Object owner, RetryPolicy policy, String budget, FailureClassifier classifier, Executor executor, Supplier<ProcessOutcome> task, RetryListener listener) {
+            this.owner = owner;
+            this.policy = policy;
+            this.budget = budget;
+            this.classifier = classifier;
+            this.executor = executor;
+            this.task = task;
+            this.listener = listener;
+        }
+
+        private void execute(int tryNumber) {
+            try {
+                this.executor.execute(() -> attempt(tryNumber));
+            } catch (RejectedExecutionException e) {
+                this.result.completeExceptionally(e);
+            }
+        }
+
+        private void attempt(int tryNumber) {
+            ProcessOutcome outcome;
+            try {
+                this.listener.onTryStart(tryNumber);
+                outcome = this.task.get();
+            } catch (RuntimeException e) {
+                this.result.completeExceptionally(e);
+                return;
+            }
+            if (outcome.isSuccessful()) {
+                this.result.complete(new RetryResult(outcome, tryNumber, null, null));
+                return;
+            }
+            if (outcome.isCancelled()) {
+                giveUp("cancelled");
+                this.result.complete(new RetryResult(outcome, tryNumber, FailureClass.PERMANENT, "cancelled"));
+                return;
+            }
+
+            FailureClass failure = this.classifier.classify(outcome);
+            Duration delay = this.policy.delay(tryNumber, failure);
+            String reason = null;
+            String cause = null;
+            if (failure == FailureClass.PERMANENT) {
+                reason = MessageFormat.format("permanent failure (exit code {0})", outcome.getExitCode());
+                cause = "permanent";
+            } else if (tryNumber >= this.policy.getMaxTries()) {
+                reason = MessageFormat.format("{0} failure, no tries left", failure);
+                cause = "tries";
+            } else if (Duration.ofNanos(System.nanoTime() - this.start).plus(delay).compareTo(this.policy.getMaxElapsed()) > 0) {
+                reason = MessageFormat.format("{0} failure, time budget of {1} min exhausted", failure, this.policy.getMaxElapsed().toMinutes());
+                cause = "time-budget";
+            } else if (!budget(this.budget).tryAcquire()) {
+                reason = MessageFormat.format("{0} failure, retry budget of {1} exhausted", failure, this.budget);
+                cause = "retry-budget";
+            }
+            if (reason != null) {
+                giveUp(cause);
+                this.result.complete(new RetryResult(outcome, tryNumber, failure, reason));
+                return;
+            }
+
+            count("t2.retry.scheduled", "Retries scheduled after a failed try", this.budget, "failure", failure.name());
+            this.listener.onRetryScheduled(tryNumber, outcome, failure, delay);
+            RetryEngine.this.waitingRuns.computeIfAbsent(this.owner, o -> ConcurrentHashMap.newKeySet()).add(this);
+            try {
+                synchronized (this) {
+                    this.nextTry = tryNumber + 1;
+                    this.scheduledRetry = RetryEngine.this.timer.schedule(this::retryNow, delay.toMillis(), TimeUnit.MILLISECONDS);
+                }
+            } catch (RejectedExecutionException e) {
+                stopWaiting();
+                this.result.completeExceptionally(e);
+            }
+        }
+
+        /**
+         * Starts the scheduled retry, if it has not been started yet.
+         */
+        private void retryNow() {
+            int tryNumber;
+            synchronized (this) {
+                if (this.scheduledRetry == null) {
+                    return;
+                }
+                this.scheduledRetry.cancel(false);
+                this.scheduledRetry = null;
+                tryNumber = this.nextTry;
+            }
+            stopWaiting();
+            execute(tryNumber);
+        }
+
+        private void giveUp(String cause) {
+            count("t2.retry.given-up", "Tasks which have failed and are not tried again", this.budget, "cause", cause);
+        }
+
+        private void stopWaiting() {
+            RetryEngine.this.waitingRuns.computeIfPresent(this.owner, (o, runs) -> {
+                runs.remove(this);
+                return runs.isEmpty() ? null : runs;
+            });
+        }
+    }
+
+    /**
+     * Token bucket limiting the rate of retries
+     */
+    private static class Budget {
+
+        private final double capacity;
+        private final double refillPerMilli;
+        private double tokens;
+        private long lastRefill = System.currentTimeMillis();
+
+        private Budget(double capacity, double refillPerMinute) {
+            this.capacity = capacity;
+            this.refillPerMilli = refillPerMinute / 60_000.0;
+            this.tokens = capacity;
+        }
+
+        private synchronized boolean tryAcquire() {
+            long now = System.currentTimeMillis();
+            this.tokens = Math.min(this.capacity, this.tokens + (now - this.lastRefill) * this.refillPerMilli);
+            this.lastRefill = now;
+            if (this.tokens < 1.0) {
+                return false;
+            }
+            this.tokens -= 1.0;
+            return true;
+        }
+    }
+}
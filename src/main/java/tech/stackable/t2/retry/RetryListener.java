@@ -0,0 +1,29 @@
+package tech.stackable.t2.retry;
+
+import java.time.Duration;
+
+import tech.stackable.t2.process.ProcessOutcome;
+
+/**
+ * Is informed about the tries of a task run by the {@link RetryEngine}.
+ */
+public interface RetryListener {
+
+    /**
+     * A try is started.
+     *
+     * @param tryNumber number of the try (starting with 1)
+     */
+    void onTryStart(int tryNumber);
+
+    /**
+     * A try has failed and the next try is scheduled.
+     *
+     * @param tryNumber number of the failed try
+     * @param outcome   outcome of the failed try
+     * @param failure   class of the failure
+     * @param delay     delay until the next try
+     */
+    default void onRetryScheduled(int tryNumber, ProcessOutcome outcome, FailureClass failure, Duration delay) {
+    }
+}
@@ -0,0 +1,96 @@
+package tech.stackable.t2.retry;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * How often and when a task is tried again.
+ *
+ * The delay before try <i>n + 1</i> is <code>initialDelay * multiplier^(n - 1)</code>, capped at <code>maxDelay</code>.
+ * A rate limited try waits one step of the backoff longer. A random share of up to <code>jitter</code> is taken off the
+ * delay, so that tasks which have failed at the same time (e.g. the launches of a group) do not retry at the same time.
+ */
+public class RetryPolicy {
+
+    private final int maxTries;
+
+    private final Duration initialDelay;
+
+    private final Duration maxDelay;
+
+    private final double multiplier;
+
+    private final double jitter;
+
+    /**
+     * Time budget of the task: no retry is started after this time has elapsed since the first try
+     */
+    private final Duration maxElapsed;
+
+    public RetryPolicy(int maxTries, Duration initialDelay, Duration maxDelay, double multiplier, double jitter, Duration maxElapsed) {
+        this.maxTries = Math.max(1, maxTries);
+        this.initialDelay = initialDelay;
+        this.maxDelay = maxDelay;
+        this.multiplier = Math.max(1.0, multiplier);
+        this.jitter = Math.min(1.0, Math.max(0.0, jitter));
+        this.maxElapsed = maxElapsed;
+    }
+
+    /**
+     * Copy of this policy with another number of tries.
+     *
+     * @param maxTries total number of tries
+     * @return policy
+     */
+    public RetryPolicy withMaxTries(int maxTries) {
+        return new RetryPolicy(maxTries, this.initialDelay, this.maxDelay, this.multiplier, this.jitter, this.maxElapsed);
+    }
+
+    /**
+     * Copy of this policy with another delay before the first retry.
+     *
+     * @param initialDelay delay before the first retry
+     * @return policy
+     */
+    public RetryPolicy withInitialDelay(Duration initialDelay) {
+        return new RetryPolicy(this.maxTries, initialDelay, this.maxDelay, this.multiplier, this.jitter, this.maxElapsed);
+    }
+
+    /**
+     * Copy of this policy with another time budget.
+     *
+     * @param maxElapsed time after the first try after which no retry is started
+     * @return policy
+     */
+    public RetryPolicy withMaxElapsed(Duration maxElapsed) {
+        return new RetryPolicy(this.maxTries, this.initialDelay, this.maxDelay, this.multiplier, this.jitter, maxElapsed);
+    }
+
+    public int getMaxTries() {
+        return maxTries;
+    }
+
+    public Duration getMaxElapsed() {
+        return maxElapsed;
+    }
+
+    /**
+     * Delay before the next try.
+     *
+     * @param failedTry number of the try which has failed (starting with 1)
+     * @param failure   class of the failure
+     * @return delay
+     */
+    public Duration delay(int failedTry, FailureClass failure) {
+        int steps = failedTry - 1 + (failure == FailureClass.RATE_LIMITED ? 1 : 0);
+        double millis = Math.min(this.initialDelay.toMillis() * Math.pow(this.multiplier, steps), this.maxDelay.toMillis());
+        millis -= millis * this.jitter * ThreadLocalRandom.current().nextDouble();
+        return Duration.ofMillis(Math.round(millis));
+    }
+
+    @Override
+    public String toString() {
+        return "RetryPolicy [maxTries=" + maxTries + ", initialDelay=" + initialDelay + ", maxDelay=" + maxDelay + ", multiplier=" + multiplier
+                + ", jitter=" + jitter + ", maxElapsed=" + maxElapsed + "]";
+    }
+}
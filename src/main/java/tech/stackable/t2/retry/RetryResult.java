@@ -0,0 +1,56 @@
+package tech.stackable.t2.retry;
+
+import tech.stackable.t2.process.ProcessOutcome;
+
+/**
+ * Result of a task which has been (re)tried by the {@link RetryEngine}.
+ */
+public class RetryResult {
+
+    private final ProcessOutcome outcome;
+
+    private final int tries;
+
+    private final FailureClass failure;
+
+    private final String reason;
+
+    RetryResult(ProcessOutcome outcome, int tries, FailureClass failure, String reason) {
+        this.outcome = outcome;
+        this.tries = tries;
+        this.failure = failure;
+        this.reason = reason;
+    }
+
+    /**
+     * @return outcome of the last try
+     */
+    public ProcessOutcome getOutcome() {
+        return outcome;
+    }
+
+    /**
+     * @return number of tries
+     */
+    public int getTries() {
+        return tries;
+    }
+
+    public boolean isSuccessful() {
+        return this.outcome.isSuccessful();
+    }
+
+    /**
+     * @return class of the failure of the last try, <code>null</code> if the task was successful
+     */
+    public FailureClass getFailure() {
+        return failure;
+    }
+
+    /**
+     * @return why the task was not tried again, <code>null</code> if the task was successful
+     */
+    public String getReason() {
+        return reason;
+    }
+}
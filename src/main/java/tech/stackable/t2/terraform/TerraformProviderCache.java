@@ -0,0 +1,245 @@
+package tech.stackable.t2.terraform;
+
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.info.Info;
+import org.springframework.boot.actuate.info.InfoContributor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import tech.stackable.t2.files.FileService;
+import tech.stackable.t2.util.FingerprintUtil;
+
+/**
+ * Prepares the Terraform providers of all templates once, so that the working directories of the clusters can be
+ * initialized from the shared plugin cache.
+ *
+ * For every template, the Terraform configuration (template and common modules) is initialized in a directory of its
+ * own. This fills the plugin cache of the {@link TerraformService} and generates a dependency lock file, which is
+ * copied into every new working directory of the template. The preparation is repeated whenever the Terraform files of
+ * a template change.
+ */
+@Component
+public class TerraformProviderCache implements InfoContributor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TerraformProviderCache.class);
+
+    private static final String FINGERPRINT_FILE = "fingerprint";
+
+    @Autowired
+    private TerraformService terraformService;
+
+    @Autowired
+    private FileService fileService;
+
+    private final boolean enabled;
+
+    /**
+     * Templates (by name) whose lock file is up to date, with the fingerprint of their Terraform files.
+     */
+    private final Map<String, String> preparedTemplates = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    public TerraformProviderCache(@Value("${t2.terraform.provider-cache.enabled:true}") boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Prepares all templates after the startup and reports the state of the cache.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void prepareTemplatesOnStartup() {
+        if (!this.enabled) {
+            LOGGER.info("Terraform provider cache is disabled.");
+            return;
+        }
+        long start = System.nanoTime();
+        int prepared = prepareTemplates();
+        LOGGER.info("Terraform provider cache ready in {} ms: {} templates up to date, {} prepared, plugin cache size {}.",
+                (System.nanoTime() - start) / 1_000_000,
+                this.preparedTemplates.size() - prepared,
+                prepared,
+                FileUtils.byteCountToDisplaySize(pluginCacheSize()));
+    }
+
+    /**
+     * Checks periodically if the Terraform files of a template have changed.
+     */
+    @Scheduled(initialDelayString = "${t2.terraform.provider-cache.check-interval-ms:300000}", fixedDelayString = "${t2.terraform.provider-cache.check-interval-ms:300000}")
+    public void prepareChangedTemplates() {
+        if (this.enabled) {
+            prepareTemplates();
+        }
+    }
+
+    /**
+     * Reports the hit rate of the cache.
+     */
+    @Scheduled(initialDelay = 3_600_000, fixedDelay = 3_600_000)
+    public void report() {
+        if (this.enabled) {
+            LOGGER.info("Terraform provider cache: {} hits, {} misses (hit rate {}%), plugin cache size {}.",
+                    this.hits.get(),
+                    this.misses.get(),
+                    hitRate(),
+                    FileUtils.byteCountToDisplaySize(pluginCacheSize()));
+        }
+    }
+
+    /**
+     * Copies the dependency lock file of the given template into a new working directory, so that
+     * <code>terraform init</code> takes the providers from the plugin cache.
+     *
+     * @param templateName     name of the template
+     * @param workingDirectory working directory, the template files must have been copied already
+     * @return <code>true</code> if the lock file was available
+     */
+    public boolean prepareWorkingDirectory(String templateName, Path workingDirectory) {
+        if (!this.enabled) {
+            return false;
+        }
+        Path lockFile = preparationDirectory(templateName).resolve(TerraformService.LOCK_FILE);
+        String fingerprint = this.preparedTemplates.get(templateName);
+        if (fingerprint == null || !Files.exists(lockFile) || !fingerprint.equals(fingerprint(workingDirectory))) {
+            this.misses.incrementAndGet();
+            return false;
+        }
+        try {
+            Files.copy(lockFile, workingDirectory.resolve(TerraformService.LOCK_FILE), REPLACE_EXISTING);
+            this.hits.incrementAndGet();
+            return true;
+        } catch (IOException e) {
+            LOGGER.warn("Lock file of template {} could not be copied to {}.", templateName, workingDirectory, e);
+            this.misses.incrementAndGet();
+            return false;
+        }
+    }
+
+    @Override
+    public void contribute(Info.Builder builder) {
+        Map<String, Object> details = new LinkedHashMap<>();
+        details.put("enabled", this.enabled);
+        details.put("preparedTemplates", this.preparedTemplates.size());
+        details.put("hits", this.hits.get());
+        details.put("misses", this.misses.get());
+        details.put("hitRate", hitRate());
+        builder.withDetail("terraformProviderCache", details);
+    }
+
+    /**
+     * Prepares all templates which have not been prepared yet or whose Terraform files have changed.
+     *
+     * @return number of templates prepared
+     */
+    private synchronized int prepareTemplates() {
+        int prepared = 0;
+        for (String templateName : this.fileService.templateNames()) {
+            Path preparationDirectory = preparationDirectory(templateName);
+            Path templateDirectory = this.fileService.templateDirectory(templateName);
+            String fingerprint = fingerprint(this.fileService.templateDirectory("_common"), templateDirectory);
+
+            if (fingerprint.equals(this.preparedTemplates.get(templateName))) {
+                continue;
+            }
+            if (fingerprint.equals(readFingerprint(preparationDirectory).orElse(null)) && Files.exists(preparationDirectory.resolve(TerraformService.LOCK_FILE))) {
+                this.preparedTemplates.put(templateName, fingerprint);
+                continue;
+            }
+
+            this.preparedTemplates.remove(templateName);
+            if (prepareTemplate(templateName, preparationDirectory, fingerprint)) {
+                this.preparedTemplates.put(templateName, fingerprint);
+                prepared++;
+            }
+        }
+        return prepared;
+    }
+
+    /**
+     * Initializes the Terraform configuration of a template in its preparation directory.
+     *
+     * @param templateName         name of the template
+     * @param preparationDirectory preparation directory of the template
+     * @param fingerprint          fingerprint of the Terraform files of the template
+     * @return <code>true</code> if successful
+     */
+    private boolean prepareTemplate(String templateName, Path preparationDirectory, String fingerprint) {
+        LOGGER.info("Preparing Terraform providers of template {} ...", templateName);
+        try {
+            FileUtils.deleteDirectory(preparationDirectory.toFile());
+            Files.createDirectories(preparationDirectory);
+            FileUtils.copyDirectory(this.fileService.templateDirectory("_common").toFile(), preparationDirectory.toFile());
+            FileUtils.copyDirectory(this.fileService.templateDirectory(templateName).toFile(), preparationDirectory.toFile());
+
+            TerraformResult result = this.terraformService.initProviders(preparationDirectory, preparationDirectory.resolve("terraform-init.log"));
+            if (result != TerraformResult.SUCCESS) {
+                LOGGER.warn("Terraform providers of template {} could not be prepared, see {}.", templateName, preparationDirectory.resolve("terraform-init.log"));
+                return false;
+            }
+
+            // the providers are linked from the plugin cache, so the local copy is not needed anymore
+            FileUtils.deleteDirectory(preparationDirectory.resolve(".terraform").toFile());
+            Files.writeString(preparationDirectory.resolve(FINGERPRINT_FILE), fingerprint);
+            return true;
+        } catch (IOException e) {
+            LOGGER.warn("Terraform providers of template {} could not be prepared.", templateName, e);
+            return false;
+        }
+    }
+
+    private Path preparationDirectory(String templateName) {
+        return this.fileService.stateDirectory("terraform-templates").resolve(templateName);
+    }
+
+    private static Optional<String> readFingerprint(Path preparationDirectory) {
+        try {
+            return Optional.of(Files.readString(preparationDirectory.resolve(FINGERPRINT_FILE)));
+        } catch (IOException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Calculates a fingerprint of the Terraform files (<code>*.tf</code>) in the given directories.
+     *
+     * As the working directory of a cluster is a merge of the common template files and the template, the fingerprint of
+     * a working directory equals the fingerprint of its template as long as the template has not changed.
+     *
+     * @param directories directories to be included
+     * @return fingerprint (hex)
+     */
+    private static String fingerprint(Path... directories) {
+        return FingerprintUtil.fingerprint(
+                path -> path.getFileName().toString().endsWith(".tf") && !path.startsWith(".terraform"),
+                directories);
+    }
+
+    private long hitRate() {
+        long total = this.hits.get() + this.misses.get();
+        return total == 0 ? 0 : Math.round(100.0 * this.hits.get() / total);
+    }
+
+    private long pluginCacheSize() {
+        Path directory = this.terraformService.getPluginCacheDirectory();
+        return Files.exists(directory) ? FileUtils.sizeOfDirectory(directory.toFile()) : 0;
+    }
+}
@@ -1,9 +1,15 @@
 package tech.stackable.t2.terraform;
 
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.text.MessageFormat;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.annotation.PostConstruct;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -11,7 +17,10 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import tech.stackable.t2.files.FileService;
-import tech.stackable.t2.util.ProgressLogger;
+import tech.stackable.t2.process.ProcessOutcome;
+import tech.stackable.t2.process.ProcessService;
+import tech.stackable.t2.retry.FailureClassifier;
+import tech.stackable.t2.retry.PatternClassifier;
 
 /**
  * This service wraps Hashicorp Terraform commands.
@@ -21,47 +30,233 @@ public class TerraformService {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(TerraformService.class);
 
+    /**
+     * Name of the dependency lock file of Terraform
+     */
+    public static final String LOCK_FILE = ".terraform.lock.hcl";
+
+    /**
+     * Name of the file the plan is saved to
+     */
+    static final String PLAN_FILE = "tfplan";
+
+    /**
+     * Name of the file which marks the plan as stale, as applying it has failed
+     */
+    static final String STALE_PLAN_MARKER = "tfplan.stale";
+
+    /**
+     * Name of the file containing the readable version of the plan
+     */
+    public static final String PLAN_TEXT_FILE = "plan.txt";
+
+    /**
+     * Classifies failed Terraform runs by the error messages of Terraform and the providers
+     */
+    public static final FailureClassifier FAILURE_CLASSIFIER = new PatternClassifier()
+            .permanent(
+                    // errors in the configuration
+                    "Error: (Invalid|Unsupported|Missing required|Reference to undeclared|Module not installed|Unsupported Terraform Core version)",
+                    // credentials, permissions and quotas
+                    "\\b(401|403)\\b", "unauthori[sz]ed", "forbidden", "invalid (token|credentials|api key|access key)", "authentication failed",
+                    "AuthFailure", "InvalidClientTokenId", "SignatureDoesNotMatch", "AccessDenied", "quota exceeded", "resource_limit_exceeded")
+            .rateLimited("\\b429\\b", "too many requests", "rate ?limit", "RequestLimitExceeded", "Throttling");
+
     @Autowired
     private FileService fileService;
 
+    @Autowired
+    private ProcessService processService;
+
+    /**
+     * Directory in which the provider plugins are cached for all working directories.
+     */
+    private Path pluginCacheDirectory;
+
+    /**
+     * Terraform does not guarantee that concurrent writes to the plugin cache are safe. Inits which only read from the
+     * cache share the read lock, the filling of the cache takes the write lock.
+     */
+    private final ReadWriteLock pluginCacheLock = new ReentrantReadWriteLock();
+
+    @PostConstruct
+    public void initPluginCache() {
+        this.pluginCacheDirectory = this.fileService.stateDirectory("terraform-plugin-cache");
+    }
+
     /**
      * Run <code>terraform init</code> in the given directory.
      * 
+     * If the working directory contains a dependency lock file, the providers are taken from the plugin cache, which
+     * makes the init a matter of creating some symlinks.
+     * 
      * @param clusterId Cluster for which the Terraform command should be executed.
+     * @return outcome of the Terraform command.
+     */
+    public ProcessOutcome init(UUID clusterId) {
+        LOGGER.info("Running Terraform {} for cluster {} ...", TerraformCommand.INIT, clusterId);
+        Path workingDirectory = this.fileService.workingDirectory(clusterId);
+        return initDirectory(clusterId, workingDirectory, workingDirectory.resolve("cluster.log"));
+    }
+
+    /**
+     * Run <code>terraform init</code> in the given directory, which does not belong to a cluster (yet).
+     * 
+     * If the directory contains a dependency lock file, the providers are taken from the plugin cache.
+     * 
+     * @param directory directory containing a Terraform configuration
+     * @param logFile   file to which the output of Terraform is logged
      * @return result of the Terraform command.
      */
-    public TerraformResult init(UUID clusterId) {
-        return TerraformResult.byExitCode(this.callTerraform(clusterId, TerraformCommand.INIT));
+    public TerraformResult init(Path directory, Path logFile) {
+        return TerraformResult.byExitCode(initDirectory(null, directory, logFile).getExitCode());
+    }
+
+    private ProcessOutcome initDirectory(UUID clusterId, Path directory, Path logFile) {
+        if (!Files.exists(directory.resolve(LOCK_FILE))) {
+            return this.callTerraform(clusterId, directory, TerraformCommand.INIT, Map.of(), logFile);
+        }
+        this.pluginCacheLock.readLock().lock();
+        try {
+            return this.callTerraform(
+                    clusterId,
+                    directory,
+                    TerraformCommand.INIT,
+                    Map.of("TF_PLUGIN_CACHE_DIR", this.pluginCacheDirectory.toString()),
+                    logFile);
+        } finally {
+            this.pluginCacheLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Checks if the working directory of the given cluster has been initialized already.
+     * 
+     * @param clusterId Cluster whose working directory should be checked.
+     * @return <code>true</code> if <code>terraform init</code> has been run in the working directory
+     */
+    public boolean isInitialized(UUID clusterId) {
+        Path workingDirectory = this.fileService.workingDirectory(clusterId);
+        return Files.isDirectory(workingDirectory.resolve(".terraform")) && Files.exists(workingDirectory.resolve(LOCK_FILE));
+    }
+
+    /**
+     * Run <code>terraform init</code> without backend in the given directory and fill the plugin cache with the
+     * providers needed.
+     * 
+     * Afterwards, the directory contains a dependency lock file which can be used to init working directories with the
+     * same configuration from the plugin cache.
+     * 
+     * @param directory directory containing a Terraform configuration
+     * @param logFile   file to which the output of Terraform is logged
+     * @return result of the Terraform command.
+     */
+    public TerraformResult initProviders(Path directory, Path logFile) {
+        this.pluginCacheLock.writeLock().lock();
+        try {
+            return TerraformResult.byExitCode(this.callTerraform(
+                    null,
+                    directory,
+                    TerraformCommand.INIT_PROVIDERS,
+                    Map.of("TF_PLUGIN_CACHE_DIR", this.pluginCacheDirectory.toString()),
+                    logFile).getExitCode());
+        } finally {
+            this.pluginCacheLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Directory in which the provider plugins are cached.
+     * 
+     * @return plugin cache directory
+     */
+    public Path getPluginCacheDirectory() {
+        return pluginCacheDirectory;
     }
 
     /**
      * Run <code>terraform plan</code> in the given directory.
      * 
+     * The plan is saved to a plan file, which is applied by {@link #apply(UUID)}. A readable version of the plan is kept
+     * in the working directory ({@value #PLAN_TEXT_FILE}).
+     * 
      * @param clusterId Cluster for which the Terraform command should be executed.
-     * @return result of the Terraform command.
+     * @return outcome of the Terraform command.
      */
-    public TerraformResult plan(UUID clusterId) {
-        return TerraformResult.byExitCode(this.callTerraform(clusterId, TerraformCommand.PLAN));
+    public ProcessOutcome plan(UUID clusterId) {
+        ProcessOutcome outcome = this.callTerraform(clusterId, TerraformCommand.PLAN);
+        if (!outcome.isSuccessful()) {
+            return outcome;
+        }
+        if (!this.callTerraform(clusterId, TerraformCommand.SHOW_PLAN).isSuccessful()) {
+            LOGGER.warn("Plan of cluster {} could not be converted to {}.", clusterId, PLAN_TEXT_FILE);
+        }
+        try {
+            Files.deleteIfExists(this.fileService.workingDirectory(clusterId).resolve(STALE_PLAN_MARKER));
+        } catch (IOException e) {
+            LOGGER.warn("Plan of cluster {} could not be marked as up to date.", clusterId, e);
+        }
+        return outcome;
+    }
+
+    /**
+     * Checks if the saved plan of the given cluster is stale, as applying it has failed. The next
+     * {@link #apply(UUID)} recomputes the plan before applying it.
+     * 
+     * @param clusterId Cluster whose plan should be checked.
+     * @return <code>true</code> if the plan has to be recomputed
+     */
+    public boolean isPlanStale(UUID clusterId) {
+        Path workingDirectory = this.fileService.workingDirectory(clusterId);
+        return Files.exists(workingDirectory.resolve(PLAN_FILE)) && Files.exists(workingDirectory.resolve(STALE_PLAN_MARKER));
     }
 
     /**
      * Run <code>terraform apply</code> in the given directory.
      * 
+     * If a plan has been saved by {@link #plan(UUID)}, exactly this plan is applied without planning again. The plan file
+     * is deleted when it has been applied, as it cannot be applied twice. If applying the plan fails, the plan is marked as
+     * stale, as the failed apply may have changed the infrastructure: the retry runs {@link #plan(UUID)} again (which
+     * updates {@value #PLAN_TEXT_FILE}) and applies the new plan.
+     * 
      * @param clusterId Cluster for which the Terraform command should be executed.
-     * @return result of the Terraform command.
+     * @return outcome of the Terraform command.
      */
-    public TerraformResult apply(UUID clusterId) {
-        return TerraformResult.byExitCode(this.callTerraform(clusterId, TerraformCommand.APPLY));
+    public ProcessOutcome apply(UUID clusterId) {
+        Path workingDirectory = this.fileService.workingDirectory(clusterId);
+        Path planFile = workingDirectory.resolve(PLAN_FILE);
+        if (!Files.exists(planFile)) {
+            return this.callTerraform(clusterId, TerraformCommand.APPLY);
+        }
+        if (isPlanStale(clusterId)) {
+            ProcessOutcome planOutcome = plan(clusterId);
+            if (!planOutcome.isSuccessful()) {
+                return planOutcome;
+            }
+        }
+        ProcessOutcome outcome = this.callTerraform(clusterId, TerraformCommand.APPLY_PLAN);
+        try {
+            if (outcome.isSuccessful()) {
+                Files.deleteIfExists(planFile);
+            } else {
+                Files.write(workingDirectory.resolve(STALE_PLAN_MARKER), new byte[0]);
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Plan file of cluster {} could not be updated.", clusterId, e);
+        }
+        return outcome;
     }
 
     /**
      * Run <code>terraform destroy</code> in the given directory.
      * 
+     * The destroy cannot be cancelled, as it frees the resources of the cluster.
+     * 
      * @param clusterId Cluster for which the Terraform command should be executed.
-     * @return result of the Terraform command.
+     * @return outcome of the Terraform command.
      */
-    public TerraformResult destroy(UUID clusterId) {
-        return TerraformResult.byExitCode(this.callTerraform(clusterId, TerraformCommand.DESTROY));
+    public ProcessOutcome destroy(UUID clusterId) {
+        return this.callTerraform(clusterId, TerraformCommand.DESTROY);
     }
 
     /**
@@ -69,14 +264,32 @@ public class TerraformService {
      * 
      * @param clusterId Cluster for which the Terraform command should be executed.
      * @param command   Terraform command to be called.
-     * @param params    optional commands to be appended to the call.
-     * @return exit code of the process
+     * @return outcome of the process
      */
-    private int callTerraform(UUID clusterId, TerraformCommand command) {
+    private ProcessOutcome callTerraform(UUID clusterId, TerraformCommand command) {
         LOGGER.info("Running Terraform {} for cluster {} ...", command, clusterId);
 
         Path workingDirectory = this.fileService.workingDirectory(clusterId);
 
+        // Provide cluster ID as Terraform variable
+        return callTerraform(clusterId, workingDirectory, command, Map.of("TF_VAR_cluster_id", clusterId.toString()), workingDirectory.resolve("cluster.log"));
+    }
+
+    /**
+     * Calls Hashicorp Terraform.
+     * 
+     * The command is killed if it exceeds its timeout. All commands but destroy are cancelled when the launch of the
+     * cluster is cancelled.
+     * 
+     * @param clusterId        Cluster for which the Terraform command is executed, <code>null</code> if the directory
+     *                         does not belong to a cluster
+     * @param workingDirectory directory in which Terraform is run
+     * @param command          Terraform command to be called.
+     * @param environment      environment variables for the Terraform process
+     * @param logFile          file to which the output of Terraform is logged
+     * @return outcome of the process
+     */
+    private ProcessOutcome callTerraform(UUID clusterId, Path workingDirectory, TerraformCommand command, Map<String, String> environment, Path logFile) {
         try {
 
             // Set up Terraform process to be run in the working dir of the cluster
@@ -84,25 +297,15 @@ public class TerraformService {
                     .command("sh", "-c", command.getCommandWithParams())
                     .directory(workingDirectory.toFile());
 
-            // Provide cluster ID as Terraform variable
-            processBuilder.environment().put("TF_VAR_cluster_id", clusterId.toString());
-
-            // Start Terraform process (stderr redirected to stdout)
-            Process process = processBuilder.redirectErrorStream(true).start();
-
-            // Set up process logging
-            ProgressLogger logger = ProgressLogger.start(
-                    process.getInputStream(),
-                    workingDirectory.resolve("cluster.log"),
-                    MessageFormat.format("terraform-{0}", command.getCommandName()));
-
-            // Wait for termination of Terraform process
-            int exitCode = process.waitFor();
-
-            // Stop process logging
-            logger.stop();
+            processBuilder.environment().putAll(environment);
 
-            return exitCode;
+            return this.processService.run(
+                    clusterId,
+                    command != TerraformCommand.DESTROY,
+                    processBuilder,
+                    logFile,
+                    MessageFormat.format("terraform-{0}", command.getCommandName()),
+                    exitCode -> TerraformResult.byExitCode(exitCode) != TerraformResult.ERROR);
 
         } catch (IOException | InterruptedException e) {
             LOGGER.error("Error while calling terraform", e);
@@ -117,8 +320,11 @@ public class TerraformService {
 enum TerraformCommand {
 
     INIT("init", "terraform init -input=false -no-color"),
-    PLAN("plan", "terraform plan -detailed-exitcode -input=false -no-color"),
+    INIT_PROVIDERS("init", "terraform init -backend=false -input=false -no-color"),
+    PLAN("plan", "terraform plan -detailed-exitcode -input=false -no-color -out=" + TerraformService.PLAN_FILE),
+    SHOW_PLAN("show", "terraform show -no-color " + TerraformService.PLAN_FILE + " > " + TerraformService.PLAN_TEXT_FILE),
     APPLY("apply", "terraform apply -auto-approve -input=false -no-color"),
+    APPLY_PLAN("apply", "terraform apply -auto-approve -input=false -no-color " + TerraformService.PLAN_FILE),
     DESTROY("destroy", "terraform destroy -auto-approve -no-color");
 
     private String commandName;
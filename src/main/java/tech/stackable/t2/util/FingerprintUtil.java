@@ -0,0 +1,61 @@
+package tech.stackable.t2.util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitOption;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Calculates fingerprints of directory contents, e.g. to detect changes of templates.
+ */
+public class FingerprintUtil {
+
+    /**
+     * Calculates a fingerprint (SHA-256) of the regular files in the given directories which match the given filter.
+     *
+     * Files are identified by their path relative to their directory. Files of later directories replace files with
+     * the same relative path of earlier ones, just like copying the directories onto each other would do. Symbolic links
+     * are followed.
+     *
+     * @param filter      filter for the files (by relative path)
+     * @param directories directories to be included
+     * @return fingerprint (hex)
+     */
+    public static String fingerprint(Predicate<Path> filter, Path... directories) {
+        Map<String, Path> files = new TreeMap<>();
+        for (Path directory : directories) {
+            try (Stream<Path> stream = Files.walk(directory, FileVisitOption.FOLLOW_LINKS)) {
+                stream
+                    .filter(Files::isRegularFile)
+                    .filter(file -> filter.test(directory.relativize(file)))
+                    .forEach(file -> files.put(directory.relativize(file).toString(), file));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (Map.Entry<String, Path> file : files.entrySet()) {
+                digest.update(file.getKey().getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+                digest.update(Files.readAllBytes(file.getValue()));
+                digest.update((byte) 0);
+            }
+            return String.format("%064x", new BigInteger(1, digest.digest()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
@@ -0,0 +1,87 @@
+package tech.stackable.t2.util;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+
+/**
+ * Limits the rate at which a stream is read, e.g. to keep background I/O from competing with running clusters.
+ *
+ * Several streams which are read one after another can share a {@link Throttle}, so the rate applies to all of them.
+ */
+public class ThrottledInputStream extends FilterInputStream {
+
+    private final Throttle throttle;
+
+    /**
+     * Creates a throttled stream.
+     *
+     * @param in       stream to be read
+     * @param throttle throttle limiting the rate
+     */
+    public ThrottledInputStream(InputStream in, Throttle throttle) {
+        super(in);
+        this.throttle = throttle;
+    }
+
+    @Override
+    public int read() throws IOException {
+        this.throttle.await();
+        int b = super.read();
+        if (b >= 0) {
+            this.throttle.bytesRead++;
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        this.throttle.await();
+        int count = super.read(b, off, len);
+        if (count > 0) {
+            this.throttle.bytesRead += count;
+        }
+        return count;
+    }
+
+    /**
+     * Maximum rate of reading (not thread-safe, the streams sharing it must be read by one thread)
+     */
+    public static class Throttle {
+
+        private final long bytesPerSecond;
+
+        private final long startedAt = System.nanoTime();
+
+        private long bytesRead = 0L;
+
+        /**
+         * Creates a throttle.
+         *
+         * @param bytesPerSecond maximum rate, no limit if &lt;= 0
+         */
+        public Throttle(long bytesPerSecond) {
+            this.bytesPerSecond = bytesPerSecond;
+        }
+
+        /**
+         * Waits until the bytes read so far are within the rate.
+         */
+        private void await() throws IOException {
+            if (this.bytesPerSecond <= 0) {
+                return;
+            }
+            long dueNanos = (long) (this.bytesRead * 1_000_000_000.0 / this.bytesPerSecond);
+            long waitMillis = (dueNanos - (System.nanoTime() - this.startedAt)) / 1_000_000L;
+            if (waitMillis > 0) {
+                try {
+                    Thread.sleep(waitMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Throttled read was interrupted.");
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+# Callback plugin of T2 which records the timing of the plays, tasks and host results of a playbook run.
+#
+# T2 puts this plugin into the callback_plugins directory next to the playbook it runs. It does not change the output
+# of the playbook, but appends one JSON object per event to the file given in T2_ANSIBLE_PROFILE. Every event is tagged
+# with the ID of the playbook run given in T2_ANSIBLE_RUN, as several runs may write to the same file.
+
+from __future__ import (absolute_import, division, print_function)
+__metaclass__ = type
+
+DOCUMENTATION = '''
+    name: t2_profile
+    type: aggregate
+    short_description: records the timing of plays, tasks and host results for T2
+    description:
+      - Appends one JSON object per line for the start of the playbook, of each play and task, for each host result
+        and for the end of the playbook to the file given in the environment variable T2_ANSIBLE_PROFILE, tagged with
+        the ID of the run given in T2_ANSIBLE_RUN.
+'''
+
+import json
+import os
+import time
+
+from ansible.plugins.callback import CallbackBase
+
+
+class CallbackModule(CallbackBase):
+
+    CALLBACK_VERSION = 2.0
+    CALLBACK_TYPE = 'aggregate'
+    CALLBACK_NAME = 't2_profile'
+    CALLBACK_NEEDS_ENABLED = False
+    CALLBACK_NEEDS_WHITELIST = False
+
+    def __init__(self):
+        super(CallbackModule, self).__init__()
+        path = os.environ.get('T2_ANSIBLE_PROFILE')
+        self._file = open(path, 'a') if path else None
+        self._phase = os.environ.get('T2_ANSIBLE_PHASE', '')
+        self._run = os.environ.get('T2_ANSIBLE_RUN', '')
+
+    def _write(self, event, **fields):
+        if self._file is None:
+            return
+        fields['event'] = event
+        fields['run'] = self._run
+        fields['time'] = time.time()
+        self._file.write(json.dumps(fields) + '\n')
+        self._file.flush()
+
+    def _task_start(self, task, handler):
+        role = task._role.get_name() if task._role else None
+        self._write('task', id=task._uuid, name=task.get_name().strip(), role=role, handler=handler)
+
+    def _result(self, result, status):
+        self._write('result', id=result._task._uuid, host=result._host.get_name(), status=status)
+
+    def v2_playbook_on_start(self, playbook):
+        self._write('playbook', phase=self._phase, playbook=os.path.basename(playbook._file_name))
+
+    def v2_playbook_on_play_start(self, play):
+        self._write('play', name=play.get_name().strip())
+
+    def v2_playbook_on_task_start(self, task, is_conditional):
+        self._task_start(task, False)
+
+    def v2_playbook_on_handler_task_start(self, task):
+        self._task_start(task, True)
+
+    def v2_runner_on_ok(self, result):
+        self._result(result, 'changed' if result._result.get('changed', False) else 'ok')
+
+    def v2_runner_on_failed(self, result, ignore_errors=False):
+        self._result(result, 'ignored' if ignore_errors else 'failed')
+
+    def v2_runner_on_skipped(self, result):
+        self._result(result, 'skipped')
+
+    def v2_runner_on_unreachable(self, result):
+        self._result(result, 'unreachable')
+
+    def v2_playbook_on_stats(self, stats):
+        self._write('end')
+        if self._file is not None:
+            self._file.close()
+            self._file = None
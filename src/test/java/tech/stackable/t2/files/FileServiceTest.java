@@ -0,0 +1,127 @@
+package tech.stackable.t2.files;
+
+import static java.nio.file.attribute.PosixFilePermission.OWNER_WRITE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import tech.stackable.t2.util.FingerprintUtil;
+
+class FileServiceTest {
+
+    private static final Map<String, Object> CLUSTER_DEFINITION = Map.of("spec", Map.of("template", "hcloud-debian-11"));
+
+    @TempDir
+    Path tempDirectory;
+
+    @Test
+    void linkedWorkingDirectoryHasSameContentAsCopy() throws IOException {
+        Path templates = createTemplates(this.tempDirectory.resolve("templates"));
+        UUID clusterId = UUID.randomUUID();
+
+        FileService copyingFileService = new FileService(this.tempDirectory.resolve("workspace-copy").toString(), templates.toString(), "copy", 0L);
+        Path copied = copyingFileService.workingDirectory(clusterId);
+        copyingFileService.createWorkingDirectory(copied, CLUSTER_DEFINITION);
+        FileService linkingFileService = new FileService(this.tempDirectory.resolve("workspace-link").toString(), templates.toString(), "link", 0L);
+        Path linked = linkingFileService.workingDirectory(clusterId);
+        linkingFileService.createWorkingDirectory(linked, CLUSTER_DEFINITION);
+
+        assertTrue(Files.isSymbolicLink(linked.resolve("ansible_roles")));
+        // the fingerprint follows the links and covers the relative paths and contents of all files
+        assertEquals(FingerprintUtil.fingerprint(path -> true, copied), FingerprintUtil.fingerprint(path -> true, linked));
+    }
+
+    @Test
+    void snapshotIsReadOnly() throws IOException {
+        Path templates = createTemplates(this.tempDirectory.resolve("templates"));
+        FileService fileService = new FileService(this.tempDirectory.resolve("workspace").toString(), templates.toString(), "link", 0L);
+        Path workingDirectory = fileService.workingDirectory(UUID.randomUUID());
+        fileService.createWorkingDirectory(workingDirectory, CLUSTER_DEFINITION);
+
+        Path role = workingDirectory.resolve("ansible_roles").resolve("role0").resolve("tasks");
+        assertFalse(Files.getPosixFilePermissions(role).contains(OWNER_WRITE));
+        assertFalse(Files.getPosixFilePermissions(role.resolve("file0.yaml")).contains(OWNER_WRITE));
+        // the files copied to the working directory stay writable
+        assertTrue(Files.getPosixFilePermissions(workingDirectory.resolve("ansible.cfg")).contains(OWNER_WRITE));
+    }
+
+    @Test
+    void unlinkedSnapshotsAreDeleted() throws IOException {
+        Path templates = createTemplates(this.tempDirectory.resolve("templates"));
+        FileService fileService = new FileService(this.tempDirectory.resolve("workspace").toString(), templates.toString(), "link", 0L);
+        Path first = fileService.workingDirectory(UUID.randomUUID());
+        fileService.createWorkingDirectory(first, CLUSTER_DEFINITION);
+        Path firstSnapshot = Files.readSymbolicLink(first.resolve("ansible_roles")).getParent();
+
+        Files.writeString(templates.resolve("_common").resolve("ansible_roles").resolve("role0").resolve("tasks").resolve("main.yaml"), "changed");
+        Path second = fileService.workingDirectory(UUID.randomUUID());
+        fileService.createWorkingDirectory(second, CLUSTER_DEFINITION);
+        Path secondSnapshot = Files.readSymbolicLink(second.resolve("ansible_roles")).getParent();
+        assertEquals(Set.of(firstSnapshot, secondSnapshot), snapshots(fileService));
+
+        fileService.cleanUpSnapshots();
+        assertEquals(Set.of(firstSnapshot, secondSnapshot), snapshots(fileService));
+
+        FileUtils.deleteDirectory(first.toFile());
+        fileService.cleanUpSnapshots();
+        assertEquals(Set.of(secondSnapshot), snapshots(fileService));
+
+        // the current snapshot is kept, even if no working directory links it
+        FileUtils.deleteDirectory(second.toFile());
+        fileService.cleanUpSnapshots();
+        assertEquals(Set.of(secondSnapshot), snapshots(fileService));
+    }
+
+    private static Set<Path> snapshots(FileService fileService) throws IOException {
+        try (Stream<Path> snapshots = Files.list(fileService.stateDirectory("templates"))) {
+            return snapshots.map(Path::toAbsolutePath).collect(Collectors.toSet());
+        }
+    }
+
+    /**
+     * Creates a template directory with common files and one template.
+     *
+     * The template tree resembles the real one (about 40 Ansible roles and 25 Terraform modules).
+     *
+     * @param templates template directory
+     * @return template directory
+     * @throws IOException on file system errors
+     */
+    static Path createTemplates(Path templates) throws IOException {
+        Path common = templates.resolve("_common");
+        String content = "x".repeat(1024);
+        for (int role = 0; role < 40; role++) {
+            for (String subdirectory : new String[] { "tasks", "templates", "defaults", "handlers" }) {
+                Path directory = Files.createDirectories(common.resolve("ansible_roles").resolve("role" + role).resolve(subdirectory));
+                for (int file = 0; file < 4; file++) {
+                    Files.writeString(directory.resolve("file" + file + ".yaml"), content);
+                }
+            }
+        }
+        for (int module = 0; module < 25; module++) {
+            Path directory = Files.createDirectories(common.resolve("terraform_modules").resolve("module" + module));
+            for (int file = 0; file < 3; file++) {
+                Files.writeString(directory.resolve("file" + file + ".tf"), content);
+            }
+        }
+        Files.writeString(common.resolve("ansible.cfg"), content);
+        Path template = Files.createDirectories(templates.resolve("hcloud-debian-11"));
+        for (String file : new String[] { "main.tf", "launch.yaml", "cleanup.yaml", "ansible.cfg" }) {
+            Files.writeString(template.resolve(file), content);
+        }
+        return templates;
+    }
+}
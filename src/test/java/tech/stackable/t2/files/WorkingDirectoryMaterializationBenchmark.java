@@ -0,0 +1,70 @@
+package tech.stackable.t2.files;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compares the materialization modes of working directories ('copy' vs. 'link') on a large workspace.
+ *
+ * The template tree resembles the real one (see {@link FileServiceTest#createTemplates(Path)}). The benchmark is run
+ * manually, the results are logged.
+ */
+class WorkingDirectoryMaterializationBenchmark {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(WorkingDirectoryMaterializationBenchmark.class);
+
+    private static final int CLUSTERS = 1000;
+
+    @TempDir
+    Path tempDirectory;
+
+    @Disabled("benchmark, run manually")
+    @Test
+    void compareMaterializations() throws IOException {
+        Path templates = FileServiceTest.createTemplates(this.tempDirectory.resolve("templates"));
+        Map<String, Object> clusterDefinition = Map.of("spec", Map.of("template", "hcloud-debian-11"));
+
+        for (String materialization : new String[] { "copy", "link" }) {
+            Path workspace = this.tempDirectory.resolve("workspace-" + materialization);
+            FileService fileService = new FileService(workspace.toString(), templates.toString(), materialization, 0L);
+
+            long start = System.nanoTime();
+            for (int i = 0; i < CLUSTERS; i++) {
+                fileService.createWorkingDirectory(fileService.workingDirectory(UUID.randomUUID()), clusterDefinition);
+            }
+            long millis = (System.nanoTime() - start) / 1_000_000;
+
+            AtomicLong files = new AtomicLong();
+            AtomicLong bytes = new AtomicLong();
+            try (Stream<Path> paths = Files.walk(workspace)) {
+                paths.forEach(path -> {
+                    files.incrementAndGet();
+                    if (Files.isRegularFile(path, LinkOption.NOFOLLOW_LINKS)) {
+                        bytes.addAndGet(path.toFile().length());
+                    }
+                });
+            }
+
+            LOGGER.info("{}: {} working directories in {} ms ({} ms each), {} inodes, {}",
+                    materialization,
+                    CLUSTERS,
+                    millis,
+                    String.format("%.2f", (double) millis / CLUSTERS),
+                    files.get(),
+                    FileUtils.byteCountToDisplaySize(bytes.get()));
+        }
+    }
+}
@@ -1,5 +1,6 @@
 import os
 import os.path
+import json
 import time
 import sys
 import yaml
@@ -272,10 +273,7 @@ def launch_cluster():
     log(f"Created cluster '{cluster['id']}'. Waiting for cluster to be up and running...")
 
     # Wait for cluster to be up and running
-    cluster = get_cluster(os.environ["T2_URL"], os.environ["T2_TOKEN"], cluster['id'])
-    while(CLUSTER_LAUNCH_TIMEOUT > (time.time()-start_time) and cluster['status'] == 'LAUNCHING'):
-        time.sleep(5)
-        cluster = get_cluster(os.environ["T2_URL"], os.environ["T2_TOKEN"], cluster['id'])
+    cluster = wait_while_status(os.environ["T2_URL"], os.environ["T2_TOKEN"], cluster['id'], ['NEW', 'QUEUED', 'LAUNCHING'], start_time + CLUSTER_LAUNCH_TIMEOUT)
 
     # Cluster launch failed
     if(cluster['status'] == 'LAUNCH_FAILED'):
@@ -302,9 +300,7 @@ def terminate_cluster(cluster_id):
     cluster = delete_cluster(os.environ["T2_URL"], os.environ["T2_TOKEN"], cluster_id)
     log(f"Triggered termination of cluster '{cluster_id}'.")
 
-    while(CLUSTER_TERMINATION_TIMEOUT > (time.time()-start_time) and cluster['status'] == 'TERMINATING'):
-        time.sleep(5)
-        cluster = get_cluster(os.environ["T2_URL"], os.environ["T2_TOKEN"], cluster_id)
+    cluster = wait_while_status(os.environ["T2_URL"], os.environ["T2_TOKEN"], cluster_id, ['TERMINATING'], start_time + CLUSTER_TERMINATION_TIMEOUT)
 
     if(cluster['status'] == 'TERMINATION_FAILED'):
         log("Cluster termination failed.")
@@ -343,6 +339,53 @@ def get_cluster(t2_url, t2_token, id):
     return response.json()
 
 
+def wait_while_status(t2_url, t2_token, id, statuses, deadline):
+    """Waits until the cluster has left the given statuses or the deadline (epoch seconds) has passed.
+
+    T2 pushes the status changes and events of the cluster (Server-Sent Events), the events are logged.
+    If the connection breaks, the stream is resumed where it left off.
+
+    Returns:
+    - JSON representing cluster (REST response)
+    """
+    last_event_id = None
+    done = False
+    while not done and time.time() < deadline:
+        headers = { "t2-token": t2_token, "Accept": "text/event-stream" }
+        if last_event_id is not None:
+            headers["Last-Event-ID"] = last_event_id
+        try:
+            # T2 sends keep-alive comments, so the read timeout allows checking the deadline regularly
+            with requests.get(f"{t2_url}/api/clusters/{id}/stream", headers=headers, stream=True, timeout=(10, 60)) as response:
+                if(response.status_code != 200):
+                    log(f"API call to stream cluster returned error code {response.status_code}")
+                    time.sleep(5)
+                    continue
+                event_id, event_name, data = None, None, []
+                for line in response.iter_lines(decode_unicode=True):
+                    if line.startswith("id:"):
+                        event_id = line[3:].strip()
+                    elif line.startswith("event:"):
+                        event_name = line[6:].strip()
+                    elif line.startswith("data:"):
+                        data.append(line[5:])
+                    elif line == "" and event_name:
+                        last_event_id = event_id
+                        payload = json.loads("\n".join(data))
+                        if event_name == "event":
+                            log(f"Cluster event: {payload['event']['description']}")
+                        elif event_name == "status" and payload['status'] not in statuses:
+                            done = True
+                        event_id, event_name, data = None, None, []
+                    if done or time.time() >= deadline:
+                        break
+        except requests.exceptions.RequestException as e:
+            log(f"Stream of cluster interrupted ({e}), resuming...")
+            time.sleep(5)
+
+    return get_cluster(t2_url, t2_token, id)
+
+
 def delete_cluster(t2_url, t2_token, id):
     """Delete the cluster using T2 REST API
 